@@ -0,0 +1,270 @@
+/*
+  This file is part of com.aalburquerque.voronoi API.
+
+    com.aalburquerque.voronoi API is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    com.aalburquerque.voronoi API is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with com.aalburquerque.voronoi API.  If not, see <http://www.gnu.org/licenses/>
+*/
+
+package com.aalburquerque.voronoi.algorithms;
+
+import com.aalburquerque.voronoi.struc.impl.DCEL;
+import com.aalburquerque.voronoi.struc.impl.InstanciaVoronoi;
+import com.aalburquerque.voronoi.struc.impl.Punto3d;
+import com.aalburquerque.voronoi.util.GC;
+
+/**
+ * <p>
+ * Esta clase representa la comprobacion que se hace sobre los sitios elevados
+ * antes de construir el poliedro, para llevarlos desde el principio al proceso
+ * que los puede resolver en lugar de esperar a que el pedido falle y repetir
+ * el calculo entero por otro. Se supone que los sitios llegan ordenados por
+ * abscisa y ordenada.
+ * <p>
+ * Los sitios repetidos se quitan, porque no cambian el diagrama. Si todos los
+ * sitios estan alineados no hay diagrama que calcular. Si son menos de 4, si
+ * todos son cocirculares o si sus coordenadas no caben en
+ * SelectorMetodo.LIMITE_ESPACIO se lleva el calculo al plano. Y para divide y
+ * venceras se recorren los mismos cortes que hara el proceso: si algun caso
+ * base tiene todos sus puntos elevados coplanarios, o si hay muchos sitios
+ * con la misma abscisa u ordenada, se usa el incremental aleatorio.
+ *
+ * @author Antonio Alburquerque Oliva
+ * @version 1.00
+ * @see InstanciaVoronoi
+ */
+
+public class ComprobacionPrevia {
+
+	private Punto3d[] sitios;
+	private int repetidos;
+
+	private int metodo;
+	private String motivo = "Sin degeneraciones";
+
+	/**
+	 * Comprobar los sitios elevados y ordenados que se pasan como parametro
+	 * para el metodo pedido
+	 *
+	 * @param ordenados
+	 *            Sitios elevados al paraboloide, ordenados por abscisa y
+	 *            ordenada
+	 * @param metodoPedido
+	 *            Metodo con el que se pretende construir el poliedro
+	 * @param cota
+	 *            Tamano del caso base de divide y venceras
+	 */
+
+	public ComprobacionPrevia(Punto3d[] ordenados, int metodoPedido, int cota) {
+
+		metodo = metodoPedido;
+
+		sitios = sinRepetidos(ordenados);
+		repetidos = ordenados.length - sitios.length;
+
+		int n = sitios.length;
+
+		long[] x = new long[n];
+		long[] y = new long[n];
+
+		for (int i = 0; i < n; i++) {
+			x[i] = sitios[i].x();
+			y[i] = sitios[i].y();
+		}
+
+		if (n < 4) {
+			enPlano("Menos de 4 sitios distintos");
+			return;
+		}
+
+		int c = noAlineado(x, y, 0, n - 1);
+
+		if (c < 0)
+			throw new RuntimeException("Todos los sitios estan alineados");
+
+		if (cocirculares(x, y, 0, 1, c, n - 1)) {
+			enPlano("Todos los sitios son cocirculares");
+			return;
+		}
+
+		if (!SelectorMetodo.cabeEnEspacio(x, y)) {
+			enPlano("Coordenadas fuera del limite del espacio");
+			return;
+		}
+
+		if (metodo != DCEL.METODO_DIVIDE_Y_VENCERAS && metodo != DCEL.METODO_PARALELO)
+			return;
+
+		if (SelectorMetodo.degeneracion(x, y) >= SelectorMetodo.DEGENERACION_MAXIMA) {
+			metodo = DCEL.METODO_ALEATORIO;
+			motivo = "Muchos sitios con la misma abscisa u ordenada";
+			return;
+		}
+
+		if (casoBaseDegenerado(x, y, 0, n - 1, cota)) {
+			metodo = DCEL.METODO_ALEATORIO;
+			motivo = "Caso base de divide y venceras degenerado";
+		}
+	}
+
+	/**
+	 * Devuelve los sitios sin repetidos
+	 */
+
+	public Punto3d[] sitios() {
+		return sitios;
+	}
+
+	/**
+	 * Devuelve el numero de sitios repetidos que se han quitado
+	 */
+
+	public int repetidos() {
+		return repetidos;
+	}
+
+	/**
+	 * Devuelve el metodo con el que se deben calcular los sitios
+	 */
+
+	public int metodo() {
+		return metodo;
+	}
+
+	/**
+	 * Devuelve una cadena que explica por que se eligio el metodo
+	 */
+
+	public String motivo() {
+		return motivo;
+	}
+
+	/**
+	 * Comprobacion de los sitios para los procesos que no elevan los sitios
+	 * ni triangulan, como Fortune: se quitan los repetidos y, si todos los
+	 * sitios estan alineados, no hay diagrama que calcular, salvo que sean
+	 * dos, cuyo diagrama es su mediatriz. Devuelve las abscisas y las
+	 * ordenadas de los sitios distintos, ordenados por abscisa y ordenada
+	 *
+	 * @param sx
+	 *            Abscisas de los sitios
+	 * @param sy
+	 *            Ordenadas de los sitios
+	 */
+
+	public static long[][] enPlanoSinRepetidos(final long[] sx, final long[] sy) {
+
+		int n = sx.length;
+
+		Integer[] orden = new Integer[n];
+		for (int i = 0; i < n; i++)
+			orden[i] = i;
+
+		java.util.Arrays.sort(orden, new java.util.Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				if (sx[a] != sx[b])
+					return sx[a] < sx[b] ? -1 : 1;
+				return sy[a] < sy[b] ? -1 : sy[a] > sy[b] ? 1 : 0;
+			}
+		});
+
+		int total = 0;
+		long[] x = new long[n];
+		long[] y = new long[n];
+
+		for (int i = 0; i < n; i++) {
+
+			int k = orden[i];
+
+			if (total > 0 && x[total - 1] == sx[k] && y[total - 1] == sy[k])
+				continue;
+
+			x[total] = sx[k];
+			y[total] = sy[k];
+			total++;
+		}
+
+		if (total < 2)
+			throw new RuntimeException("Se necesitan al menos dos sitios distintos");
+
+		if (total > 2 && noAlineado(x, y, 0, total - 1) < 0)
+			throw new RuntimeException("Todos los sitios estan alineados");
+
+		return new long[][] { java.util.Arrays.copyOf(x, total), java.util.Arrays.copyOf(y, total) };
+	}
+
+	private void enPlano(String motivo) {
+
+		this.metodo = InstanciaVoronoi.METODO_PLANO;
+		this.motivo = motivo;
+	}
+
+	private static Punto3d[] sinRepetidos(Punto3d[] a) {
+
+		int total = 0;
+		Punto3d[] b = new Punto3d[a.length];
+
+		for (int i = 0; i < a.length; i++)
+			if (total == 0 || b[total - 1].x() != a[i].x() || b[total - 1].y() != a[i].y())
+				b[total++] = a[i];
+
+		return total == a.length ? a : java.util.Arrays.copyOf(b, total);
+	}
+
+	// los mismos cortes que DivideYvenceras: por debajo de la cota el
+	// incremental necesita cuatro puntos elevados que no sean coplanarios
+
+	private static boolean casoBaseDegenerado(long[] x, long[] y, int izq, int der, int cota) {
+
+		int total = der - izq + 1;
+
+		if (total < cota) {
+
+			if (total < 4)
+				return true;
+
+			int c = noAlineado(x, y, izq, der);
+
+			return c < 0 || cocirculares(x, y, izq, izq + 1, c, der);
+		}
+
+		int corte = total / 2;
+
+		return casoBaseDegenerado(x, y, izq, izq + corte - 1, cota)
+				|| casoBaseDegenerado(x, y, izq + corte, der, cota);
+	}
+
+	// indice del primer sitio que no esta alineado con los dos primeros del
+	// intervalo, que son distintos, o -1 si estan todos alineados
+
+	private static int noAlineado(long[] x, long[] y, int izq, int der) {
+
+		for (int i = izq + 2; i <= der; i++)
+			if (GC.area2(x[izq], y[izq], x[izq + 1], y[izq + 1], x[i], y[i]) != 0)
+				return i;
+
+		return -1;
+	}
+
+	// si todos los sitios desde a estan en la circunferencia por a, b y c. La
+	// orientacion de a, b y c solo cambia el signo de enCirculo
+
+	private static boolean cocirculares(long[] x, long[] y, int a, int b, int c, int der) {
+
+		for (int i = a; i <= der; i++)
+			if (GC.enCirculo(x[a], y[a], x[b], y[b], x[c], y[c], x[i], y[i]) != 0)
+				return false;
+
+		return true;
+	}
+
+}
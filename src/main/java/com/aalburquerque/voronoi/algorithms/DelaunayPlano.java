@@ -0,0 +1,694 @@
+/*
+  This file is part of com.aalburquerque.voronoi API.
+
+    com.aalburquerque.voronoi API is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    com.aalburquerque.voronoi API is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with com.aalburquerque.voronoi API.  If not, see <http://www.gnu.org/licenses/>
+*/
+
+package com.aalburquerque.voronoi.algorithms;
+
+import java.io.Serializable;
+
+import com.aalburquerque.voronoi.struc.impl.Triangulacion;
+import com.aalburquerque.voronoi.util.GC;
+
+/**
+ * <p>
+ * Esta clase representa el proceso de calculo de la triangulacion de Delaunay
+ * de un conjunto de puntos del plano directamente, sin elevarlos al
+ * paraboloide ni construir el cierre convexo en el espacio. Se usa un barrido
+ * radial: los puntos se ordenan por su distancia al circuncentro de un
+ * triangulo semilla y se van a�adiendo uno a uno por fuera del cierre
+ * convexo actual, uniendolos a las aristas del cierre que ven y legalizando
+ * despues las aristas nuevas mediante giros (flips) hasta que cumplen la
+ * condicion de Delaunay. Tiene complejidad en la practica del orden de O(n log
+ * n)
+ * <p>
+ * La triangulacion se guarda en arrays de enteros: el triangulo t tiene los
+ * vertices triangulos[3t], triangulos[3t+1] y triangulos[3t+2] en orden CCW, y
+ * la semiarista e, que va de triangulos[e] al vertice siguiente de su
+ * triangulo, tiene por gemela mitades[e], o -1 si esta en el cierre convexo.
+ * <p>
+ * Las coordenadas pueden ser enteras o reales. Las decisiones topologicas
+ * usan en los dos casos los predicados exactos de GC, asi que la
+ * triangulacion de puntos reales es tan robusta como la de enteros.
+ *
+ * @author Antonio Alburquerque Oliva
+ * @version 1.00
+ * @see Triangulacion
+ */
+
+public class DelaunayPlano implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private long[] x;
+	private long[] y;
+
+	// coordenadas reales, o null si son enteras
+
+	private double[] xr;
+	private double[] yr;
+
+	private int[] triangulos;
+	private int[] mitades;
+	private int totalTriangulos;
+
+	// cierre convexo del barrido como lista doblemente enlazada circular de
+	// vertices en orden CCW, y para cada vertice la semiarista del cierre que
+	// sale de el
+
+	private transient int[] cierreSig;
+	private transient int[] cierrePrev;
+	private transient int[] cierreTri;
+	private int cierreInicio;
+
+	// tabla para encontrar rapidamente un vertice del cierre por angulo
+
+	private int[] cierreHash;
+
+	private double centroX, centroY;
+
+	// pila de aristas pendientes de legalizar
+
+	private transient int[] pendientes;
+
+	private int n;
+
+	// los arrays de trabajo de tamano n, que no forman parte del resultado,
+	// se reutilizan entre las triangulaciones de un mismo hilo si no pasan
+	// de este numero de puntos. Asi no se piden de nuevo en cada una cuando
+	// se calculan muchas pequenas seguidas, y un hilo no retiene mas que esto
+
+	private static final int MAXIMO_REUTILIZADO = 1 << 14;
+
+	private static final ThreadLocal<Auxiliar> AUXILIAR = new ThreadLocal<Auxiliar>() {
+		protected Auxiliar initialValue() {
+			return new Auxiliar(0);
+		}
+	};
+
+	private transient Auxiliar auxiliar;
+
+	/**
+	 *
+	 * Construir un nuevo proceso que calcula la triangulacion de Delaunay de
+	 * los puntos del plano cuyas coordenadas se pasan como parametro
+	 *
+	 * @param x
+	 *            Abscisas de los puntos
+	 * @param y
+	 *            Ordenadas de los puntos
+	 *
+	 */
+
+	public DelaunayPlano(long[] x, long[] y) {
+
+		this.x = x;
+		this.y = y;
+
+		preparar(x.length);
+	}
+
+	/**
+	 *
+	 * Construir un nuevo proceso que calcula la triangulacion de Delaunay de
+	 * los puntos del plano cuyas coordenadas reales se pasan como parametro
+	 *
+	 * @param x
+	 *            Abscisas de los puntos
+	 * @param y
+	 *            Ordenadas de los puntos
+	 *
+	 */
+
+	public DelaunayPlano(double[] x, double[] y) {
+
+		this.xr = x;
+		this.yr = y;
+
+		preparar(x.length);
+	}
+
+	private void preparar(int n) {
+
+		if (n < 3)
+			throw new RuntimeException("No se admiten menos de 3 puntos");
+
+		int maxTriangulos = Math.max(2 * n - 5, 1);
+
+		triangulos = new int[3 * maxTriangulos];
+		mitades = new int[3 * maxTriangulos];
+
+		this.n = n;
+
+		if (n <= MAXIMO_REUTILIZADO) {
+			auxiliar = AUXILIAR.get();
+			auxiliar.reservar(n);
+		} else
+			auxiliar = new Auxiliar(n);
+
+		cierreSig = auxiliar.sig;
+		cierrePrev = auxiliar.prev;
+		cierreTri = auxiliar.tri;
+		cierreHash = new int[(int) Math.ceil(Math.sqrt(n))];
+
+		pendientes = auxiliar.pendientes;
+
+		triangular();
+
+		// la pila puede haber crecido; el proceso no se queda con nada del hilo
+
+		auxiliar.pendientes = pendientes;
+
+		cierreSig = cierrePrev = cierreTri = pendientes = null;
+		auxiliar = null;
+	}
+
+	/**
+	 * Devuelve los vertices de los triangulos de a tres en orden CCW
+	 */
+
+	public int[] triangulos() {
+		return triangulos;
+	}
+
+	/**
+	 * Devuelve para cada semiarista su gemela, o -1 si esta en el cierre
+	 */
+
+	public int[] mitades() {
+		return mitades;
+	}
+
+	/**
+	 * Devuelve el numero total de triangulos
+	 */
+
+	public int totalTriangulos() {
+		return totalTriangulos;
+	}
+
+	private void triangular() {
+
+		// 1. TRIANGULO SEMILLA
+
+		double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+
+		for (int i = 0; i < n; i++) {
+			minX = Math.min(minX, px(i));
+			minY = Math.min(minY, py(i));
+			maxX = Math.max(maxX, px(i));
+			maxY = Math.max(maxY, py(i));
+		}
+
+		double cx = (minX + maxX) / 2.0;
+		double cy = (minY + maxY) / 2.0;
+
+		// el mas cercano al centro de la caja
+
+		int i0 = 0;
+		double minDist = Double.POSITIVE_INFINITY;
+
+		for (int i = 0; i < n; i++) {
+			double d = dist(cx, cy, px(i), py(i));
+			if (d < minDist) {
+				i0 = i;
+				minDist = d;
+			}
+		}
+
+		// el mas cercano a i0
+
+		int i1 = -1;
+		minDist = Double.POSITIVE_INFINITY;
+
+		for (int i = 0; i < n; i++) {
+			double d = dist(px(i0), py(i0), px(i), py(i));
+			if (d > 0 && d < minDist) {
+				i1 = i;
+				minDist = d;
+			}
+		}
+
+		if (i1 == -1)
+			throw new RuntimeException("Todos los puntos son iguales");
+
+		// el que forma con i0 e i1 la circunferencia mas peque�a: ningun otro
+		// punto queda dentro del triangulo
+
+		int i2 = -1;
+		double minRadio = Double.POSITIVE_INFINITY;
+
+		for (int i = 0; i < n; i++) {
+			if (i == i0 || i == i1)
+				continue;
+			double r = radio2(px(i0), py(i0), px(i1), py(i1), px(i), py(i));
+			if (r < minRadio) {
+				i2 = i;
+				minRadio = r;
+			}
+		}
+
+		if (i2 == -1)
+			throw new RuntimeException("Todos los puntos estan alineados");
+
+		// orientar el triangulo semilla en sentido CCW
+
+		if (area2(i0, i1, i2) < 0) {
+			int temp = i1;
+			i1 = i2;
+			i2 = temp;
+		}
+
+		centro(px(i0), py(i0), px(i1), py(i1), px(i2), py(i2));
+
+		// 2. ORDENAR POR DISTANCIA AL CENTRO
+
+		int[] orden = auxiliar.orden;
+		double[] distancias = auxiliar.distancias;
+
+		for (int i = 0; i < n; i++) {
+			orden[i] = i;
+			distancias[i] = dist(centroX, centroY, px(i), py(i));
+		}
+
+		quicksort(orden, distancias, 0, n - 1);
+
+		// 3. CIERRE INICIAL
+
+		cierreInicio = i0;
+
+		cierreSig[i0] = cierrePrev[i2] = i1;
+		cierreSig[i1] = cierrePrev[i0] = i2;
+		cierreSig[i2] = cierrePrev[i1] = i0;
+
+		cierreTri[i0] = 0;
+		cierreTri[i1] = 1;
+		cierreTri[i2] = 2;
+
+		for (int i = 0; i < cierreHash.length; i++)
+			cierreHash[i] = -1;
+
+		cierreHash[clave(px(i0), py(i0))] = i0;
+		cierreHash[clave(px(i1), py(i1))] = i1;
+		cierreHash[clave(px(i2), py(i2))] = i2;
+
+		nuevoTriangulo(i0, i1, i2, -1, -1, -1);
+
+		// 4. BARRIDO
+
+		int anterior = -1;
+
+		for (int k = 0; k < n; k++) {
+
+			int p = orden[k];
+
+			// los repetidos quedan juntos en el orden salvo empates de
+			// distancia; si no, no ven ninguna arista del cierre y se descartan
+			// abajo
+
+			if (anterior != -1 && iguales(p, anterior))
+				continue;
+
+			anterior = p;
+
+			if (p == i0 || p == i1 || p == i2)
+				continue;
+
+			// un vertice del cierre cercano en angulo
+
+			int inicio = 0;
+			int c = clave(px(p), py(p));
+
+			for (int j = 0; j < cierreHash.length; j++) {
+				inicio = cierreHash[(c + j) % cierreHash.length];
+				if (inicio != -1 && inicio != cierreSig[inicio])
+					break;
+			}
+
+			inicio = cierrePrev[inicio];
+
+			// primera arista del cierre visible desde p
+
+			int e = inicio;
+			int q;
+
+			while (!visible(e, q = cierreSig[e], p)) {
+				e = q;
+				if (e == inicio) {
+					e = -1;
+					break;
+				}
+			}
+
+			if (e == -1)
+				continue; // repetido de un punto ya triangulado
+
+			// triangulo con la primera arista visible
+
+			int t = nuevoTriangulo(e, p, cierreSig[e], -1, -1, cierreTri[e]);
+
+			cierreTri[p] = t + 1;
+			cierreTri[e] = t;
+
+			legalizar(t + 2);
+
+			// avanzar por el cierre mientras las aristas sean visibles
+
+			int sig = cierreSig[e];
+
+			while (visible(sig, q = cierreSig[sig], p)) {
+
+				t = nuevoTriangulo(sig, p, q, cierreTri[p], -1, cierreTri[sig]);
+
+				cierreTri[p] = t + 1;
+
+				legalizar(t + 2);
+
+				cierreSig[sig] = sig; // fuera del cierre
+				sig = q;
+			}
+
+			// retroceder si la primera visible era la de partida
+
+			if (e == inicio) {
+
+				while (visible(q = cierrePrev[e], e, p)) {
+
+					t = nuevoTriangulo(q, p, e, -1, cierreTri[e], cierreTri[q]);
+
+					cierreTri[q] = t;
+
+					legalizar(t + 2);
+
+					cierreSig[e] = e; // fuera del cierre
+					e = q;
+				}
+			}
+
+			// actualizar el cierre
+
+			cierreInicio = e;
+			cierrePrev[p] = e;
+			cierreSig[e] = p;
+			cierrePrev[sig] = p;
+			cierreSig[p] = sig;
+
+			cierreHash[clave(px(p), py(p))] = p;
+			cierreHash[clave(px(e), py(e))] = e;
+		}
+	}
+
+	// la arista del cierre a->b es visible desde p si p queda a su derecha
+
+	private boolean visible(int a, int b, int p) {
+
+		return area2(a, b, p) < 0;
+	}
+
+	/* ------------------------------------------------------------------- */
+	/* P R E D I C A D O S sobre coordenadas enteras o reales */
+	/* ------------------------------------------------------------------- */
+
+	private double area2(int a, int b, int c) {
+
+		if (xr != null)
+			return GC.area2(xr[a], yr[a], xr[b], yr[b], xr[c], yr[c]);
+
+		return GC.area2(x[a], y[a], x[b], y[b], x[c], y[c]);
+	}
+
+	private double enCirculo(int a, int b, int c, int d) {
+
+		if (xr != null)
+			return GC.enCirculo(xr[a], yr[a], xr[b], yr[b], xr[c], yr[c], xr[d], yr[d]);
+
+		return GC.enCirculo(x[a], y[a], x[b], y[b], x[c], y[c], x[d], y[d]);
+	}
+
+	private boolean iguales(int a, int b) {
+
+		if (xr != null)
+			return xr[a] == xr[b] && yr[a] == yr[b];
+
+		return x[a] == x[b] && y[a] == y[b];
+	}
+
+	// coordenadas aproximadas, solo para los calculos en coma flotante
+
+	private double px(int i) {
+		return xr != null ? xr[i] : x[i];
+	}
+
+	private double py(int i) {
+		return yr != null ? yr[i] : y[i];
+	}
+
+	private int nuevoTriangulo(int a, int b, int c, int ma, int mb, int mc) {
+
+		int t = 3 * totalTriangulos++;
+
+		triangulos[t] = a;
+		triangulos[t + 1] = b;
+		triangulos[t + 2] = c;
+
+		enlazar(t, ma);
+		enlazar(t + 1, mb);
+		enlazar(t + 2, mc);
+
+		return t;
+	}
+
+	private void enlazar(int a, int b) {
+
+		mitades[a] = b;
+		if (b != -1)
+			mitades[b] = a;
+	}
+
+	/* ------------------------------------------------------------------- */
+	/* M E T O D O legalizar */
+	/* ------------------------------------------------------------------- */
+
+	// Comprueba la arista a con el triangulo del otro lado y la gira si el
+	// vertice opuesto cae dentro de la circunferencia. Tras un giro hay que
+	// volver a comprobar las dos aristas exteriores del par; se usa una pila
+	// en lugar de recursion
+	//
+	//           pi                    pi
+	//          /||\                  /  \
+	//       ai/ || \bi            ai/    \a
+	//        /  ||  \              /      \
+	//       /  a||b  \    giro    /___ad___\
+	//     p0\   ||   /p1   =>   p0\---bi---/p1
+	//        \  ||  /              \      /
+	//       ad\ || /bd            b\    /bd
+	//          \||/                  \  /
+	//           pd                    pd
+
+	private void legalizar(int a) {
+
+		int total = 0;
+
+		while (true) {
+
+			int b = mitades[a];
+
+			int a0 = a - a % 3;
+			int ad = a0 + (a + 2) % 3;
+
+			if (b == -1) {
+
+				if (total == 0)
+					break;
+				a = pendientes[--total];
+				continue;
+			}
+
+			int b0 = b - b % 3;
+			int ai = a0 + (a + 1) % 3;
+			int bi = b0 + (b + 2) % 3;
+
+			int p0 = triangulos[ad];
+			int pd = triangulos[a];
+			int pi = triangulos[ai];
+			int p1 = triangulos[bi];
+
+			if (enCirculo(p0, pd, pi, p1) > 0) {
+
+				triangulos[a] = p1;
+				triangulos[b] = p0;
+
+				int mbi = mitades[bi];
+				int mad = mitades[ad];
+
+				// las aristas del cierre que cambian de posicion al girar
+
+				if (mbi == -1)
+					cierreTri[p1] = a;
+				if (mad == -1)
+					cierreTri[p0] = b;
+
+				enlazar(a, mbi);
+				enlazar(b, mad);
+				enlazar(ad, bi);
+
+				if (total == pendientes.length) {
+					int[] temp = new int[2 * total];
+					System.arraycopy(pendientes, 0, temp, 0, total);
+					pendientes = temp;
+				}
+
+				pendientes[total++] = b0 + (b + 1) % 3;
+
+			} else {
+
+				if (total == 0)
+					break;
+				a = pendientes[--total];
+			}
+		}
+	}
+
+	/* ------------------------------------------------------------------- */
+	/* M E T O D O S auxiliares en coma flotante */
+	/* ------------------------------------------------------------------- */
+
+	// solo sirven para elegir la semilla, ordenar y dispersar en la tabla: las
+	// decisiones topologicas usan GC.area2 y GC.enCirculo
+
+	private static double dist(double ax, double ay, double bx, double by) {
+
+		double dx = ax - bx;
+		double dy = ay - by;
+		return dx * dx + dy * dy;
+	}
+
+	private static double radio2(double ax, double ay, double bx, double by, double cx, double cy) {
+
+		double dx = bx - ax;
+		double dy = by - ay;
+		double ex = cx - ax;
+		double ey = cy - ay;
+
+		double bl = dx * dx + dy * dy;
+		double cl = ex * ex + ey * ey;
+		double d = 0.5 / (dx * ey - dy * ex);
+
+		double rx = (ey * bl - dy * cl) * d;
+		double ry = (dx * cl - ex * bl) * d;
+
+		return rx * rx + ry * ry;
+	}
+
+	private void centro(double ax, double ay, double bx, double by, double cx, double cy) {
+
+		double dx = bx - ax;
+		double dy = by - ay;
+		double ex = cx - ax;
+		double ey = cy - ay;
+
+		double bl = dx * dx + dy * dy;
+		double cl = ex * ex + ey * ey;
+		double d = 0.5 / (dx * ey - dy * ex);
+
+		centroX = ax + (ey * bl - dy * cl) * d;
+		centroY = ay + (dx * cl - ex * bl) * d;
+	}
+
+	// pseudoangulo de p respecto al centro, monotono con el angulo real y sin
+	// trigonometria
+
+	private int clave(double px, double py) {
+
+		double dx = px - centroX;
+		double dy = py - centroY;
+
+		double p = dx / (Math.abs(dx) + Math.abs(dy));
+		double a = (dy > 0 ? 3 - p : 1 + p) / 4;
+
+		return (int) Math.floor(a * cierreHash.length) % cierreHash.length;
+	}
+
+	private void quicksort(int[] orden, double[] distancias, int izq, int der) {
+
+		if (der - izq <= 20) {
+
+			for (int i = izq + 1; i <= der; i++) {
+
+				int temp = orden[i];
+				double d = distancias[temp];
+				int j = i - 1;
+
+				while (j >= izq && distancias[orden[j]] > d)
+					orden[j + 1] = orden[j--];
+
+				orden[j + 1] = temp;
+			}
+
+			return;
+		}
+
+		int i = izq, j = der;
+		double central = distancias[orden[(izq + der) >>> 1]];
+		int temp;
+
+		do {
+			while (distancias[orden[i]] < central)
+				i++;
+			while (central < distancias[orden[j]])
+				j--;
+
+			if (i <= j) {
+				temp = orden[i];
+				orden[i] = orden[j];
+				orden[j] = temp;
+				i++;
+				j--;
+			}
+
+		} while (!(i > j));
+
+		if (izq < j)
+			quicksort(orden, distancias, izq, j);
+		if (i < der)
+			quicksort(orden, distancias, i, der);
+	}
+
+	private static class Auxiliar {
+
+		int[] sig, prev, tri, orden, pendientes;
+		double[] distancias;
+
+		Auxiliar(int n) {
+			crear(n);
+			pendientes = new int[512];
+		}
+
+		void reservar(int n) {
+			if (sig.length < n)
+				crear(Math.min(Math.max(n, 2 * sig.length), MAXIMO_REUTILIZADO));
+		}
+
+		private void crear(int n) {
+			sig = new int[n];
+			prev = new int[n];
+			tri = new int[n];
+			orden = new int[n];
+			distancias = new double[n];
+		}
+	}
+
+}
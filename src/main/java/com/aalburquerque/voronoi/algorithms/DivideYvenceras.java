@@ -19,6 +19,7 @@ package com.aalburquerque.voronoi.algorithms;
 
 import java.io.Serializable;
 import java.util.ListIterator;
+import java.util.concurrent.RecursiveTask;
 
 import com.aalburquerque.voronoi.exception.BucleEnvolviendoException;
 import com.aalburquerque.voronoi.exception.MezclaDCELException;
@@ -71,6 +72,10 @@ public class DivideYvenceras implements Serializable {
 
 	private DCEL A, B;
 
+	// si es cierto los dos subproblemas se construyen en paralelo
+
+	private boolean esParalelo;
+
 	/**
 	 * 
 	 * Construir un nuevo proceso que por medio de "Divide y Venceras" resuelve
@@ -89,10 +94,39 @@ public class DivideYvenceras implements Serializable {
 
 	public DivideYvenceras(DCEL dcel, Punto3d[] puntos, int cota) {
 
+		this(dcel, puntos, cota, false);
+	}
+
+	/**
+	 * 
+	 * Construir un nuevo proceso que por medio de "Divide y Venceras" resuelve
+	 * el problema de encontrar el cierre convexo de un conjunto de puntos en el
+	 * espacio, pudiendo construir los dos subproblemas en paralelo. En ese caso
+	 * el subproblema derecho se lanza como tarea del ForkJoinPool mientras el
+	 * hilo actual construye el izquierdo, y asi recursivamente hasta el caso
+	 * base. La mezcla de cada nivel se hace al terminar ambas mitades.
+	 * 
+	 * @param dcel
+	 *            Estructura que esta vacia previamente al proceso y que va a
+	 *            contener el resultado de este proceso.
+	 * @param puntos
+	 *            Array con los puntos de los que se quiere hallar el cierre
+	 *            convexo.
+	 * @param cota
+	 *            Tama�o del caso base
+	 * @param paralelo
+	 *            Si es cierto los subproblemas se construyen en paralelo
+	 * 
+	 */
+
+	public DivideYvenceras(DCEL dcel, Punto3d[] puntos, int cota, boolean paralelo) {
+
 		// se supone que los puntos estan ordenados por abscisa
 
 		setCota(cota);
 
+		esParalelo = paralelo;
+
 		for (int i = 1; i < puntos.length; i++)
 
 			if (puntos[i - 1].ordenX(puntos[i]) == 1)
@@ -107,8 +141,22 @@ public class DivideYvenceras implements Serializable {
 
 		int corte = total / 2;
 
-		this.A = construye(0, corte - 1);
-		this.B = construye(corte, total - 1);
+		if (esParalelo) {
+
+			// fork() fuera de un ForkJoinPool usa el pool comun, asi que vale
+			// tambien en el nivel superior
+
+			Construccion tareaB = new Construccion(corte, total - 1);
+			tareaB.fork();
+
+			this.A = construye(0, corte - 1);
+			this.B = tareaB.join();
+
+		} else {
+
+			this.A = construye(0, corte - 1);
+			this.B = construye(corte, total - 1);
+		}
 
 		// DCEL porincremental = new DCEL(puntos,true);
 		// porincremental.aDisco("porincremental");
@@ -174,12 +222,34 @@ public class DivideYvenceras implements Serializable {
 		for (int i = 0; i < total; i++)
 			temp[i] = puntos[izq + i];
 
-		DCEL resultado = new DCEL(temp, getCota());
+		DCEL resultado = esParalelo && total >= getCota() ?
+
+				new DCEL(temp, DCEL.METODO_PARALELO, getCota()) :
+
+				new DCEL(temp, getCota());
 
 		return resultado;
 
 	}
 
+	// tarea que construye un subproblema en otro hilo del pool
+
+	private class Construccion extends RecursiveTask<DCEL> {
+
+		private static final long serialVersionUID = 1L;
+
+		private int izq, der;
+
+		private Construccion(int izq, int der) {
+			this.izq = izq;
+			this.der = der;
+		}
+
+		protected DCEL compute() {
+			return construye(izq, der);
+		}
+	}
+
 	private void ejecutarMezcla() {
 
 		Object[] items;
@@ -193,11 +263,6 @@ public class DivideYvenceras implements Serializable {
 
 		Vertice3d A2, B2;
 
-		// Caras candidatas
-
-		Triangulo3d caraIzq;
-		Triangulo3d caraDer;
-
 		// aristas candidatas
 
 		NodoArista aristaSigIz = null;
@@ -206,10 +271,6 @@ public class DivideYvenceras implements Serializable {
 		Vertice3d verticeSigIz = null;
 		Vertice3d verticeSigDe = null;
 
-		// cara inicial
-
-		Triangulo3d inicial, caraAnterior;
-
 		// empezar buscando el ganador en las dos
 
 		boolean buscarIz = true;
@@ -230,8 +291,6 @@ public class DivideYvenceras implements Serializable {
 		A1 = puente.ori().asociado();
 		B1 = puente.des().asociado();
 
-		caraAnterior = inicial = new Triangulo3d(A1, new Vertice3d(A1.x(), A1.y(), A1.z() + 1), B1);
-
 		// 2. encontrar los ganadores de cada poliedro
 
 		boolean esinicio = true;
@@ -292,15 +351,15 @@ public class DivideYvenceras implements Serializable {
 			verticeSigIz = A1.igual(aristaSigIz.ori()) ? aristaSigIz.des() : aristaSigIz.ori();
 			verticeSigDe = B1.igual(aristaSigDe.ori()) ? aristaSigDe.des() : aristaSigDe.ori();
 
-			caraIzq = new Triangulo3d(verticeSigIz, B1, A1);
-			caraDer = new Triangulo3d(verticeSigDe, B1, A1);
-
 			// 3. comparar a los dos ganadores para conocer el siguiente vertice
 
-			Vertice3d temp = verticeSigDe.restar(B1);
-			temp = temp.sumar(A1);
+			// el tercer punto del plano de prueba es A1 + B1 - verticeSigDe.
+			// Se calcula sobre las coordenadas para no crear vertices
+			// auxiliares en cada paso de la envoltura
 
-			ganaA = GC.volumen6(A1, B1, temp, verticeSigIz) < 0;
+			ganaA = GC.volumen6(A1.x(), A1.y(), A1.z(), B1.x(), B1.y(), B1.z(),
+					A1.x() + B1.x() - verticeSigDe.x(), A1.y() + B1.y() - verticeSigDe.y(),
+					A1.z() + B1.z() - verticeSigDe.z(), verticeSigIz.x(), verticeSigIz.y(), verticeSigIz.z()) < 0;
 			// ganaB = GC.volumen6(A1,B1,temp,verticeSigIz)>0;
 
 			items = new Object[5]; // conjunto de informaci�n para una nueva
@@ -312,13 +371,11 @@ public class DivideYvenceras implements Serializable {
 
 				A2 = verticeSigIz;
 
-				caraAnterior = new Triangulo3d(B1, A1, A2);
-
 				items[0] = aristaSigIz;
 				items[1] = B1;
-				items[2] = new Boolean(false); // la arista es del lado derecho
-												// : falso
-				items[3] = new Boolean(aristaSigIz.ori().igual(A1) ? false : true);
+				items[2] = Boolean.FALSE; // la arista es del lado derecho
+											// : falso
+				items[3] = Boolean.valueOf(!aristaSigIz.ori().igual(A1));
 				// la orientacion de la arista de la nueva cara
 
 				// listaVertices.insertarInicio(A1);
@@ -334,15 +391,13 @@ public class DivideYvenceras implements Serializable {
 
 				B2 = verticeSigDe;
 
-				caraAnterior = new Triangulo3d(B1, A1, B2);
-
 				// listaVertices.insertarInicio(B1);
 
 				items[0] = aristaSigDe;
 				items[1] = A1;
-				items[2] = new Boolean(true); // la arista es del lado derecho :
-												// cierto
-				items[3] = new Boolean(aristaSigDe.ori().igual(B1) ? false : true);
+				items[2] = Boolean.TRUE; // la arista es del lado derecho :
+											// cierto
+				items[3] = Boolean.valueOf(!aristaSigDe.ori().igual(B1));
 				// la orientacion de la arista de la nueva cara
 
 				B1 = B2;
@@ -827,16 +882,6 @@ public class DivideYvenceras implements Serializable {
 
 		iter = listaFormacionCaras.listIterator();
 
-		for (int i = 0; i < total; i++) {
-
-			items = (Object[]) iter.next();
-
-			aristaRecorrido = (NodoArista) items[0];
-
-		}
-
-		iter = listaFormacionCaras.listIterator();
-
 		for (int i = 0; i < total; i++) {
 
 			items = (Object[]) iter.next();
@@ -879,7 +924,7 @@ public class DivideYvenceras implements Serializable {
 	 */
 	public static final int COTA = 30;
 
-	private static int cota = 30;
+	private int cota = COTA;
 
 	/**
 	 * 
@@ -0,0 +1,601 @@
+/*
+  This file is part of com.aalburquerque.voronoi API.
+
+    com.aalburquerque.voronoi API is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    com.aalburquerque.voronoi API is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with com.aalburquerque.voronoi API.  If not, see <http://www.gnu.org/licenses/>
+*/
+
+package com.aalburquerque.voronoi.algorithms;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import com.aalburquerque.voronoi.struc.ICoord;
+import com.aalburquerque.voronoi.struc.IDiagrama;
+import com.aalburquerque.voronoi.struc.IReceptorLineas;
+import com.aalburquerque.voronoi.struc.impl.Line;
+import com.aalburquerque.voronoi.struc.impl.VoronoiOutput;
+import com.aalburquerque.voronoi.util.GC;
+import com.aalburquerque.voronoi.util.Marco;
+import com.aalburquerque.voronoi.util.Util;
+
+/**
+ * <p>
+ * Esta clase representa el calculo del diagrama de Voronoi de un conjunto de
+ * sitios del plano mediante el algoritmo de barrido de Fortune. Una recta
+ * horizontal barre el plano en el sentido de las ordenadas crecientes; por
+ * encima de ella la linea de playa (la envolvente de las parabolas de los
+ * sitios ya barridos) se guarda en un arbol equilibrado (treap) de arcos, y los
+ * sucesos de sitio y de circulo se atienden en orden con una cola de
+ * prioridad. Tiene complejidad en el tiempo de ejecucion del orden de O(n log
+ * n)
+ * <p>
+ * No se construye ningun poliedro ni triangulacion: las aristas de Voronoi se
+ * guardan en el orden en que quedan terminadas y cada vertice se calcula una
+ * sola vez, en su suceso de circulo, con el mismo redondeo que
+ * Triangulo3d.circuncentro(). Las aristas no acotadas se dan como semirrectas
+ * igual que en Poliedro.
+ *
+ * @author Antonio Alburquerque Oliva
+ * @version 1.00
+ * @see IDiagrama
+ */
+
+public class Fortune implements IDiagrama, Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	// sitios sin repetir, ordenados por ordenada y despues por abscisa
+
+	private long[] x;
+	private long[] y;
+
+	private Arco raiz;
+
+	private PriorityQueue<Suceso> sucesos;
+
+	private Random azar = new Random(1L);
+
+	// aristas en el orden en que se terminan; al final las no acotadas
+
+	private ArrayList<Arista> terminadas = new ArrayList<Arista>();
+	private ArrayList<Arista> abiertas = new ArrayList<Arista>();
+
+	/**
+	 *
+	 * Construir un nuevo proceso que calcula por barrido el diagrama de
+	 * Voronoi de los sitios cuyas coordenadas se pasan como parametro
+	 *
+	 * @param x
+	 *            Abscisas de los sitios
+	 * @param y
+	 *            Ordenadas de los sitios
+	 *
+	 */
+
+	public Fortune(long[] x, long[] y) {
+
+		ordenarSitios(x, y);
+
+		sucesos = new PriorityQueue<Suceso>(Math.max(this.x.length, 1), new Comparator<Suceso>() {
+			public int compare(Suceso a, Suceso b) {
+				if (a.y != b.y)
+					return a.y < b.y ? -1 : 1;
+				return a.x < b.x ? -1 : a.x > b.x ? 1 : 0;
+			}
+		});
+
+		barrer();
+	}
+
+	/**
+	 * Devuelve el numero total de aristas de Voronoi, acotadas o no
+	 */
+
+	public int totalAristas() {
+		return terminadas.size();
+	}
+
+	/**
+	 * @param coord
+	 * @return
+	 */
+	public VoronoiOutput getVoronoiJSON(ICoord coord) {
+		return getVoronoiJSON(coord, Marco.PANTALLA);
+	}
+
+	public VoronoiOutput getVoronoiJSON(ICoord coord, Marco marco) {
+
+		VoronoiOutput oVoronoiOutput = new VoronoiOutput(terminadas.size());
+
+		recorrerVoronoi(coord, marco, oVoronoiOutput);
+
+		return oVoronoiOutput;
+	}
+
+	public void recorrerVoronoi(ICoord coord, Marco marco, IReceptorLineas receptor) {
+
+		for (Arista e : terminadas) {
+
+			long[] p = e.ini;
+			long[] q = e.fin;
+			int tercero = e.terceroIni;
+
+			if (e.gemela != null) {
+				p = e.gemela.fin;
+				tercero = e.gemela.terceroFin;
+			}
+
+			if (p != null && q != null) {
+
+				receptor.addLine(coord.x(p[0]), coord.y(p[1]), coord.x(q[0]), coord.y(q[1]));
+
+			} else if (p != null || q != null) {
+
+				// semirrecta perpendicular a los dos sitios que se aleja del
+				// tercer sitio del vertice en el que empieza
+
+				if (p == null) {
+					p = q;
+					tercero = e.terceroFin;
+				}
+
+				long ux = x[e.der] - x[e.izq];
+				long uy = y[e.der] - y[e.izq];
+
+				long dx = uy, dy = -ux;
+
+				if (dx * (x[tercero] - x[e.izq]) + dy * (y[tercero] - y[e.izq]) > 0) {
+					dx = -dx;
+					dy = -dy;
+				}
+
+				Line newSpecialLine = Util.segmentoNoAcotado(coord, p, dx, dy, marco);
+				if (newSpecialLine != null)
+					receptor.addLine(newSpecialLine);
+
+			} else {
+
+				// sin vertices: la mediatriz entera de los dos sitios, que solo
+				// se da si todas las aristas son paralelas, como con dos sitios
+
+				long[] medio = { (x[e.izq] + x[e.der]) / 2, (y[e.izq] + y[e.der]) / 2 };
+
+				Line newSpecialLine = Util.rectaNoAcotada(coord, medio, y[e.der] - y[e.izq], x[e.izq] - x[e.der],
+						marco);
+				if (newSpecialLine != null)
+					receptor.addLine(newSpecialLine);
+			}
+		}
+	}
+
+	private void ordenarSitios(long[] sx, long[] sy) {
+
+		int n = sx.length;
+
+		Integer[] orden = new Integer[n];
+		for (int i = 0; i < n; i++)
+			orden[i] = i;
+
+		final long[] ox = sx, oy = sy;
+
+		java.util.Arrays.sort(orden, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				if (oy[a] != oy[b])
+					return oy[a] < oy[b] ? -1 : 1;
+				return ox[a] < ox[b] ? -1 : ox[a] > ox[b] ? 1 : 0;
+			}
+		});
+
+		// sin repetidos
+
+		int total = 0;
+		x = new long[n];
+		y = new long[n];
+
+		for (int i = 0; i < n; i++) {
+
+			int k = orden[i];
+
+			if (total > 0 && x[total - 1] == sx[k] && y[total - 1] == sy[k])
+				continue;
+
+			x[total] = sx[k];
+			y[total] = sy[k];
+			total++;
+		}
+
+		if (total < n) {
+			x = java.util.Arrays.copyOf(x, total);
+			y = java.util.Arrays.copyOf(y, total);
+		}
+	}
+
+	/* ------------------------------------------------------------------- */
+	/* M E T O D O barrer */
+	/* ------------------------------------------------------------------- */
+
+	private void barrer() {
+
+		int siguiente = 0;
+
+		while (siguiente < x.length || !sucesos.isEmpty()) {
+
+			Suceso s = sucesos.peek();
+
+			// a igual ordenada se atiende antes el sitio de menor abscisa
+
+			if (siguiente < x.length && (s == null || y[siguiente] < s.y || (y[siguiente] == s.y && x[siguiente] <= s.x))) {
+
+				sucesoSitio(siguiente++);
+
+			} else {
+
+				sucesos.poll();
+
+				if (s.valido)
+					sucesoCirculo(s);
+			}
+		}
+
+		// las que siguen abiertas no estan acotadas
+
+		for (Arista e : abiertas)
+			if (!e.terminada && (e.gemela == null || e.primera))
+				terminadas.add(e);
+
+		abiertas = null;
+	}
+
+	private void sucesoSitio(int s) {
+
+		if (raiz == null) {
+			raiz = new Arco(s, azar.nextInt());
+			return;
+		}
+
+		Arco a = localizar(x[s], y[s]);
+
+		if (y[a.sitio] == y[s]) {
+
+			// solo al principio, si los primeros sitios tienen la misma
+			// ordenada: sus arcos son semirrectas verticales y el nuevo va a
+			// la derecha de todos, separado por una arista vertical
+
+			Arco nuevo = new Arco(s, azar.nextInt());
+			insertarDespues(a, nuevo);
+
+			Arista e = nuevaArista(a.sitio, s);
+			a.aristaDer = e;
+
+			return;
+		}
+
+		invalidar(a);
+
+		// el arco a se parte en a, nuevo, a2
+
+		Arco nuevo = new Arco(s, azar.nextInt());
+		Arco a2 = new Arco(a.sitio, azar.nextInt());
+
+		a2.aristaDer = a.aristaDer;
+
+		insertarDespues(a, nuevo);
+		insertarDespues(nuevo, a2);
+
+		// los dos puntos de ruptura recorren la misma mediatriz en sentidos
+		// opuestos
+
+		Arista e1 = nuevaArista(a.sitio, s);
+		Arista e2 = nuevaArista(s, a.sitio);
+
+		e1.gemela = e2;
+		e2.gemela = e1;
+		e1.primera = true;
+
+		a.aristaDer = e1;
+		nuevo.aristaDer = e2;
+
+		comprobarCirculo(a);
+		comprobarCirculo(a2);
+	}
+
+	private void sucesoCirculo(Suceso s) {
+
+		Arco m = s.arco;
+		Arco l = m.prev;
+		Arco r = m.next;
+
+		long[] v = GC.circuncentro(x[l.sitio], y[l.sitio], x[m.sitio], y[m.sitio], x[r.sitio], y[r.sitio]);
+
+		terminar(l.aristaDer, v, r.sitio);
+		terminar(m.aristaDer, v, l.sitio);
+
+		Arista e = nuevaArista(l.sitio, r.sitio);
+		e.ini = v;
+		e.terceroIni = m.sitio;
+
+		l.aristaDer = e;
+
+		invalidar(l);
+		invalidar(r);
+
+		suprimir(m);
+
+		comprobarCirculo(l);
+		comprobarCirculo(r);
+	}
+
+	private Arista nuevaArista(int izq, int der) {
+
+		Arista e = new Arista(izq, der);
+		abiertas.add(e);
+		return e;
+	}
+
+	private void terminar(Arista e, long[] v, int tercero) {
+
+		e.fin = v;
+		e.terceroFin = tercero;
+
+		if (e.gemela == null) {
+
+			e.terminada = true;
+			terminadas.add(e);
+
+		} else if (e.gemela.fin != null) {
+
+			// se da una sola vez, desde la primera de las dos
+
+			e.terminada = e.gemela.terminada = true;
+			terminadas.add(e.primera ? e : e.gemela);
+		}
+	}
+
+	/* ------------------------------------------------------------------- */
+	/* S U C E S O S de circulo */
+	/* ------------------------------------------------------------------- */
+
+	// el arco m desaparece si los puntos de ruptura de sus lados convergen, lo
+	// que ocurre si su sitio y los de sus vecinos forman un giro a la izquierda
+
+	private void comprobarCirculo(Arco m) {
+
+		Arco l = m.prev;
+		Arco r = m.next;
+
+		if (l == null || r == null || l.sitio == r.sitio)
+			return;
+
+		int a = l.sitio, b = m.sitio, c = r.sitio;
+
+		if (GC.area2(x[a], y[a], x[b], y[b], x[c], y[c]) <= 0)
+			return;
+
+		// circuncentro en coma flotante, trasladado a a
+
+		double bx = x[b] - x[a], by = y[b] - y[a];
+		double cx = x[c] - x[a], cy = y[c] - y[a];
+
+		double d = 2 * (bx * cy - by * cx);
+		double b2 = bx * bx + by * by;
+		double c2 = cx * cx + cy * cy;
+
+		double ux = (cy * b2 - by * c2) / d;
+		double uy = (bx * c2 - cx * b2) / d;
+
+		Suceso s = new Suceso();
+		s.x = x[a] + ux;
+		s.y = y[a] + uy + Math.sqrt(ux * ux + uy * uy);
+		s.arco = m;
+		s.valido = true;
+
+		m.circulo = s;
+		sucesos.add(s);
+	}
+
+	private void invalidar(Arco m) {
+
+		if (m.circulo != null) {
+			m.circulo.valido = false;
+			m.circulo = null;
+		}
+	}
+
+	/* ------------------------------------------------------------------- */
+	/* L I N E A de playa */
+	/* ------------------------------------------------------------------- */
+
+	// abscisa del punto de ruptura entre el arco del sitio p, a la izquierda,
+	// y el del sitio q, a la derecha, con la recta de barrido en la ordenada l
+
+	private double ruptura(int p, int q, double l) {
+
+		double px = x[p], py = y[p];
+		double qx = x[q], qy = y[q];
+
+		if (py == qy)
+			return (px + qx) / 2;
+		if (py == l)
+			return px;
+		if (qy == l)
+			return qx;
+
+		double dp = 1 / (2 * (py - l));
+		double dq = 1 / (2 * (qy - l));
+
+		double a = dp - dq;
+		double b = 2 * (qx * dq - px * dp);
+		double c = (px * px + py * py - l * l) * dp - (qx * qx + qy * qy - l * l) * dq;
+
+		// de las dos raices, aquella en la que p deja de estar por encima de q
+
+		return (-b - Math.sqrt(Math.max(b * b - 4 * a * c, 0))) / (2 * a);
+	}
+
+	private Arco localizar(double px, double l) {
+
+		Arco a = raiz;
+
+		while (true) {
+
+			if (a.prev != null && a.izq != null && px < ruptura(a.prev.sitio, a.sitio, l)) {
+				a = a.izq;
+			} else if (a.next != null && a.der != null && px > ruptura(a.sitio, a.next.sitio, l)) {
+				a = a.der;
+			} else {
+				return a;
+			}
+		}
+	}
+
+	// insercion en el treap como sucesor inmediato de a en el orden de la
+	// linea de playa
+
+	private void insertarDespues(Arco a, Arco nuevo) {
+
+		nuevo.prev = a;
+		nuevo.next = a.next;
+		if (a.next != null)
+			a.next.prev = nuevo;
+		a.next = nuevo;
+
+		if (a.der == null) {
+			a.der = nuevo;
+			nuevo.padre = a;
+		} else {
+			Arco n = a.der;
+			while (n.izq != null)
+				n = n.izq;
+			n.izq = nuevo;
+			nuevo.padre = n;
+		}
+
+		while (nuevo.padre != null && nuevo.padre.prioridad > nuevo.prioridad)
+			subir(nuevo);
+	}
+
+	private void suprimir(Arco m) {
+
+		if (m.prev != null)
+			m.prev.next = m.next;
+		if (m.next != null)
+			m.next.prev = m.prev;
+
+		// bajar m hasta que sea una hoja
+
+		while (m.izq != null || m.der != null) {
+
+			if (m.der == null || (m.izq != null && m.izq.prioridad < m.der.prioridad))
+				subir(m.izq);
+			else
+				subir(m.der);
+		}
+
+		if (m.padre == null)
+			raiz = null;
+		else if (m.padre.izq == m)
+			m.padre.izq = null;
+		else
+			m.padre.der = null;
+	}
+
+	// rotacion que sube n por encima de su padre
+
+	private void subir(Arco n) {
+
+		Arco p = n.padre;
+		Arco g = p.padre;
+
+		if (p.izq == n) {
+			p.izq = n.der;
+			if (n.der != null)
+				n.der.padre = p;
+			n.der = p;
+		} else {
+			p.der = n.izq;
+			if (n.izq != null)
+				n.izq.padre = p;
+			n.izq = p;
+		}
+
+		p.padre = n;
+		n.padre = g;
+
+		if (g == null)
+			raiz = n;
+		else if (g.izq == p)
+			g.izq = n;
+		else
+			g.der = n;
+	}
+
+	/* ------------------------------------------------------------------- */
+	/* C L A S E S auxiliares */
+	/* ------------------------------------------------------------------- */
+
+	private static class Arco implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private int sitio;
+		private int prioridad;
+
+		private Arco prev, next; // vecinos en la linea de playa
+		private Arco izq, der, padre; // treap
+
+		private Suceso circulo;
+
+		private Arista aristaDer; // la del punto de ruptura con next
+
+		private Arco(int sitio, int prioridad) {
+			this.sitio = sitio;
+			this.prioridad = prioridad;
+		}
+	}
+
+	private static class Suceso implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private double x, y;
+		private Arco arco;
+		private boolean valido;
+	}
+
+	// arista de Voronoi entre los sitios izq y der. Las que nacen al partir un
+	// arco van por parejas (gemela) y cada una solo conoce su vertice final
+
+	private static class Arista implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private int izq, der;
+
+		private long[] ini, fin;
+		private int terceroIni, terceroFin;
+
+		private Arista gemela;
+		private boolean primera;
+		private boolean terminada;
+
+		private Arista(int izq, int der) {
+			this.izq = izq;
+			this.der = der;
+		}
+	}
+
+}
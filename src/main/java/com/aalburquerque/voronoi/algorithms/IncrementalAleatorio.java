@@ -0,0 +1,642 @@
+/*
+  This file is part of com.aalburquerque.voronoi API.
+
+    com.aalburquerque.voronoi API is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    com.aalburquerque.voronoi API is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with com.aalburquerque.voronoi API.  If not, see <http://www.gnu.org/licenses/>
+*/
+
+package com.aalburquerque.voronoi.algorithms;
+
+import java.io.Serializable;
+import java.util.Random;
+
+import com.aalburquerque.voronoi.struc.impl.DCEL;
+import com.aalburquerque.voronoi.struc.impl.DCELCompacta;
+import com.aalburquerque.voronoi.struc.impl.NodoArista;
+import com.aalburquerque.voronoi.struc.impl.Punto3d;
+import com.aalburquerque.voronoi.struc.impl.Triangulo3d;
+import com.aalburquerque.voronoi.struc.impl.Vertice3d;
+import com.aalburquerque.voronoi.util.GC;
+
+/**
+ * <p>
+ * Esta clase representa el proceso de calculo del cierre convexo de puntos en
+ * el espacio mediante un algoritmo incremental aleatorizado. Los puntos se
+ * insertan en un orden aleatorio y se mantiene un grafo de conflictos entre
+ * puntos pendientes y caras: cada cara conoce los puntos que la ven y cada
+ * punto conoce las caras que ve. Asi, al insertar un punto solo se recorren
+ * las caras visibles desde el y no todas las del poliedro como en
+ * {@link Incremental}. Tiene complejidad esperada en el tiempo de ejecucion
+ * del orden de O(n log n)
+ * <p>
+ * Durante el calculo el poliedro se guarda en arrays de enteros (vertices y
+ * caras vecinas de cada triangulo) y solo al final se vuelca a la DCEL.
+ *
+ * @author Antonio Alburquerque Oliva
+ * @version 1.00
+ * @see Incremental
+ * @see DCEL
+ */
+
+public class IncrementalAleatorio implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Semilla del generador con el que se baraja el orden de insercion. Es
+	 * fija para que el resultado sea reproducible
+	 */
+
+	public static final long SEMILLA = 1L;
+
+	private DCEL dcel;
+
+	private Punto3d[] puntos;
+
+	// orden aleatorio de insercion: indices sobre puntos[]
+
+	private int[] orden;
+
+	// caras: tres vertices (indices sobre puntos[]) en orden CCW visto desde el
+	// exterior y la cara vecina por cada arista. La arista k de la cara f va
+	// de vert[3f+k] a vert[3f+(k+1)%3]
+
+	private int[] vert;
+	private int[] vecina;
+	private boolean[] viva;
+	private int totalCaras;
+
+	// grafo de conflictos
+
+	private ListaEnteros[] conflictosCara; // puntos que ven cada cara
+	private ListaEnteros[] conflictosPunto; // caras que ve cada punto
+
+	// marcas por paso para no usar conjuntos
+
+	private int[] marcaCara; // cara visible desde el punto del paso
+	private int[] marcaPunto; // punto ya candidato en la cara nueva
+	private int[] nuevaDesde; // cara nueva cuya arista del horizonte sale de
+								// este vertice
+	private boolean[] insertado;
+
+	/**
+	 *
+	 * Construir un nuevo proceso que resuelve incrementalmente, con orden de
+	 * insercion aleatorio, el problema de encontrar el cierre convexo de un
+	 * conjunto de puntos en el espacio.
+	 *
+	 * @param dcel
+	 *            Estructura que esta vacia previamente al proceso y que va a
+	 *            contener el resultado de este proceso.
+	 * @param puntos
+	 *            Array con los puntos de los que se quiere hallar el cierre
+	 *            convexo.
+	 *
+	 */
+
+	public IncrementalAleatorio(DCEL dcel, Punto3d[] puntos) {
+
+		this(puntos);
+
+		this.dcel = dcel;
+
+		volcar();
+	}
+
+	/**
+	 *
+	 * Construir un nuevo proceso que calcula el cierre convexo en los arrays
+	 * de enteros sin volcarlo a ninguna DCEL. El resultado se obtiene despues
+	 * con compacta()
+	 *
+	 * @param puntos
+	 *            Array con los puntos de los que se quiere hallar el cierre
+	 *            convexo.
+	 *
+	 */
+
+	public IncrementalAleatorio(Punto3d[] puntos) {
+
+		this.puntos = puntos;
+
+		int n = puntos.length;
+
+		int capacidad = 8 * n + 8;
+
+		vert = new int[3 * capacidad];
+		vecina = new int[3 * capacidad];
+		viva = new boolean[capacidad];
+		conflictosCara = new ListaEnteros[capacidad];
+		marcaCara = new int[capacidad];
+
+		conflictosPunto = new ListaEnteros[n];
+		marcaPunto = new int[n];
+		nuevaDesde = new int[n];
+		insertado = new boolean[n];
+
+		barajar();
+
+		// busca cuatro puntos no coplanares y los coloca al principio del orden
+
+		organiza();
+
+		tetraedro();
+
+		for (int i = 4; i < n; i++)
+			unoMas(orden[i]);
+
+		// el grafo de conflictos ya no hace falta
+
+		conflictosCara = null;
+		conflictosPunto = null;
+	}
+
+	/**
+	 * Devuelve el cierre convexo calculado como DCELCompacta, con los vertices
+	 * y las caras vivas renumerados de forma consecutiva
+	 */
+
+	public DCELCompacta compacta() {
+
+		int[] indiceVertice = new int[puntos.length];
+		int[] indiceCara = new int[totalCaras];
+
+		java.util.Arrays.fill(indiceVertice, -1);
+
+		int vertices = 0, caras = 0;
+
+		for (int f = 0; f < totalCaras; f++) {
+
+			if (!viva[f])
+				continue;
+
+			indiceCara[f] = caras++;
+
+			for (int e = 0; e < 3; e++)
+				if (indiceVertice[vert[3 * f + e]] == -1)
+					indiceVertice[vert[3 * f + e]] = vertices++;
+		}
+
+		long[] x = new long[vertices];
+		long[] y = new long[vertices];
+		long[] z = new long[vertices];
+
+		for (int p = 0; p < puntos.length; p++) {
+
+			int v = indiceVertice[p];
+
+			if (v != -1) {
+				x[v] = puntos[p].x();
+				y[v] = puntos[p].y();
+				z[v] = puntos[p].z();
+			}
+		}
+
+		int[] origen = new int[3 * caras];
+		int[] gemela = new int[3 * caras];
+
+		for (int f = 0; f < totalCaras; f++) {
+
+			if (!viva[f])
+				continue;
+
+			int k = indiceCara[f];
+
+			for (int e = 0; e < 3; e++) {
+
+				int g = vecina[3 * f + e];
+
+				origen[3 * k + e] = indiceVertice[vert[3 * f + e]];
+				gemela[3 * k + e] = 3 * indiceCara[g] + aristaHacia(g, f);
+			}
+		}
+
+		return new DCELCompacta(x, y, z, origen, gemela, caras);
+	}
+
+	private void barajar() {
+
+		Random azar = new Random(SEMILLA);
+
+		orden = new int[puntos.length];
+
+		for (int i = 0; i < orden.length; i++)
+			orden[i] = i;
+
+		for (int i = orden.length - 1; i > 0; i--)
+			swap(i, azar.nextInt(i + 1));
+	}
+
+	private void swap(int i1, int i2) {
+
+		int temp = orden[i1];
+		orden[i1] = orden[i2];
+		orden[i2] = temp;
+	}
+
+	// a diferencia de Input.cuatroGeneral esta busqueda es lineal: el segundo
+	// punto es el primero distinto del primero, el tercero el primero no
+	// alineado con ambos y el cuarto el primero no coplanar con los tres
+
+	private void organiza() {
+
+		int n = orden.length;
+		int i1, i2, i3;
+
+		Punto3d a = puntos[orden[0]];
+
+		for (i1 = 1; i1 < n && puntos[orden[i1]].igual(a); i1++)
+			;
+
+		if (i1 == n)
+			throw new RuntimeException("Error de prueba: no hay cuatro en posicion general en todo el array");
+
+		swap(1, i1);
+
+		Punto3d b = puntos[orden[1]];
+
+		for (i2 = 2; i2 < n && GC.alineados(a, b, puntos[orden[i2]]); i2++)
+			;
+
+		if (i2 == n)
+			throw new RuntimeException("Error de prueba: no hay cuatro en posicion general en todo el array");
+
+		swap(2, i2);
+
+		Punto3d c = puntos[orden[2]];
+
+		for (i3 = 3; i3 < n && GC.volumen6(a, b, c, puntos[orden[i3]]) == 0; i3++)
+			;
+
+		if (i3 == n)
+			throw new RuntimeException("Error de prueba: no hay cuatro en posicion general en todo el array");
+
+		swap(3, i3);
+	}
+
+	private void tetraedro() {
+
+		int a = orden[0];
+		int b = orden[1];
+		int c = orden[2];
+		int d = orden[3];
+
+		// igual que en Incremental: si d ve la cara a,b,c se cambia su
+		// orientacion
+
+		if (GC.volumen6(puntos[a], puntos[b], puntos[c], puntos[d]) < 0) {
+
+			int temp = b;
+			b = c;
+			c = temp;
+		}
+
+		int f0 = nuevaCara(a, b, c);
+		int f1 = nuevaCara(a, c, d);
+		int f2 = nuevaCara(b, a, d);
+		int f3 = nuevaCara(c, b, d);
+
+		// vecinas por arista, en el orden de los vertices de cada cara
+
+		enlazar(f0, f1, f2, f3);
+		enlazar(f1, f0, f3, f2);
+		enlazar(f2, f0, f1, f3);
+		enlazar(f3, f0, f2, f1);
+
+		for (int i = 0; i < 4; i++)
+			insertado[orden[i]] = true;
+
+		// conflictos iniciales: cada punto pendiente contra las cuatro caras
+
+		for (int i = 4; i < orden.length; i++)
+			for (int f = f0; f <= f3; f++)
+				if (ve(f, orden[i]))
+					conflicto(f, orden[i]);
+	}
+
+	// tetraedro a,b,c,d: la arista a-b de (a,b,c) linda con (b,a,d), b-c con
+	// (c,b,d) y c-a con (a,c,d). Para no repetir ese razonamiento cara a cara
+	// se busca, de las otras tres, la que comparte cada arista
+
+	private void enlazar(int f, int g, int h, int k) {
+
+		for (int e = 0; e < 3; e++) {
+
+			int u = vert[3 * f + e];
+			int v = vert[3 * f + (e + 1) % 3];
+
+			if (tieneArista(g, v, u))
+				vecina[3 * f + e] = g;
+			else if (tieneArista(h, v, u))
+				vecina[3 * f + e] = h;
+			else
+				vecina[3 * f + e] = k;
+		}
+	}
+
+	private boolean tieneArista(int f, int u, int v) {
+
+		for (int e = 0; e < 3; e++)
+			if (vert[3 * f + e] == u && vert[3 * f + (e + 1) % 3] == v)
+				return true;
+		return false;
+	}
+
+	private int nuevaCara(int a, int b, int c) {
+
+		if (totalCaras == viva.length)
+			crecer();
+
+		int f = totalCaras++;
+
+		vert[3 * f] = a;
+		vert[3 * f + 1] = b;
+		vert[3 * f + 2] = c;
+		viva[f] = true;
+		marcaCara[f] = -1;
+
+		return f;
+	}
+
+	private void crecer() {
+
+		int capacidad = 2 * viva.length;
+
+		vert = copia(vert, 3 * capacidad);
+		vecina = copia(vecina, 3 * capacidad);
+		marcaCara = copia(marcaCara, capacidad);
+
+		boolean[] v = new boolean[capacidad];
+		System.arraycopy(viva, 0, v, 0, viva.length);
+		viva = v;
+
+		ListaEnteros[] l = new ListaEnteros[capacidad];
+		System.arraycopy(conflictosCara, 0, l, 0, conflictosCara.length);
+		conflictosCara = l;
+	}
+
+	private static int[] copia(int[] a, int longitud) {
+
+		int[] b = new int[longitud];
+		System.arraycopy(a, 0, b, 0, a.length);
+		return b;
+	}
+
+	private boolean ve(int f, int p) {
+
+		Punto3d a = puntos[vert[3 * f]];
+		Punto3d b = puntos[vert[3 * f + 1]];
+		Punto3d c = puntos[vert[3 * f + 2]];
+		Punto3d d = puntos[p];
+
+		return GC.volumen6(a.x(), a.y(), a.z(), b.x(), b.y(), b.z(), c.x(), c.y(), c.z(), d.x(), d.y(), d.z()) < 0;
+	}
+
+	private void conflicto(int f, int p) {
+
+		if (conflictosCara[f] == null)
+			conflictosCara[f] = new ListaEnteros();
+		if (conflictosPunto[p] == null)
+			conflictosPunto[p] = new ListaEnteros();
+
+		conflictosCara[f].add(p);
+		conflictosPunto[p].add(f);
+	}
+
+	/* ------------------------------------------------------------------- */
+	/*
+	 * M E T O D O unoMas /*
+	 * -------------------------------------------------------------------
+	 */
+
+	// A este poliedro convexo le a�ade el punto de indice p
+
+	private void unoMas(int p) {
+
+		insertado[p] = true;
+
+		ListaEnteros visibles = conflictosPunto[p];
+		conflictosPunto[p] = null;
+
+		if (visibles == null)
+			return; // ninguna cara visible desde p: esta en el interior
+
+		// las caras de la lista que ya no existen se descartan aqui (borrado
+		// perezoso: al morir una cara no se recorren los puntos que la veian)
+
+		int totalVisibles = 0;
+
+		for (int i = 0; i < visibles.total; i++) {
+
+			int f = visibles.datos[i];
+
+			if (viva[f]) {
+				marcaCara[f] = p;
+				visibles.datos[totalVisibles++] = f;
+			}
+		}
+
+		if (totalVisibles == 0)
+			return;
+
+		// una cara nueva por cada arista del horizonte: la arista u->v de una
+		// cara visible f cuya vecina g no es visible. La nueva cara u,v,p
+		// conserva la orientacion de f
+
+		int primeraNueva = totalCaras;
+
+		for (int i = 0; i < totalVisibles; i++) {
+
+			int f = visibles.datos[i];
+
+			for (int e = 0; e < 3; e++) {
+
+				int g = vecina[3 * f + e];
+
+				if (marcaCara[g] == p)
+					continue;
+
+				int u = vert[3 * f + e];
+				int v = vert[3 * f + (e + 1) % 3];
+
+				int nueva = nuevaCara(u, v, p);
+
+				vecina[3 * nueva] = g;
+				vecina[3 * g + aristaHacia(g, f)] = nueva;
+
+				nuevaDesde[u] = nueva;
+
+				conflictosNueva(nueva, f, g, p);
+			}
+		}
+
+		// coser las caras nuevas entre si alrededor de p: la arista v->p de
+		// u,v,p linda con la arista p->v de la cara nueva que sale de v
+
+		for (int nueva = primeraNueva; nueva < totalCaras; nueva++) {
+
+			int siguiente = nuevaDesde[vert[3 * nueva + 1]];
+
+			vecina[3 * nueva + 1] = siguiente;
+			vecina[3 * siguiente + 2] = nueva;
+		}
+
+		// las caras visibles mueren y con ellas sus listas de conflictos
+
+		for (int i = 0; i < totalVisibles; i++) {
+
+			int f = visibles.datos[i];
+
+			viva[f] = false;
+			conflictosCara[f] = null;
+		}
+	}
+
+	private int aristaHacia(int g, int f) {
+
+		if (vecina[3 * g] == f)
+			return 0;
+		if (vecina[3 * g + 1] == f)
+			return 1;
+		return 2;
+	}
+
+	// un punto que ve la cara nueva tuvo que ver alguna de las dos caras que
+	// compartian la arista del horizonte, asi que solo se prueban esos
+
+	private void conflictosNueva(int nueva, int f, int g, int p) {
+
+		candidatos(nueva, conflictosCara[f], p);
+		candidatos(nueva, conflictosCara[g], p);
+	}
+
+	private void candidatos(int nueva, ListaEnteros lista, int p) {
+
+		if (lista == null)
+			return;
+
+		for (int i = 0; i < lista.total; i++) {
+
+			int q = lista.datos[i];
+
+			if (insertado[q] || marcaPunto[q] == nueva + 1)
+				continue;
+
+			marcaPunto[q] = nueva + 1;
+
+			if (ve(nueva, q))
+				conflicto(nueva, q);
+		}
+	}
+
+	/* ------------------------------------------------------------------- */
+	/* M E T O D O volcar */
+	/* ------------------------------------------------------------------- */
+
+	// pasa las caras vivas a la DCEL con el mismo convenio que Incremental:
+	// f0 es la cara que contiene ori->des en orden CCW, e0 la arista anterior
+	// a ori->des en f0 y e1 la anterior a des->ori en f1
+
+	private void volcar() {
+
+		Vertice3d[] vertice = new Vertice3d[puntos.length];
+		Triangulo3d[] cara = new Triangulo3d[totalCaras];
+		NodoArista[] arista = new NodoArista[3 * totalCaras];
+
+		for (int f = 0; f < totalCaras; f++) {
+
+			if (!viva[f])
+				continue;
+
+			for (int e = 0; e < 3; e++) {
+
+				int p = vert[3 * f + e];
+
+				if (vertice[p] == null) {
+					vertice[p] = new Vertice3d(puntos[p]);
+					dcel.insertar(vertice[p]);
+				}
+			}
+
+			cara[f] = new Triangulo3d(vertice[vert[3 * f]], vertice[vert[3 * f + 1]], vertice[vert[3 * f + 2]]);
+		}
+
+		for (int f = 0; f < totalCaras; f++) {
+
+			if (!viva[f])
+				continue;
+
+			for (int e = 0; e < 3; e++) {
+
+				if (arista[3 * f + e] != null)
+					continue;
+
+				int g = vecina[3 * f + e];
+
+				NodoArista n = new NodoArista(vertice[vert[3 * f + e]], vertice[vert[3 * f + (e + 1) % 3]],
+						cara[f], cara[g]);
+
+				arista[3 * f + e] = n;
+				arista[3 * g + aristaHacia(g, f)] = n;
+			}
+		}
+
+		for (int f = 0; f < totalCaras; f++) {
+
+			if (!viva[f])
+				continue;
+
+			for (int e = 0; e < 3; e++) {
+
+				NodoArista n = arista[3 * f + e];
+
+				// cada arista se completa desde su cara izquierda
+
+				if (n.caraIzq() != cara[f])
+					continue;
+
+				int g = vecina[3 * f + e];
+
+				n.asignaCCW(arista[3 * f + (e + 2) % 3], arista[3 * g + (aristaHacia(g, f) + 2) % 3]);
+
+				n.ori().asignaArista(n);
+				n.des().asignaArista(n);
+
+				dcel.insertar(n);
+			}
+
+			cara[f].asignaArista(arista[3 * f]);
+
+			dcel.insertar(cara[f]);
+		}
+	}
+
+	// lista de enteros que crece por duplicacion, para no tener que envolver
+	// los indices en objetos
+
+	private static class ListaEnteros implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private int[] datos = new int[4];
+		private int total;
+
+		private void add(int i) {
+
+			if (total == datos.length)
+				datos = copia(datos, 2 * total);
+			datos[total++] = i;
+		}
+	}
+
+}
@@ -0,0 +1,286 @@
+/*
+  This file is part of com.aalburquerque.voronoi API.
+
+    com.aalburquerque.voronoi API is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    com.aalburquerque.voronoi API is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with com.aalburquerque.voronoi API.  If not, see <http://www.gnu.org/licenses/>
+*/
+
+package com.aalburquerque.voronoi.algorithms;
+
+import java.util.HashSet;
+
+import com.aalburquerque.voronoi.struc.impl.DCEL;
+import com.aalburquerque.voronoi.struc.impl.InstanciaVoronoi;
+import com.aalburquerque.voronoi.struc.impl.Poliedro;
+import com.aalburquerque.voronoi.struc.impl.Punto3d;
+import com.aalburquerque.voronoi.util.Input;
+import com.aalburquerque.voronoi.util.Util;
+
+/**
+ * <p>
+ * Esta clase elige el proceso con el que se calcula una instancia de problema
+ * cuando se pide InstanciaVoronoi.METODO_AUTOMATICO. Cada proceso tiene un
+ * modelo de coste, a n^2 para el incremental y b n log n para divide y
+ * venceras y para la triangulacion en el plano, cuyos coeficientes se miden
+ * con una pequena prueba la primera vez que se piden. El servicio los pide
+ * al arrancar, para que esa prueba no la pague la primera peticion. De ellos
+ * sale tambien el tamano del caso base de divide y venceras, que es el
+ * numero de puntos a partir del cual dividir sale mas barato que el
+ * incremental.
+ * <p>
+ * Ademas del numero de sitios se tienen en cuenta su dispersion y su
+ * degeneracion. Los procesos en el espacio elevan las coordenadas al
+ * paraboloide, asi que solo se eligen si las coordenadas caben en
+ * LIMITE_ESPACIO. Y divide y venceras no se elige si muchos sitios comparten
+ * abscisa u ordenada, porque entonces hay muchos cocirculares, la mezcla
+ * suele fallar y el calculo se repetiria por el incremental aleatorio.
+ *
+ * @author Antonio Alburquerque Oliva
+ * @version 1.00
+ * @see InstanciaVoronoi
+ */
+
+public class SelectorMetodo {
+
+	/**
+	 * Mayor valor absoluto de una coordenada con el que el punto elevado al
+	 * paraboloide y la normal de las caras en z caben en un long. Dentro de el
+	 * los predicados de GC son exactos
+	 */
+
+	public static final long LIMITE_ESPACIO = 1L << 29;
+
+	/**
+	 * Proporcion de sitios repetidos en abscisa u ordenada a partir de la cual
+	 * no se elige divide y venceras
+	 */
+
+	public static final double DEGENERACION_MAXIMA = 0.75;
+
+	private static final int MUESTRA = 512;
+
+	private static final int PUNTOS_INCREMENTAL = 96;
+	private static final int PUNTOS_DIVIDE = 1024;
+	private static final long LADO_PRUEBA = 1L << 12;
+	private static final int REPETICIONES = 3;
+
+	// tamano base con el que se calculaba antes de calibrar, y el que se usa
+	// si la calibracion no consigue medir
+
+	private static final int TAM_BASE_FIJO = 30;
+
+	// coeficientes del modelo de coste, en nanosegundos
+
+	private double costeIncremental;
+	private double costeDivide;
+	private double costePlano;
+
+	private int tamBase;
+
+	/**
+	 * Construir un selector con los coeficientes de coste dados. El tamano del
+	 * caso base se deduce de los dos primeros
+	 *
+	 * @param costeIncremental
+	 *            Coeficiente a del coste a n^2 del incremental
+	 * @param costeDivide
+	 *            Coeficiente b del coste b n log n de divide y venceras
+	 * @param costePlano
+	 *            Coeficiente c del coste c n log n de la triangulacion en el
+	 *            plano
+	 */
+
+	public SelectorMetodo(double costeIncremental, double costeDivide, double costePlano) {
+		this(costeIncremental, costeDivide, costePlano, cruce(costeIncremental, costeDivide));
+	}
+
+	private SelectorMetodo(double costeIncremental, double costeDivide, double costePlano, int tamBase) {
+
+		this.costeIncremental = costeIncremental;
+		this.costeDivide = costeDivide;
+		this.costePlano = costePlano;
+		this.tamBase = tamBase;
+	}
+
+	// primer tamano en el que el incremental deja de ser el mas barato
+
+	private static int cruce(double costeIncremental, double costeDivide) {
+
+		int n = 8;
+		while (n < 512 && costeIncremental * n * n < costeDivide * n * log2(n))
+			n++;
+
+		return n;
+	}
+
+	/**
+	 * Devuelve el selector sin calibrar, que hace lo que se hacia antes de
+	 * calibrar: divide y venceras con el tamano base fijo, salvo que los
+	 * sitios no quepan en el espacio o esten degenerados
+	 */
+
+	public static SelectorMetodo porDefecto() {
+
+		// divide y venceras siempre por debajo de los otros dos modelos
+		return new SelectorMetodo(1, 1, 2, TAM_BASE_FIJO);
+	}
+
+	/**
+	 * Devuelve el selector compartido, midiendo sus coeficientes la primera
+	 * vez. Despues no se bloquea
+	 */
+
+	public static SelectorMetodo calibrado() {
+		return Calibrado.SELECTOR;
+	}
+
+	// el selector calibrado se comparte y no cambia una vez construido. La
+	// carga de esta clase, que hace la JVM una sola vez, lo calibra
+
+	private static class Calibrado {
+		static final SelectorMetodo SELECTOR = calibrar();
+	}
+
+	private static SelectorMetodo calibrar() {
+
+		Punto3d[] pocos = Input.libreVoronoi(PUNTOS_INCREMENTAL, LADO_PRUEBA, LADO_PRUEBA);
+		Punto3d[] muchos = Input.libreVoronoi(PUNTOS_DIVIDE, LADO_PRUEBA, LADO_PRUEBA);
+
+		long[] x = new long[muchos.length];
+		long[] y = new long[muchos.length];
+
+		for (int i = 0; i < muchos.length; i++) {
+			x[i] = muchos[i].x();
+			y[i] = muchos[i].y();
+		}
+
+		long incremental = Long.MAX_VALUE, divide = Long.MAX_VALUE, plano = Long.MAX_VALUE;
+
+		// la primera vuelta tambien sirve de calentamiento
+
+		for (int r = 0; r <= REPETICIONES; r++) {
+
+			long t0 = System.nanoTime();
+			new Poliedro(pocos, DCEL.METODO_INCREMENTAL, PUNTOS_INCREMENTAL);
+			long t1 = System.nanoTime();
+
+			try {
+				new Poliedro(muchos, DivideYvenceras.COTA);
+			} catch (RuntimeException ex) {
+				continue; // se descarta la vuelta
+			}
+			long t2 = System.nanoTime();
+
+			new DelaunayPlano(x, y);
+			long t3 = System.nanoTime();
+
+			if (r > 0) {
+				incremental = Math.min(incremental, t1 - t0);
+				divide = Math.min(divide, t2 - t1);
+				plano = Math.min(plano, t3 - t2);
+			}
+		}
+
+		// si ninguna vuelta ha terminado no hay medidas: sin ellas los costes
+		// quedarian en Long.MAX_VALUE y la eleccion dependeria del orden de
+		// las comparaciones
+
+		if (incremental == Long.MAX_VALUE || divide == Long.MAX_VALUE || plano == Long.MAX_VALUE) {
+			Util.msgLog("LOGEXCEPTION",
+					"Excepcion en clase SelectorMetodo: NO SE CONSIGUIO CALIBRAR EL MODELO DE COSTE Y SE "
+							+ "USA DIVIDEYVENCERAS CON EL TAMANO BASE FIJO\n");
+			return porDefecto();
+		}
+
+		double nlogn = PUNTOS_DIVIDE * log2(PUNTOS_DIVIDE);
+
+		return new SelectorMetodo((double) incremental / ((double) PUNTOS_INCREMENTAL * PUNTOS_INCREMENTAL),
+				divide / nlogn, plano / nlogn);
+	}
+
+	/**
+	 * Devuelve el proceso de menor coste previsto para los sitios cuyas
+	 * coordenadas se pasan como parametro: DCEL.METODO_INCREMENTAL,
+	 * DCEL.METODO_DIVIDE_Y_VENCERAS o InstanciaVoronoi.METODO_PLANO
+	 */
+
+	public int elegir(long[] x, long[] y) {
+
+		int n = x.length;
+
+		// el cierre en el espacio necesita al menos 4 puntos
+
+		if (n < 4)
+			return InstanciaVoronoi.METODO_PLANO;
+
+		int metodo = InstanciaVoronoi.METODO_PLANO;
+		double coste = costePlano * n * log2(n);
+
+		if (!cabeEnEspacio(x, y))
+			return metodo;
+
+		if (costeIncremental * n * n < coste) {
+			metodo = DCEL.METODO_INCREMENTAL;
+			coste = costeIncremental * n * n;
+		}
+
+		if (degeneracion(x, y) < DEGENERACION_MAXIMA && costeDivide * n * log2(n) < coste)
+			metodo = DCEL.METODO_DIVIDE_Y_VENCERAS;
+
+		return metodo;
+	}
+
+	/**
+	 * Devuelve el tamano del caso base de divide y venceras que corresponde a
+	 * los coeficientes de este selector
+	 */
+
+	public int tamBase() {
+		return tamBase;
+	}
+
+	static boolean cabeEnEspacio(long[] x, long[] y) {
+
+		for (int i = 0; i < x.length; i++)
+			if (Math.abs(x[i]) > LIMITE_ESPACIO || Math.abs(y[i]) > LIMITE_ESPACIO)
+				return false;
+
+		return true;
+	}
+
+	// proporcion de abscisas u ordenadas repetidas en una muestra de los
+	// sitios tomada a saltos regulares
+
+	static double degeneracion(long[] x, long[] y) {
+
+		int salto = Math.max(1, x.length / MUESTRA);
+
+		HashSet<Long> abscisas = new HashSet<Long>();
+		HashSet<Long> ordenadas = new HashSet<Long>();
+
+		int total = 0;
+
+		for (int i = 0; i < x.length; i += salto) {
+			abscisas.add(x[i]);
+			ordenadas.add(y[i]);
+			total++;
+		}
+
+		return 1.0 - (double) Math.min(abscisas.size(), ordenadas.size()) / total;
+	}
+
+	private static double log2(double n) {
+		return Math.log(n) / Math.log(2);
+	}
+
+}
@@ -0,0 +1,401 @@
+/*
+  This file is part of com.aalburquerque.voronoi API.
+
+    com.aalburquerque.voronoi API is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    com.aalburquerque.voronoi API is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with com.aalburquerque.voronoi API.  If not, see <http://www.gnu.org/licenses/>
+*/
+
+package com.aalburquerque.voronoi.service;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import com.aalburquerque.voronoi.struc.impl.CacheOutput;
+import com.aalburquerque.voronoi.struc.impl.InformeCalculo;
+import com.aalburquerque.voronoi.struc.impl.VoronoiOutput;
+import com.aalburquerque.voronoi.util.Marco;
+
+/**
+ * <p>
+ * Cache de diagramas ya calculados, para los clientes que repiten la misma
+ * peticion. La clave de un diagrama es el resumen SHA-256 de sus sitios
+ * ordenados y del marco, asi que no depende del orden en que llegan los
+ * sitios ni del formato del texto. Ademas se recuerda el resumen del cuerpo
+ * tal como llego, que se calcula mientras se lee: si se repite exactamente,
+ * el diagrama se encuentra sin ordenar ni resumir los sitios. Cada diagrama
+ * recuerda los ultimos cuerpos distintos con los que se ha pedido, hasta
+ * CUERPOS_POR_ENTRADA, y los olvida cuando se expulsa.
+ * <p>
+ * Se expulsan los diagramas usados hace mas tiempo (LRU) cuando se pasa del
+ * numero maximo de entradas o del peso maximo, que es una estimacion de la
+ * memoria que ocupan sus lineas. Cada acierto devuelve un VoronoiOutput
+ * nuevo con su propia copia del informe, marcado como deCache; la lista de
+ * lineas se comparte entre peticiones y es de solo lectura
+ * 
+ * @author Antonio Alburquerque Oliva
+ * @version 1.00
+ */
+
+public class CacheVoronoi {
+
+	// bytes que se estiman por cada Line guardada, con su referencia en la
+	// lista, y por cada entrada
+
+	private static final long PESO_LINEA = 40;
+	private static final long PESO_ENTRADA = 200;
+
+	// cuerpos que se recuerdan por cada diagrama
+
+	private static final int CUERPOS_POR_ENTRADA = 4;
+
+	private final int maximo;
+	private final long pesoMaximo;
+
+	private final LinkedHashMap<Clave, Entrada> diagramas = new LinkedHashMap<Clave, Entrada>(16, 0.75f, true);
+
+	// de cada cuerpo recordado, la entrada de su diagrama
+
+	private final HashMap<Clave, Entrada> cuerpos = new HashMap<Clave, Entrada>();
+
+	private long peso;
+	private long aciertos, aciertosCuerpo, fallos, expulsiones;
+
+	/**
+	 * Construir una cache vacia
+	 * 
+	 * @param maximo
+	 *            Numero maximo de diagramas guardados
+	 * @param pesoMaximo
+	 *            Bytes que pueden ocupar, aproximadamente, los diagramas
+	 *            guardados
+	 */
+
+	public CacheVoronoi(int maximo, long pesoMaximo) {
+
+		this.maximo = maximo;
+		this.pesoMaximo = pesoMaximo;
+	}
+
+	/**
+	 * Devuelve la clave de un cuerpo de peticion con el marco pasado
+	 */
+
+	public static Clave claveCuerpo(byte[] cuerpo, Marco marco) {
+
+		MessageDigest resumen = resumenCuerpo();
+
+		resumen.update(cuerpo);
+
+		return claveCuerpo(resumen, marco);
+	}
+
+	/**
+	 * Devuelve un resumen vacio para ir pasandole el cuerpo de una peticion
+	 * segun se lee, por ejemplo con un DigestInputStream
+	 */
+
+	public static MessageDigest resumenCuerpo() {
+
+		MessageDigest resumen = sha256();
+
+		resumen.update((byte) 'C');
+
+		return resumen;
+	}
+
+	/**
+	 * Devuelve la clave del cuerpo que se ha pasado entero al resumen, que
+	 * se obtuvo de resumenCuerpo(), con el marco pasado
+	 */
+
+	public static Clave claveCuerpo(MessageDigest resumen, Marco marco) {
+
+		actualizar(resumen, marco);
+
+		return new Clave(resumen.digest());
+	}
+
+	/**
+	 * Devuelve la clave de los n primeros sitios de las columnas pasadas con
+	 * el marco pasado, la misma sea cual sea el orden de los sitios
+	 */
+
+	public static Clave claveSitios(final long[] x, final long[] y, int n, Marco marco) {
+
+		MessageDigest resumen = sha256();
+
+		boolean enteros = true;
+
+		for (int i = 0; i < n && enteros; i++)
+			enteros = x[i] == (int) x[i] && y[i] == (int) y[i];
+
+		if (enteros) {
+
+			// cada sitio en un long que ordena igual que (x, y)
+
+			long[] sitios = new long[n];
+
+			for (int i = 0; i < n; i++)
+				sitios[i] = x[i] << 32 | (y[i] - Integer.MIN_VALUE);
+
+			Arrays.sort(sitios);
+
+			ByteBuffer bytes = ByteBuffer.allocate(8 * n);
+			for (int i = 0; i < n; i++)
+				bytes.putLong(sitios[i]);
+
+			resumen.update((byte) 'E');
+			resumen.update(bytes.array());
+
+		} else {
+
+			Integer[] orden = new Integer[n];
+
+			for (int i = 0; i < n; i++)
+				orden[i] = i;
+
+			Arrays.sort(orden, new Comparator<Integer>() {
+				public int compare(Integer a, Integer b) {
+					if (x[a] != x[b])
+						return x[a] < x[b] ? -1 : 1;
+					if (y[a] != y[b])
+						return y[a] < y[b] ? -1 : 1;
+					return 0;
+				}
+			});
+
+			ByteBuffer bytes = ByteBuffer.allocate(16 * n);
+			for (int i = 0; i < n; i++)
+				bytes.putLong(x[orden[i]]).putLong(y[orden[i]]);
+
+			resumen.update((byte) 'L');
+			resumen.update(bytes.array());
+		}
+
+		actualizar(resumen, marco);
+
+		return new Clave(resumen.digest());
+	}
+
+	/**
+	 * Devuelve una copia del diagrama guardado para el cuerpo de la clave
+	 * pasada, o null si no se recuerda el cuerpo o ya no esta su diagrama
+	 */
+
+	public synchronized VoronoiOutput buscarCuerpo(Clave cuerpo) {
+
+		Entrada entrada = cuerpos.get(cuerpo);
+
+		if (entrada == null)
+			return null;
+
+		// para que cuente como usado
+		diagramas.get(entrada.sitios);
+		aciertosCuerpo++;
+
+		return copia(entrada.diagrama, true);
+	}
+
+	/**
+	 * Devuelve una copia del diagrama guardado para los sitios de la clave
+	 * pasada, o null si no esta. Si esta se recuerda tambien el cuerpo con el que ha
+	 * llegado esta vez
+	 */
+
+	public synchronized VoronoiOutput buscar(Clave sitios, Clave cuerpo) {
+
+		Entrada entrada = diagramas.get(sitios);
+
+		if (entrada == null) {
+			fallos++;
+			return null;
+		}
+
+		aciertos++;
+		recordar(entrada, cuerpo);
+
+		return copia(entrada.diagrama, true);
+	}
+
+	/**
+	 * Guarda el diagrama calculado para los sitios y el cuerpo de las claves
+	 * pasadas, expulsando los menos usados si hace falta. Se guarda una copia
+	 * con sus mismas lineas, que no se deben modificar despues. Un diagrama
+	 * que por si solo pesa mas que el maximo no se guarda
+	 */
+
+	public synchronized void guardar(Clave sitios, Clave cuerpo, VoronoiOutput diagrama) {
+
+		long p = peso(diagrama);
+
+		if (p > pesoMaximo)
+			return;
+
+		Entrada entrada = new Entrada(sitios, copia(diagrama, false));
+		Entrada anterior = diagramas.put(sitios, entrada);
+
+		if (anterior != null) {
+			peso -= peso(anterior.diagrama);
+			olvidar(anterior);
+		}
+
+		peso += p;
+		recordar(entrada, cuerpo);
+
+		Iterator<Entrada> it = diagramas.values().iterator();
+
+		while (diagramas.size() > maximo || peso > pesoMaximo) {
+			Entrada expulsada = it.next();
+			peso -= peso(expulsada.diagrama);
+			olvidar(expulsada);
+			it.remove();
+			expulsiones++;
+		}
+	}
+
+	// anota el cuerpo en la entrada de los sitios, en lugar del mas antiguo
+	// si ya tiene todos los que se recuerdan
+
+	private void recordar(Entrada entrada, Clave cuerpo) {
+
+		Entrada actual = cuerpos.get(cuerpo);
+
+		if (actual == entrada)
+			return;
+
+		if (actual != null)
+			actual.quitar(cuerpo);
+
+		Clave viejo = entrada.cuerpos[entrada.siguiente];
+
+		if (viejo != null)
+			cuerpos.remove(viejo);
+
+		entrada.cuerpos[entrada.siguiente] = cuerpo;
+		entrada.siguiente = (entrada.siguiente + 1) % CUERPOS_POR_ENTRADA;
+		cuerpos.put(cuerpo, entrada);
+	}
+
+	private void olvidar(Entrada entrada) {
+
+		for (Clave cuerpo : entrada.cuerpos)
+			if (cuerpo != null)
+				cuerpos.remove(cuerpo);
+	}
+
+	/**
+	 * Devuelve el numero de diagramas, su peso y los contadores de aciertos,
+	 * fallos y expulsiones
+	 */
+
+	public synchronized CacheOutput estadisticas() {
+		return new CacheOutput(diagramas.size(), peso, aciertos, aciertosCuerpo, fallos, expulsiones);
+	}
+
+	// un VoronoiOutput con las lineas del pasado en una lista de solo lectura
+	// y una copia de su informe
+
+	private static VoronoiOutput copia(VoronoiOutput diagrama, boolean deCache) {
+
+		VoronoiOutput salida = new VoronoiOutput();
+
+		salida.setLines(Collections.unmodifiableList(diagrama.getLines()));
+
+		if (diagrama.getInforme() != null) {
+			InformeCalculo informe = new InformeCalculo(diagrama.getInforme());
+			informe.setDeCache(deCache);
+			salida.setInforme(informe);
+		}
+
+		return salida;
+	}
+
+	private static long peso(VoronoiOutput diagrama) {
+		return PESO_ENTRADA + PESO_LINEA * diagrama.getLines().size();
+	}
+
+	private static MessageDigest sha256() {
+
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException ex) {
+			throw new RuntimeException("SHA-256 no disponible", ex);
+		}
+	}
+
+	private static void actualizar(MessageDigest resumen, Marco marco) {
+
+		actualizar(resumen, marco.xmin());
+		actualizar(resumen, marco.ymin());
+		actualizar(resumen, marco.xmax());
+		actualizar(resumen, marco.ymax());
+	}
+
+	private static void actualizar(MessageDigest resumen, long v) {
+
+		for (int k = 56; k >= 0; k -= 8)
+			resumen.update((byte) (v >>> k));
+	}
+
+	// un diagrama guardado y los ultimos cuerpos con los que se ha pedido
+
+	private static class Entrada {
+
+		final Clave sitios;
+		final VoronoiOutput diagrama;
+		final Clave[] cuerpos = new Clave[CUERPOS_POR_ENTRADA];
+		int siguiente;
+
+		Entrada(Clave sitios, VoronoiOutput diagrama) {
+			this.sitios = sitios;
+			this.diagrama = diagrama;
+		}
+
+		void quitar(Clave cuerpo) {
+			for (int i = 0; i < cuerpos.length; i++)
+				if (cuerpo.equals(cuerpos[i]))
+					cuerpos[i] = null;
+		}
+	}
+
+	/**
+	 * Clave de la cache: un resumen SHA-256, comparado por contenido
+	 */
+
+	public static class Clave {
+
+		private final byte[] resumen;
+		private final int hash;
+
+		Clave(byte[] resumen) {
+			this.resumen = resumen;
+			this.hash = Arrays.hashCode(resumen);
+		}
+
+		public int hashCode() {
+			return hash;
+		}
+
+		public boolean equals(Object otra) {
+			return otra instanceof Clave && Arrays.equals(resumen, ((Clave) otra).resumen);
+		}
+	}
+
+}
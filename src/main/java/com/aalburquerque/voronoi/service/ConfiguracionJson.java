@@ -0,0 +1,137 @@
+/*
+  This file is part of com.aalburquerque.voronoi API.
+
+    com.aalburquerque.voronoi API is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    com.aalburquerque.voronoi API is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with com.aalburquerque.voronoi API.  If not, see <http://www.gnu.org/licenses/>
+*/
+
+package com.aalburquerque.voronoi.service;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.aalburquerque.voronoi.struc.impl.Line;
+import com.aalburquerque.voronoi.struc.impl.VoronoiOutput;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+/**
+ * Configuracion de Jackson para el servicio. Hay un unico ObjectMapper,
+ * MAPEADOR, que se crea una vez y es seguro entre hilos: lo usan los
+ * controladores para leer y Spring, al darlo como bean, para escribir las
+ * respuestas. Las aristas del diagrama, que son casi toda la salida, se
+ * escriben con serializadores propios, campo a campo y sin reflexion. Los
+ * sitios de la entrada no pasan por el mapeador, los lee LectorPuntos
+ * 
+ * @author Antonio Alburquerque Oliva
+ * @version 1.00
+ */
+
+@Configuration
+public class ConfiguracionJson {
+
+	/**
+	 * El mapeador compartido
+	 */
+
+	public static final ObjectMapper MAPEADOR = crearMapeador();
+
+	private static ObjectMapper crearMapeador() {
+
+		SimpleModule modulo = new SimpleModule("voronoi");
+		modulo.addSerializer(Line.class, new SerializadorLinea());
+		modulo.addSerializer(VoronoiOutput.class, new SerializadorVoronoi());
+
+		ObjectMapper mapeador = new ObjectMapper();
+		mapeador.registerModule(modulo);
+
+		// como LectorPuntos y como el mapeador que Spring crearia por defecto
+		mapeador.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+		return mapeador;
+	}
+
+	/**
+	 * El mapeador con el que Spring escribe las respuestas
+	 */
+
+	@Bean
+	public ObjectMapper objectMapper() {
+		return MAPEADOR;
+	}
+
+	private static void escribirLinea(Line linea, JsonGenerator gen) throws IOException {
+
+		gen.writeStartObject();
+		gen.writeNumberField("x1", linea.getX1());
+		gen.writeNumberField("y1", linea.getY1());
+		gen.writeNumberField("x2", linea.getX2());
+		gen.writeNumberField("y2", linea.getY2());
+		gen.writeEndObject();
+	}
+
+	static class SerializadorLinea extends StdSerializer<Line> {
+
+		private static final long serialVersionUID = 1L;
+
+		SerializadorLinea() {
+			super(Line.class);
+		}
+
+		@Override
+		public void serialize(Line linea, JsonGenerator gen, SerializerProvider proveedor) throws IOException {
+			escribirLinea(linea, gen);
+		}
+	}
+
+	// el informe es pequeno y se deja al serializador por defecto
+
+	static class SerializadorVoronoi extends StdSerializer<VoronoiOutput> {
+
+		private static final long serialVersionUID = 1L;
+
+		SerializadorVoronoi() {
+			super(VoronoiOutput.class);
+		}
+
+		@Override
+		public void serialize(VoronoiOutput salida, JsonGenerator gen, SerializerProvider proveedor)
+				throws IOException {
+
+			gen.writeStartObject();
+
+			List<Line> lineas = salida.getLines();
+
+			if (lineas == null)
+				gen.writeNullField("lines");
+			else {
+				gen.writeArrayFieldStart("lines");
+				for (int i = 0, n = lineas.size(); i < n; i++)
+					escribirLinea(lineas.get(i), gen);
+				gen.writeEndArray();
+			}
+
+			proveedor.defaultSerializeField("informe", salida.getInforme(), gen);
+
+			gen.writeEndObject();
+		}
+	}
+
+}
@@ -0,0 +1,45 @@
+/*
+  This file is part of com.aalburquerque.voronoi API.
+
+    com.aalburquerque.voronoi API is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    com.aalburquerque.voronoi API is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with com.aalburquerque.voronoi API.  If not, see <http://www.gnu.org/licenses/>
+*/
+
+package com.aalburquerque.voronoi.service;
+
+import java.util.List;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+
+/**
+ * Configuracion de Spring MVC para el servicio. ConversorBinario se pone
+ * detras de los conversores por defecto, y no como bean suelto, porque Spring
+ * Boot pondria un bean delante de Jackson. Asi, cuando el cliente acepta
+ * cualquier tipo o no manda Accept, VoronoiOutput se sigue dando en JSON, y
+ * solo se da en FormatoBinario cuando lo pide expresamente
+ * 
+ * @author Antonio Alburquerque Oliva
+ * @version 1.00
+ */
+
+@Configuration
+public class ConfiguracionMvc extends WebMvcConfigurerAdapter {
+
+	@Override
+	public void extendMessageConverters(List<HttpMessageConverter<?>> conversores) {
+		conversores.add(new ConversorBinario());
+	}
+
+}
@@ -0,0 +1,68 @@
+/*
+  This file is part of com.aalburquerque.voronoi API.
+
+    com.aalburquerque.voronoi API is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    com.aalburquerque.voronoi API is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with com.aalburquerque.voronoi API.  If not, see <http://www.gnu.org/licenses/>
+*/
+
+package com.aalburquerque.voronoi.service;
+
+import java.io.IOException;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+
+import com.aalburquerque.voronoi.struc.impl.VoronoiOutput;
+
+/**
+ * Conversor de Spring para dar VoronoiOutput en FormatoBinario cuando el
+ * cliente lo pide en la cabecera Accept, con FormatoBinario.TIPO o
+ * FormatoBinario.TIPO_VARINT. Sin ella se sigue dando en JSON. Lo registra
+ * ConfiguracionMvc, detras de Jackson
+ * 
+ * @author Antonio Alburquerque Oliva
+ * @version 1.00
+ */
+
+public class ConversorBinario extends AbstractHttpMessageConverter<VoronoiOutput> {
+
+	private static final MediaType TIPO = MediaType.valueOf(FormatoBinario.TIPO);
+	private static final MediaType TIPO_VARINT = MediaType.valueOf(FormatoBinario.TIPO_VARINT);
+
+	public ConversorBinario() {
+		super(TIPO, TIPO_VARINT);
+	}
+
+	@Override
+	protected boolean supports(Class<?> clase) {
+		return VoronoiOutput.class.isAssignableFrom(clase);
+	}
+
+	@Override
+	protected VoronoiOutput readInternal(Class<? extends VoronoiOutput> clase, HttpInputMessage entrada)
+			throws IOException {
+		return FormatoBinario.leerLineas(entrada.getBody());
+	}
+
+	@Override
+	protected void writeInternal(VoronoiOutput salida, HttpOutputMessage mensaje) throws IOException {
+
+		MediaType tipo = mensaje.getHeaders().getContentType();
+
+		FormatoBinario.escribirLineas(salida, mensaje.getBody(),
+				tipo != null && TIPO_VARINT.includes(tipo) ? FormatoBinario.VARINT : FormatoBinario.COLUMNAS);
+	}
+
+}
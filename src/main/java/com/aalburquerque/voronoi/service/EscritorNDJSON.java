@@ -0,0 +1,99 @@
+/*
+  This file is part of com.aalburquerque.voronoi API.
+
+    com.aalburquerque.voronoi API is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    com.aalburquerque.voronoi API is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with com.aalburquerque.voronoi API.  If not, see <http://www.gnu.org/licenses/>
+*/
+
+package com.aalburquerque.voronoi.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.aalburquerque.voronoi.struc.IReceptorLineas;
+import com.aalburquerque.voronoi.struc.impl.Line;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Receptor que escribe cada linea del diagrama en el flujo en cuanto la
+ * recibe, como un objeto JSON por linea de texto (NDJSON), con los mismos
+ * campos que Line. Asi el diagrama no se guarda entero en memoria antes de
+ * escribirlo, y el cliente empieza a recibir aristas mientras se recorre
+ * 
+ * @author Antonio Alburquerque Oliva
+ * @version 1.00
+ */
+
+public class EscritorNDJSON implements IReceptorLineas {
+
+	/**
+	 * Tipo de contenido de lo que se escribe
+	 */
+
+	public static final String TIPO = "application/x-ndjson";
+
+	private JsonGenerator gen;
+
+	private int total = 0;
+
+	/**
+	 * Construir un escritor sobre el flujo pasado, que no se cierra
+	 */
+
+	public EscritorNDJSON(OutputStream flujo) throws IOException {
+
+		gen = ConfiguracionJson.MAPEADOR.getFactory().createGenerator(flujo);
+		gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+		// cada objeto termina en su propio salto de linea
+		gen.setRootValueSeparator(null);
+	}
+
+	public void addLine(int x1, int y1, int x2, int y2) {
+
+		try {
+			gen.writeStartObject();
+			gen.writeNumberField("x1", x1);
+			gen.writeNumberField("y1", y1);
+			gen.writeNumberField("x2", x2);
+			gen.writeNumberField("y2", y2);
+			gen.writeEndObject();
+			gen.writeRaw('\n');
+		} catch (IOException ex) {
+			throw new RuntimeException("Error al escribir la linea " + total, ex);
+		}
+
+		total++;
+	}
+
+	public void addLine(Line line) {
+		addLine(line.getX1(), line.getY1(), line.getX2(), line.getY2());
+	}
+
+	/**
+	 * Devuelve el numero de lineas escritas
+	 */
+
+	public int total() {
+		return total;
+	}
+
+	/**
+	 * Escribe lo que quede en el buffer y libera el escritor
+	 */
+
+	public void cerrar() throws IOException {
+		gen.close();
+	}
+
+}
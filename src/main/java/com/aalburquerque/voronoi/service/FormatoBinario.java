@@ -0,0 +1,328 @@
+/*
+  This file is part of com.aalburquerque.voronoi API.
+
+    com.aalburquerque.voronoi API is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    com.aalburquerque.voronoi API is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with com.aalburquerque.voronoi API.  If not, see <http://www.gnu.org/licenses/>
+*/
+
+package com.aalburquerque.voronoi.service;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+import com.aalburquerque.voronoi.struc.impl.Line;
+import com.aalburquerque.voronoi.struc.impl.VoronoiOutput;
+
+/**
+ * <p>
+ * Formato binario para los sitios de la entrada y las aristas del diagrama,
+ * mas compacto y mucho mas rapido de leer que el JSON. Un mensaje empieza
+ * por un byte con la codificacion y el numero de elementos en un entero de
+ * 32 bits little-endian, y sigue con los valores por columnas: x e y para
+ * los sitios, x1, y1, x2 e y2 para las aristas.
+ * <p>
+ * Con COLUMNAS cada valor es un entero de 32 bits little-endian. Con VARINT
+ * cada valor se da como la diferencia con el anterior de su columna, en
+ * zigzag y en grupos de 7 bits (varint), con lo que las coordenadas
+ * proximas ocupan uno o dos bytes. El informe del calculo no se transmite
+ * 
+ * @author Antonio Alburquerque Oliva
+ * @version 1.00
+ */
+
+public class FormatoBinario {
+
+	/**
+	 * Tipo de contenido de los mensajes con enteros de 32 bits
+	 */
+
+	public static final String TIPO = "application/x-voronoi";
+
+	/**
+	 * Tipo de contenido de los mensajes con diferencias en varint
+	 */
+
+	public static final String TIPO_VARINT = "application/x-voronoi-varint";
+
+	/**
+	 * Codificacion con enteros de 32 bits little-endian
+	 */
+
+	public static final int COLUMNAS = 0;
+
+	/**
+	 * Codificacion con diferencias en zigzag y varint
+	 */
+
+	public static final int VARINT = 1;
+
+	/**
+	 * Mayor numero de elementos que se acepta en un mensaje, para no reservar
+	 * memoria de mas por una cabecera erronea
+	 */
+
+	public static final int MAXIMO = 1 << 24;
+
+	private static final int TAM_BUFFER = 1 << 14;
+
+	/**
+	 * Escribe las aristas de la salida pasada en el flujo, que no se cierra
+	 * 
+	 * @param salida
+	 *            Las aristas del diagrama
+	 * @param flujo
+	 *            Donde se escriben
+	 * @param codificacion
+	 *            COLUMNAS o VARINT
+	 */
+
+	public static void escribirLineas(VoronoiOutput salida, OutputStream flujo, int codificacion)
+			throws IOException {
+
+		List<Line> lineas = salida.getLines();
+		int n = lineas.size();
+
+		Escritor e = new Escritor(flujo, codificacion, n);
+
+		for (int c = 0; c < 4; c++) {
+			e.columna();
+			for (int i = 0; i < n; i++) {
+				Line l = lineas.get(i);
+				e.valor(c == 0 ? l.getX1() : c == 1 ? l.getY1() : c == 2 ? l.getX2() : l.getY2());
+			}
+		}
+
+		e.vaciar();
+	}
+
+	/**
+	 * Lee las aristas escritas con escribirLineas
+	 */
+
+	public static VoronoiOutput leerLineas(InputStream flujo) throws IOException {
+
+		Lector l = new Lector(flujo);
+		int n = l.total();
+
+		int[][] c = new int[4][n];
+
+		for (int k = 0; k < 4; k++) {
+			l.columna();
+			for (int i = 0; i < n; i++)
+				c[k][i] = entero(l.valor());
+		}
+
+		VoronoiOutput salida = new VoronoiOutput(n);
+
+		for (int i = 0; i < n; i++)
+			salida.addLine(c[0][i], c[1][i], c[2][i], c[3][i]);
+
+		return salida;
+	}
+
+	/**
+	 * Escribe los n primeros sitios de las columnas pasadas en el flujo, que
+	 * no se cierra. Con COLUMNAS las coordenadas tienen que caber en un int
+	 */
+
+	public static void escribirPuntos(long[] x, long[] y, int n, OutputStream flujo, int codificacion)
+			throws IOException {
+
+		Escritor e = new Escritor(flujo, codificacion, n);
+
+		e.columna();
+		for (int i = 0; i < n; i++)
+			e.valor(x[i]);
+
+		e.columna();
+		for (int i = 0; i < n; i++)
+			e.valor(y[i]);
+
+		e.vaciar();
+	}
+
+	/**
+	 * Lee los sitios escritos con escribirPuntos. Devuelve las abscisas y las
+	 * ordenadas, en dos arrays de la longitud exacta
+	 */
+
+	public static long[][] leerPuntos(InputStream flujo) throws IOException {
+
+		Lector l = new Lector(flujo);
+		int n = l.total();
+
+		long[][] c = new long[2][n];
+
+		for (int k = 0; k < 2; k++) {
+			l.columna();
+			for (int i = 0; i < n; i++)
+				c[k][i] = l.valor();
+		}
+
+		return c;
+	}
+
+	private static int entero(long v) throws IOException {
+
+		if (v < Integer.MIN_VALUE || v > Integer.MAX_VALUE)
+			throw new IOException("Valor fuera de rango: " + v);
+
+		return (int) v;
+	}
+
+	// escritura con un buffer propio, para no pasar byte a byte por el flujo
+
+	private static class Escritor {
+
+		private OutputStream flujo;
+		private int codificacion;
+		private byte[] buffer = new byte[TAM_BUFFER];
+		private int pos = 0;
+		private long anterior;
+
+		Escritor(OutputStream flujo, int codificacion, int n) throws IOException {
+
+			if (codificacion != COLUMNAS && codificacion != VARINT)
+				throw new RuntimeException("Codificacion desconocida: " + codificacion);
+
+			this.flujo = flujo;
+			this.codificacion = codificacion;
+
+			buffer[pos++] = (byte) codificacion;
+			entero32(n);
+		}
+
+		void columna() {
+			anterior = 0;
+		}
+
+		void valor(long v) throws IOException {
+
+			if (codificacion == COLUMNAS) {
+				entero32(entero(v));
+				return;
+			}
+
+			long d = v - anterior;
+			anterior = v;
+
+			long z = (d << 1) ^ (d >> 63);
+
+			if (pos + 10 > buffer.length)
+				volcar();
+
+			while ((z & ~0x7FL) != 0) {
+				buffer[pos++] = (byte) ((z & 0x7F) | 0x80);
+				z >>>= 7;
+			}
+			buffer[pos++] = (byte) z;
+		}
+
+		private void entero32(int v) throws IOException {
+
+			if (pos + 4 > buffer.length)
+				volcar();
+
+			buffer[pos++] = (byte) v;
+			buffer[pos++] = (byte) (v >>> 8);
+			buffer[pos++] = (byte) (v >>> 16);
+			buffer[pos++] = (byte) (v >>> 24);
+		}
+
+		private void volcar() throws IOException {
+			flujo.write(buffer, 0, pos);
+			pos = 0;
+		}
+
+		void vaciar() throws IOException {
+			volcar();
+			flujo.flush();
+		}
+	}
+
+	private static class Lector {
+
+		private InputStream flujo;
+		private int codificacion;
+		private int total;
+		private byte[] buffer = new byte[TAM_BUFFER];
+		private int pos = 0, lim = 0;
+		private long anterior;
+
+		Lector(InputStream flujo) throws IOException {
+
+			this.flujo = flujo;
+
+			codificacion = octeto();
+
+			if (codificacion != COLUMNAS && codificacion != VARINT)
+				throw new IOException("Codificacion desconocida: " + codificacion);
+
+			total = entero32();
+
+			if (total < 0 || total > MAXIMO)
+				throw new IOException("Numero de elementos no valido: " + total);
+		}
+
+		int total() {
+			return total;
+		}
+
+		void columna() {
+			anterior = 0;
+		}
+
+		long valor() throws IOException {
+
+			if (codificacion == COLUMNAS)
+				return entero32();
+
+			long z = 0;
+			int desp = 0, b;
+
+			do {
+				if (desp > 63)
+					throw new IOException("Varint demasiado largo");
+				b = octeto();
+				z |= (long) (b & 0x7F) << desp;
+				desp += 7;
+			} while ((b & 0x80) != 0);
+
+			anterior += (z >>> 1) ^ -(z & 1);
+
+			return anterior;
+		}
+
+		private int entero32() throws IOException {
+			return octeto() | octeto() << 8 | octeto() << 16 | octeto() << 24;
+		}
+
+		private int octeto() throws IOException {
+
+			if (pos == lim) {
+				lim = flujo.read(buffer, 0, buffer.length);
+				pos = 0;
+				if (lim <= 0) {
+					lim = 0;
+					throw new EOFException("Mensaje incompleto");
+				}
+			}
+
+			return buffer[pos++] & 0xFF;
+		}
+	}
+
+}
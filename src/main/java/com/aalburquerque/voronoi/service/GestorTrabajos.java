@@ -0,0 +1,309 @@
+/*
+  This file is part of com.aalburquerque.voronoi API.
+
+    com.aalburquerque.voronoi API is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    com.aalburquerque.voronoi API is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with com.aalburquerque.voronoi API.  If not, see <http://www.gnu.org/licenses/>
+*/
+
+package com.aalburquerque.voronoi.service;
+
+import java.util.Iterator;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.aalburquerque.voronoi.struc.impl.TrabajoOutput;
+import com.aalburquerque.voronoi.struc.impl.VoronoiOutput;
+
+/**
+ * <p>
+ * Gestor de los calculos que se piden como trabajos: en lugar de calcular en
+ * el hilo de la peticion se encola el calculo y se devuelve un identificador
+ * con el que despues se consulta su estado y se recoge el resultado.
+ * <p>
+ * Los calculos se hacen en un numero fijo de hilos. Se cuentan los trabajos
+ * en curso, pendientes o calculandose, y cuando ya hay tantos como hilos mas
+ * plazas de cola enviar() lanza RejectedExecutionException, que es el limite
+ * de carga del servicio. La cola del ejecutor no tiene limite: el limite es
+ * el contador, que no depende de si un hilo libre ya ha recogido su trabajo. Los trabajos terminados se guardan
+ * durante el tiempo de retencion y, como mucho, hasta un maximo de trabajos
+ * guardados; se eliminan al enviar otros, primero los caducados y despues
+ * los terminados mas antiguos.
+ * <p>
+ * Solo se cancelan los trabajos pendientes. Los motores de calculo no se
+ * pueden interrumpir, asi que un trabajo que ya se esta calculando no se
+ * elimina: sigue hasta terminar y despues se puede eliminar
+ * 
+ * @author Antonio Alburquerque Oliva
+ * @version 1.00
+ */
+
+public class GestorTrabajos {
+
+	/**
+	 * Estado de un trabajo encolado
+	 */
+
+	public static final String PENDIENTE = "PENDIENTE";
+
+	/**
+	 * Estado de un trabajo que se esta calculando
+	 */
+
+	public static final String CALCULANDO = "CALCULANDO";
+
+	/**
+	 * Estado de un trabajo con el resultado disponible
+	 */
+
+	public static final String TERMINADO = "TERMINADO";
+
+	/**
+	 * Estado de un trabajo cuyo calculo fallo
+	 */
+
+	public static final String ERROR = "ERROR";
+
+	private ThreadPoolExecutor ejecutor;
+
+	// trabajos pendientes o calculandose, y cuantos puede haber
+
+	private final AtomicInteger enCurso = new AtomicInteger();
+
+	private final int capacidad;
+
+	private long retencion;
+
+	private int maximo;
+
+	private ConcurrentHashMap<String, Trabajo> trabajos = new ConcurrentHashMap<String, Trabajo>();
+
+	/**
+	 * Construir un gestor
+	 * 
+	 * @param hilos
+	 *            Numero de calculos simultaneos
+	 * @param cola
+	 *            Numero de trabajos que pueden esperar a un hilo
+	 * @param retencion
+	 *            Milisegundos que se guarda un trabajo terminado
+	 * @param maximo
+	 *            Numero de trabajos que se guardan, contando los pendientes
+	 */
+
+	public GestorTrabajos(int hilos, int cola, long retencion, int maximo) {
+
+		if (maximo < hilos + cola)
+			throw new RuntimeException("Se deben poder guardar al menos los trabajos en curso y en cola");
+
+		this.retencion = retencion;
+		this.maximo = maximo;
+		this.capacidad = hilos + cola;
+
+		final AtomicInteger numero = new AtomicInteger();
+
+		// hilos demonio: no impiden que la aplicacion termine
+
+		ejecutor = new ThreadPoolExecutor(hilos, hilos, 0L, TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+					public Thread newThread(Runnable r) {
+						Thread hilo = new Thread(r, "voronoi-trabajo-" + numero.incrementAndGet());
+						hilo.setDaemon(true);
+						return hilo;
+					}
+				});
+	}
+
+	/**
+	 * Encola el calculo pasado y devuelve el identificador del trabajo. Si ya
+	 * hay tantos trabajos en curso como hilos y plazas de cola lanza
+	 * RejectedExecutionException
+	 */
+
+	public synchronized String enviar(final Callable<VoronoiOutput> calculo) {
+
+		purgar();
+
+		if (trabajos.size() >= maximo)
+			throw new RejectedExecutionException("Demasiados trabajos guardados");
+
+		if (enCurso.get() >= capacidad)
+			throw new RejectedExecutionException("Cola de trabajos llena");
+
+		final Trabajo trabajo = new Trabajo(UUID.randomUUID().toString());
+
+		trabajos.put(trabajo.id, trabajo);
+		enCurso.incrementAndGet();
+
+		try {
+			trabajo.futuro = ejecutor.submit(new Runnable() {
+				public void run() {
+					synchronized (trabajo) {
+						if (trabajo.cancelado)
+							return;
+						trabajo.estado = CALCULANDO;
+					}
+					try {
+						trabajo.resultado = calculo.call();
+						trabajo.terminado = System.currentTimeMillis();
+						trabajo.estado = TERMINADO;
+					} catch (Throwable ex) {
+						trabajo.mensaje = ex.toString();
+						trabajo.terminado = System.currentTimeMillis();
+						trabajo.estado = ERROR;
+					} finally {
+						enCurso.decrementAndGet();
+					}
+				}
+			});
+		} catch (RejectedExecutionException ex) {
+			trabajos.remove(trabajo.id);
+			enCurso.decrementAndGet();
+			throw ex;
+		}
+
+		return trabajo.id;
+	}
+
+	/**
+	 * Devuelve el estado del trabajo, o null si no existe o ya se elimino
+	 */
+
+	public TrabajoOutput estado(String id) {
+
+		Trabajo t = trabajos.get(id);
+
+		if (t == null)
+			return null;
+
+		return salida(t);
+	}
+
+	/**
+	 * Devuelve el resultado del trabajo, o null si no existe o no ha
+	 * terminado bien
+	 */
+
+	public VoronoiOutput resultado(String id) {
+
+		Trabajo t = trabajos.get(id);
+
+		if (t == null || !TERMINADO.equals(t.estado))
+			return null;
+
+		return t.resultado;
+	}
+
+	/**
+	 * Elimina el trabajo, cancelandolo si aun esta pendiente, y devuelve el
+	 * estado que tenia, o null si no existia. Si se esta calculando no se
+	 * elimina ni se interrumpe, y el estado devuelto es CALCULANDO
+	 */
+
+	public TrabajoOutput eliminar(String id) {
+
+		Trabajo t = trabajos.get(id);
+
+		if (t == null)
+			return null;
+
+		synchronized (t) {
+			if (CALCULANDO.equals(t.estado))
+				return salida(t);
+			// el pendiente ya no se calculara: deja su plaza
+			if (PENDIENTE.equals(t.estado) && !t.cancelado)
+				enCurso.decrementAndGet();
+			t.cancelado = true;
+		}
+
+		trabajos.remove(id);
+
+		Future<?> futuro = t.futuro;
+
+		if (futuro != null) {
+			futuro.cancel(false);
+			ejecutor.remove((Runnable) futuro);
+		}
+
+		return salida(t);
+	}
+
+	/**
+	 * Devuelve el numero de trabajos guardados
+	 */
+
+	public int total() {
+		return trabajos.size();
+	}
+
+	private static TrabajoOutput salida(Trabajo t) {
+		return new TrabajoOutput(t.id, t.estado, t.mensaje, t.creado, t.terminado);
+	}
+
+	// elimina los trabajos caducados y, si aun hay demasiados, los
+	// terminados mas antiguos
+
+	private void purgar() {
+
+		long ahora = System.currentTimeMillis();
+
+		Iterator<Trabajo> it = trabajos.values().iterator();
+
+		while (it.hasNext()) {
+			Trabajo t = it.next();
+			if (t.terminado != 0 && ahora - t.terminado >= retencion)
+				it.remove();
+		}
+
+		while (trabajos.size() >= maximo) {
+
+			Trabajo antiguo = null;
+
+			for (Trabajo t : trabajos.values())
+				if (t.terminado != 0 && (antiguo == null || t.terminado < antiguo.terminado))
+					antiguo = t;
+
+			if (antiguo == null)
+				return;
+
+			trabajos.remove(antiguo.id);
+		}
+	}
+
+	private static class Trabajo {
+
+		final String id;
+		final long creado = System.currentTimeMillis();
+
+		volatile String estado = PENDIENTE;
+		volatile String mensaje;
+		volatile long terminado;
+		volatile VoronoiOutput resultado;
+		volatile Future<?> futuro;
+
+		// se lee y se cambia con el cerrojo del trabajo
+		boolean cancelado;
+
+		Trabajo(String id) {
+			this.id = id;
+		}
+	}
+
+}
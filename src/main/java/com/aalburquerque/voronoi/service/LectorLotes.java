@@ -0,0 +1,88 @@
+/*
+  This file is part of com.aalburquerque.voronoi API.
+
+    com.aalburquerque.voronoi API is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    com.aalburquerque.voronoi API is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with com.aalburquerque.voronoi API.  If not, see <http://www.gnu.org/licenses/>
+*/
+
+package com.aalburquerque.voronoi.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Lee un lote de conjuntos de sitios independientes,
+ * {"sets":[{"points":[...]},{"points":[...]},...]}, cada uno con el mismo
+ * formato que lee LectorPuntos y en una sola pasada por el texto. Los campos
+ * desconocidos se saltan
+ * 
+ * @author Antonio Alburquerque Oliva
+ * @version 1.00
+ */
+
+public class LectorLotes {
+
+	private List<LectorPuntos> conjuntos = new ArrayList<LectorPuntos>();
+
+	/**
+	 * Leer el lote del flujo pasado como parametro, que no se cierra
+	 */
+
+	public LectorLotes(InputStream entrada) throws IOException {
+
+		JsonParser parser = LectorPuntos.FABRICA.createParser(entrada);
+
+		try {
+			leer(parser);
+		} finally {
+			parser.close();
+		}
+	}
+
+	private void leer(JsonParser parser) throws IOException {
+
+		LectorPuntos.esperar(parser, parser.nextToken(), JsonToken.START_OBJECT);
+
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+
+			String campo = parser.getCurrentName();
+			JsonToken valor = parser.nextToken();
+
+			if (!"sets".equals(campo) || valor == JsonToken.VALUE_NULL) {
+				parser.skipChildren();
+				continue;
+			}
+
+			LectorPuntos.esperar(parser, valor, JsonToken.START_ARRAY);
+
+			while (parser.nextToken() != JsonToken.END_ARRAY)
+				conjuntos.add(new LectorPuntos(parser));
+		}
+
+		LectorPuntos.esperar(parser, parser.getCurrentToken(), JsonToken.END_OBJECT);
+	}
+
+	/**
+	 * Devuelve los conjuntos de sitios en el orden en que venian
+	 */
+
+	public List<LectorPuntos> conjuntos() {
+		return conjuntos;
+	}
+
+}
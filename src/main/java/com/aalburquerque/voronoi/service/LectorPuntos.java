@@ -0,0 +1,193 @@
+/*
+  This file is part of com.aalburquerque.voronoi API.
+
+    com.aalburquerque.voronoi API is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    com.aalburquerque.voronoi API is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with com.aalburquerque.voronoi API.  If not, see <http://www.gnu.org/licenses/>
+*/
+
+package com.aalburquerque.voronoi.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Lee los sitios de una peticion con el mismo formato que InputPoints,
+ * {"points":[{"x":123,"y":53},...]}, directamente del cuerpo y sin pasar por
+ * objetos intermedios: el analizador de Jackson va dejando las coordenadas en
+ * dos arrays de long que crecen segun hace falta. Los campos desconocidos se
+ * saltan y una coordenada que falta vale 0, como al leer InputPoints. Un
+ * texto cortado, aunque sea despues del ultimo sitio completo, es un error
+ * 
+ * @author Antonio Alburquerque Oliva
+ * @version 1.00
+ */
+
+public class LectorPuntos {
+
+	// la fabrica es segura entre hilos y cara de crear. Sus analizadores no
+	// cierran el flujo del que leen, que es de quien lo abrio
+
+	static final JsonFactory FABRICA = new JsonFactory().disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+
+	private static final int CAPACIDAD_INICIAL = 64;
+
+	private long[] x = new long[CAPACIDAD_INICIAL];
+	private long[] y = new long[CAPACIDAD_INICIAL];
+	private int total = 0;
+
+	/**
+	 * Leer los sitios del flujo pasado como parametro, que no se cierra
+	 */
+
+	public LectorPuntos(InputStream entrada) throws IOException {
+
+		JsonParser parser = FABRICA.createParser(entrada);
+
+		try {
+			leer(parser);
+		} finally {
+			parser.close();
+		}
+	}
+
+	/**
+	 * Leer los sitios del texto pasado como parametro, como el que llega en
+	 * pointsJson a los GET
+	 */
+
+	public LectorPuntos(String entrada) throws IOException {
+
+		JsonParser parser = FABRICA.createParser(entrada);
+
+		try {
+			leer(parser);
+		} finally {
+			parser.close();
+		}
+	}
+
+	/**
+	 * Leer los sitios del objeto en el que esta el analizador, que queda al
+	 * final del objeto. Para leer varios conjuntos del mismo texto
+	 */
+
+	LectorPuntos(JsonParser parser) throws IOException {
+
+		esperar(parser, parser.getCurrentToken(), JsonToken.START_OBJECT);
+		leerObjeto(parser);
+	}
+
+	private void leer(JsonParser parser) throws IOException {
+
+		esperar(parser, parser.nextToken(), JsonToken.START_OBJECT);
+		leerObjeto(parser);
+	}
+
+	private void leerObjeto(JsonParser parser) throws IOException {
+
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+
+			String campo = parser.getCurrentName();
+			JsonToken valor = parser.nextToken();
+
+			if (!"points".equals(campo) || valor == JsonToken.VALUE_NULL) {
+				parser.skipChildren();
+				continue;
+			}
+
+			esperar(parser, valor, JsonToken.START_ARRAY);
+
+			while (parser.nextToken() != JsonToken.END_ARRAY) {
+
+				esperar(parser, parser.getCurrentToken(), JsonToken.START_OBJECT);
+
+				long px = 0, py = 0;
+
+				while (parser.nextToken() == JsonToken.FIELD_NAME) {
+
+					String coordenada = parser.getCurrentName();
+					JsonToken numero = parser.nextToken();
+
+					if (!"x".equals(coordenada) && !"y".equals(coordenada)) {
+						parser.skipChildren();
+						continue;
+					}
+
+					if (numero != JsonToken.VALUE_NUMBER_INT && numero != JsonToken.VALUE_NUMBER_FLOAT)
+						throw new JsonParseException("Coordenada no numerica: " + numero, parser.getCurrentLocation());
+
+					if ("x".equals(coordenada))
+						px = parser.getLongValue();
+					else
+						py = parser.getLongValue();
+				}
+
+				esperar(parser, parser.getCurrentToken(), JsonToken.END_OBJECT);
+				unoMas(px, py);
+			}
+		}
+
+		esperar(parser, parser.getCurrentToken(), JsonToken.END_OBJECT);
+	}
+
+	static void esperar(JsonParser parser, JsonToken leido, JsonToken esperado) throws JsonParseException {
+
+		if (leido != esperado)
+			throw new JsonParseException("Se esperaba " + esperado + " y se leyo " + leido, parser.getCurrentLocation());
+	}
+
+	private void unoMas(long px, long py) {
+
+		if (total == x.length) {
+			x = Arrays.copyOf(x, 2 * total);
+			y = Arrays.copyOf(y, 2 * total);
+		}
+
+		x[total] = px;
+		y[total] = py;
+		total++;
+	}
+
+	/**
+	 * Devuelve el numero de sitios leidos
+	 */
+
+	public int total() {
+		return total;
+	}
+
+	/**
+	 * Devuelve las abscisas de los sitios. Solo son validas las total()
+	 * primeras posiciones
+	 */
+
+	public long[] x() {
+		return x;
+	}
+
+	/**
+	 * Devuelve las ordenadas de los sitios. Solo son validas las total()
+	 * primeras posiciones
+	 */
+
+	public long[] y() {
+		return y;
+	}
+
+}
@@ -1,20 +1,49 @@
 package com.aalburquerque.voronoi.service;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 
+import javax.annotation.PostConstruct;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.aalburquerque.voronoi.algorithms.SelectorMetodo;
 import com.aalburquerque.voronoi.struc.ICoord;
-import com.aalburquerque.voronoi.struc.impl.InputPoints;
+import com.aalburquerque.voronoi.struc.impl.CacheOutput;
+import com.aalburquerque.voronoi.struc.impl.CeldasOutput;
+import com.aalburquerque.voronoi.struc.impl.DelaunayOutput;
+import com.aalburquerque.voronoi.struc.impl.InputRealPoints;
 import com.aalburquerque.voronoi.struc.impl.InstanciaVoronoi;
+import com.aalburquerque.voronoi.struc.impl.LoteOutput;
 import com.aalburquerque.voronoi.struc.impl.Nube2D;
+import com.aalburquerque.voronoi.struc.impl.RealVoronoiOutput;
+import com.aalburquerque.voronoi.struc.impl.TrabajoOutput;
 import com.aalburquerque.voronoi.struc.impl.VoronoiOutput;
+import com.aalburquerque.voronoi.util.Marco;
+import com.aalburquerque.voronoi.util.Util;
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.databind.JsonMappingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 @RestController
 public class VoronoiController {
@@ -22,10 +51,43 @@ public class VoronoiController {
 	// tamaño base para divide y venceras en el calculo del cierre convexo en el espacio
 	private static final int DEFAULT_TAM_BASE = 30;
 
+	// calculos simultaneos y en espera de /trabajos, y cuanto y cuantos se
+	// guardan los resultados
+	private static final int HILOS_TRABAJOS = Runtime.getRuntime().availableProcessors();
+	private static final int COLA_TRABAJOS = 32;
+	private static final long RETENCION_TRABAJOS = 10 * 60 * 1000L;
+	private static final int MAXIMO_TRABAJOS = 256;
+
+	// tramos en que se reparte un lote por cada nucleo, para equilibrar la
+	// carga entre conjuntos de distinto tamano
+	private static final int TRAMOS_POR_NUCLEO = 4;
+
+	// diagramas y peso aproximado en bytes que guarda la cache de /voronoi
+	private static final int MAXIMO_CACHE = 1024;
+	private static final long PESO_MAXIMO_CACHE = 64L << 20;
+
+	private final CacheVoronoi cache = new CacheVoronoi(MAXIMO_CACHE, PESO_MAXIMO_CACHE);
+
+	private final GestorTrabajos trabajos = new GestorTrabajos(HILOS_TRABAJOS, COLA_TRABAJOS, RETENCION_TRABAJOS,
+			MAXIMO_TRABAJOS);
+
+	/**
+	 * Mide los coeficientes de SelectorMetodo al arrancar el servicio, para
+	 * que no lo haga la primera peticion con METODO_AUTOMATICO
+	 */
+	@PostConstruct
+	public void calibrarSelector() {
+		SelectorMetodo.calibrado();
+	}
+
 	/**
 	 * 
 	 * Input Sample:{"points":[{"x":123,"y":53},{"x":343,"y":33},{"x":563,"y":93},{"x":233,"y":83},{"x":213,"y":63},{"x":23,"y":34},{"x":83,"y":123}]}
 	 * 
+	 * Las aristas no acotadas se cortan en el marco [xmin,xmax] x [ymin,ymax],
+	 * por defecto de Util.LIMX por Util.LIMY. Los diagramas se guardan en una
+	 * CacheVoronoi, y los mismos sitios con el mismo marco no se recalculan
+	 * 
 	 * @param pointsJson
 	 * @return
 	 * @throws JsonMappingException
@@ -33,13 +95,385 @@ public class VoronoiController {
 	 * @throws IOException
 	 */
 	@RequestMapping(value = "/voronoi", method = RequestMethod.GET)
-	public VoronoiOutput voronoiCalculus(@RequestParam("pointsJson") String pointsJson)
+	public VoronoiOutput voronoiCalculus(@RequestParam("pointsJson") String pointsJson,
+			@RequestParam(value = "xmin", defaultValue = "0") int xmin,
+			@RequestParam(value = "ymin", defaultValue = "0") int ymin,
+			@RequestParam(value = "xmax", defaultValue = "" + Util.LIMX) int xmax,
+			@RequestParam(value = "ymax", defaultValue = "" + Util.LIMY) int ymax)
 			throws JsonMappingException, JsonParseException, IOException {
 		
-		InputPoints inputPoints = new ObjectMapper().readValue(pointsJson, InputPoints.class);
-		InstanciaVoronoi unaInstancia = new InstanciaVoronoi(new Nube2D(inputPoints), DEFAULT_TAM_BASE);
+		return voronoiConCache(new ByteArrayInputStream(pointsJson.getBytes(StandardCharsets.UTF_8)),
+				new Marco(xmin, ymin, xmax, ymax));
+	}
+
+	/**
+	 * 
+	 * Igual que GET /voronoi, pero los sitios van en el cuerpo de la peticion,
+	 * con el mismo formato, y se leen con LectorPuntos. No tiene el limite de
+	 * longitud de la URL
+	 * 
+	 * @param cuerpo
+	 * @return
+	 * @throws IOException
+	 */
+	@RequestMapping(value = "/voronoi", method = RequestMethod.POST, consumes = "application/json")
+	public VoronoiOutput voronoiCalculusPost(InputStream cuerpo,
+			@RequestParam(value = "xmin", defaultValue = "0") int xmin,
+			@RequestParam(value = "ymin", defaultValue = "0") int ymin,
+			@RequestParam(value = "xmax", defaultValue = "" + Util.LIMX) int xmax,
+			@RequestParam(value = "ymax", defaultValue = "" + Util.LIMY) int ymax) throws IOException {
+
+		return voronoiConCache(cuerpo, new Marco(xmin, ymin, xmax, ymax));
+	}
+
+	/**
+	 * 
+	 * Aciertos, fallos y ocupacion de la cache de /voronoi
+	 * 
+	 * @return
+	 */
+	@RequestMapping(value = "/voronoi/cache", method = RequestMethod.GET)
+	public CacheOutput estadisticasCache() {
+		return cache.estadisticas();
+	}
+
+	/**
+	 * 
+	 * Igual que POST /voronoi, pero si se pide application/x-ndjson las
+	 * aristas se escriben en la respuesta segun se recorre el diagrama, una
+	 * por linea, sin pasar por VoronoiOutput. Para diagramas grandes
+	 * 
+	 * @param cuerpo
+	 * @return
+	 * @throws IOException
+	 */
+	@RequestMapping(value = "/voronoi", method = RequestMethod.POST, consumes = "application/json",
+			produces = EscritorNDJSON.TIPO)
+	public ResponseEntity<StreamingResponseBody> voronoiCalculusStream(InputStream cuerpo,
+			@RequestParam(value = "xmin", defaultValue = "0") int xmin,
+			@RequestParam(value = "ymin", defaultValue = "0") int ymin,
+			@RequestParam(value = "xmax", defaultValue = "" + Util.LIMX) int xmax,
+			@RequestParam(value = "ymax", defaultValue = "" + Util.LIMY) int ymax) throws IOException {
+
+		LectorPuntos lector = new LectorPuntos(cuerpo);
+		final InstanciaVoronoi unaInstancia = new InstanciaVoronoi(
+				new Nube2D(lector.x(), lector.y(), lector.total()), DEFAULT_TAM_BASE);
+		unaInstancia.setMetodoCalculo(InstanciaVoronoi.METODO_AUTOMATICO);
+		unaInstancia.calculaVoronoi();
+
+		final Marco marco = new Marco(xmin, ymin, xmax, ymax);
+
+		StreamingResponseBody aristas = new StreamingResponseBody() {
+			public void writeTo(OutputStream salida) throws IOException {
+				EscritorNDJSON escritor = new EscritorNDJSON(salida);
+				unaInstancia.recorrerVoronoi(new MyCoord(), marco, escritor);
+				escritor.cerrar();
+			}
+		};
+
+		return ResponseEntity.ok().contentType(MediaType.valueOf(EscritorNDJSON.TIPO)).body(aristas);
+	}
+
+	/**
+	 * 
+	 * Igual que POST /voronoi, pero con los sitios en FormatoBinario. La
+	 * respuesta se da en el formato que pida la cabecera Accept, JSON o
+	 * binario, como en los demas /voronoi
+	 * 
+	 * @param cuerpo
+	 * @return
+	 * @throws IOException
+	 */
+	@RequestMapping(value = "/voronoi", method = RequestMethod.POST, consumes = { FormatoBinario.TIPO,
+			FormatoBinario.TIPO_VARINT })
+	public VoronoiOutput voronoiCalculusBinario(InputStream cuerpo,
+			@RequestParam(value = "xmin", defaultValue = "0") int xmin,
+			@RequestParam(value = "ymin", defaultValue = "0") int ymin,
+			@RequestParam(value = "xmax", defaultValue = "" + Util.LIMX) int xmax,
+			@RequestParam(value = "ymax", defaultValue = "" + Util.LIMY) int ymax) throws IOException {
+
+		long[][] sitios = FormatoBinario.leerPuntos(cuerpo);
+		InstanciaVoronoi unaInstancia = new InstanciaVoronoi(new Nube2D(sitios[0], sitios[1], sitios[0].length),
+				DEFAULT_TAM_BASE);
+		unaInstancia.setMetodoCalculo(InstanciaVoronoi.METODO_AUTOMATICO);
+		unaInstancia.calculaVoronoi();
+		return unaInstancia.getVoronoiJSON(new MyCoord(), new Marco(xmin, ymin, xmax, ymax));
+	}
+
+	/**
+	 * 
+	 * Calcula en una sola peticion los diagramas de muchos conjuntos de sitios
+	 * independientes, {"sets":[{"points":[...]},...]}, y los devuelve en el
+	 * mismo orden. Los conjuntos se reparten en tramos entre los nucleos, y
+	 * cada uno se calcula en el plano, que para pocos sitios es lo mas rapido
+	 * y reutiliza los arrays de trabajo del hilo. Si falla un conjunto falla
+	 * la peticion entera
+	 * 
+	 * @param cuerpo
+	 * @return
+	 * @throws IOException
+	 */
+	@RequestMapping(value = "/voronoi/lotes", method = RequestMethod.POST, consumes = "application/json")
+	public LoteOutput voronoiLotes(InputStream cuerpo,
+			@RequestParam(value = "xmin", defaultValue = "0") int xmin,
+			@RequestParam(value = "ymin", defaultValue = "0") int ymin,
+			@RequestParam(value = "xmax", defaultValue = "" + Util.LIMX) int xmax,
+			@RequestParam(value = "ymax", defaultValue = "" + Util.LIMY) int ymax) throws IOException {
+
+		final List<LectorPuntos> conjuntos = new LectorLotes(cuerpo).conjuntos();
+		final VoronoiOutput[] diagramas = new VoronoiOutput[conjuntos.size()];
+		final Marco marco = new Marco(xmin, ymin, xmax, ymax);
+
+		int tramos = Math.min(diagramas.length, TRAMOS_POR_NUCLEO * Runtime.getRuntime().availableProcessors());
+
+		List<Callable<Void>> tareas = new ArrayList<Callable<Void>>(tramos);
+
+		for (int t = 0; t < tramos; t++) {
+
+			final int desde = (int) ((long) t * diagramas.length / tramos);
+			final int hasta = (int) ((long) (t + 1) * diagramas.length / tramos);
+
+			tareas.add(new Callable<Void>() {
+				public Void call() {
+					for (int i = desde; i < hasta; i++) {
+						LectorPuntos lector = conjuntos.get(i);
+						InstanciaVoronoi unaInstancia = new InstanciaVoronoi(
+								new Nube2D(lector.x(), lector.y(), lector.total()), DEFAULT_TAM_BASE);
+						unaInstancia.setMetodoCalculo(InstanciaVoronoi.METODO_PLANO);
+						unaInstancia.calculaVoronoi();
+						diagramas[i] = unaInstancia.getVoronoiJSON(new MyCoord(), marco);
+					}
+					return null;
+				}
+			});
+		}
+
+		try {
+			for (Future<Void> tramo : ForkJoinPool.commonPool().invokeAll(tareas))
+				tramo.get();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Calculo del lote interrumpido", ex);
+		} catch (ExecutionException ex) {
+			throw new RuntimeException("Error al calcular el lote", ex.getCause());
+		}
+
+		return new LoteOutput(Arrays.asList(diagramas));
+	}
+
+	/**
+	 * 
+	 * Igual que POST /voronoi, pero el calculo se encola y se hace fuera del
+	 * hilo de la peticion. Devuelve enseguida el trabajo, con 202, y su id
+	 * sirve para consultar /trabajos/{id} y recoger /trabajos/{id}/resultado.
+	 * Si hay demasiados trabajos en cola responde 503
+	 * 
+	 * @param cuerpo
+	 * @return
+	 * @throws IOException
+	 */
+	@RequestMapping(value = "/trabajos", method = RequestMethod.POST, consumes = "application/json")
+	public ResponseEntity<TrabajoOutput> enviarTrabajo(InputStream cuerpo,
+			@RequestParam(value = "xmin", defaultValue = "0") int xmin,
+			@RequestParam(value = "ymin", defaultValue = "0") int ymin,
+			@RequestParam(value = "xmax", defaultValue = "" + Util.LIMX) int xmax,
+			@RequestParam(value = "ymax", defaultValue = "" + Util.LIMY) int ymax) throws IOException {
+
+		final LectorPuntos lector = new LectorPuntos(cuerpo);
+		final Marco marco = new Marco(xmin, ymin, xmax, ymax);
+
+		String id;
+
+		try {
+			id = trabajos.enviar(new Callable<VoronoiOutput>() {
+				public VoronoiOutput call() {
+					InstanciaVoronoi unaInstancia = new InstanciaVoronoi(
+							new Nube2D(lector.x(), lector.y(), lector.total()), DEFAULT_TAM_BASE);
+					unaInstancia.setMetodoCalculo(InstanciaVoronoi.METODO_AUTOMATICO);
+					unaInstancia.calculaVoronoi();
+					return unaInstancia.getVoronoiJSON(new MyCoord(), marco);
+				}
+			});
+		} catch (RejectedExecutionException ex) {
+			return new ResponseEntity<TrabajoOutput>(HttpStatus.SERVICE_UNAVAILABLE);
+		}
+
+		return new ResponseEntity<TrabajoOutput>(trabajos.estado(id), HttpStatus.ACCEPTED);
+	}
+
+	/**
+	 * 
+	 * El estado de un trabajo, o 404 si no existe o ya se elimino
+	 * 
+	 * @param id
+	 * @return
+	 */
+	@RequestMapping(value = "/trabajos/{id}", method = RequestMethod.GET)
+	public ResponseEntity<TrabajoOutput> estadoTrabajo(@PathVariable("id") String id) {
+
+		TrabajoOutput estado = trabajos.estado(id);
+
+		if (estado == null)
+			return new ResponseEntity<TrabajoOutput>(HttpStatus.NOT_FOUND);
+
+		return new ResponseEntity<TrabajoOutput>(estado, HttpStatus.OK);
+	}
+
+	/**
+	 * 
+	 * El diagrama de un trabajo terminado; 409 si aun no ha terminado o
+	 * fallo, y 404 si no existe
+	 * 
+	 * @param id
+	 * @return
+	 */
+	@RequestMapping(value = "/trabajos/{id}/resultado", method = RequestMethod.GET)
+	public ResponseEntity<VoronoiOutput> resultadoTrabajo(@PathVariable("id") String id) {
+
+		if (trabajos.estado(id) == null)
+			return new ResponseEntity<VoronoiOutput>(HttpStatus.NOT_FOUND);
+
+		VoronoiOutput resultado = trabajos.resultado(id);
+
+		if (resultado == null)
+			return new ResponseEntity<VoronoiOutput>(HttpStatus.CONFLICT);
+
+		return new ResponseEntity<VoronoiOutput>(resultado, HttpStatus.OK);
+	}
+
+	/**
+	 * 
+	 * Elimina un trabajo pendiente, que ya no se calcula, o terminado. Un
+	 * trabajo que se esta calculando no se puede interrumpir: no se elimina y
+	 * se responde 409 con su estado. 404 si no existe
+	 * 
+	 * @param id
+	 * @return
+	 */
+	@RequestMapping(value = "/trabajos/{id}", method = RequestMethod.DELETE)
+	public ResponseEntity<TrabajoOutput> eliminarTrabajo(@PathVariable("id") String id) {
+
+		TrabajoOutput estado = trabajos.eliminar(id);
+
+		if (estado == null)
+			return new ResponseEntity<TrabajoOutput>(HttpStatus.NOT_FOUND);
+
+		if (GestorTrabajos.CALCULANDO.equals(estado.getEstado()))
+			return new ResponseEntity<TrabajoOutput>(estado, HttpStatus.CONFLICT);
+
+		return new ResponseEntity<TrabajoOutput>(HttpStatus.NO_CONTENT);
+	}
+
+	/**
+	 * 
+	 * Igual que /voronoi, pero en lugar de las aristas sueltas devuelve la
+	 * celda de cada sitio como poligono, recortada al marco
+	 * 
+	 * @param pointsJson
+	 * @return
+	 * @throws JsonMappingException
+	 * @throws JsonParseException
+	 * @throws IOException
+	 */
+	@RequestMapping(value = "/voronoi/celdas", method = RequestMethod.GET)
+	public CeldasOutput voronoiCeldas(@RequestParam("pointsJson") String pointsJson,
+			@RequestParam(value = "xmin", defaultValue = "0") int xmin,
+			@RequestParam(value = "ymin", defaultValue = "0") int ymin,
+			@RequestParam(value = "xmax", defaultValue = "" + Util.LIMX) int xmax,
+			@RequestParam(value = "ymax", defaultValue = "" + Util.LIMY) int ymax)
+			throws JsonMappingException, JsonParseException, IOException {
+
+		LectorPuntos lector = new LectorPuntos(pointsJson);
+		InstanciaVoronoi unaInstancia = new InstanciaVoronoi(new Nube2D(lector.x(), lector.y(), lector.total()),
+				DEFAULT_TAM_BASE);
+		unaInstancia.setMetodoCalculo(InstanciaVoronoi.METODO_AUTOMATICO);
 		unaInstancia.calculaVoronoi();
-		return unaInstancia.getPoliedro().getVoronoiJSON(new MyCoord());
+		return unaInstancia.getCeldas(new MyCoord(), new Marco(xmin, ymin, xmax, ymax));
+	}
+
+	/**
+	 * 
+	 * La triangulacion de Delaunay de los sitios, como ternas de indices en la
+	 * lista de puntos de la entrada
+	 * 
+	 * Input Sample:{"points":[{"x":123,"y":53},{"x":343,"y":33},{"x":563,"y":93},{"x":233,"y":83}]}
+	 * 
+	 * @param pointsJson
+	 * @return
+	 * @throws JsonMappingException
+	 * @throws JsonParseException
+	 * @throws IOException
+	 */
+	@RequestMapping(value = "/delaunay", method = RequestMethod.GET)
+	public DelaunayOutput delaunayCalculus(@RequestParam("pointsJson") String pointsJson)
+			throws JsonMappingException, JsonParseException, IOException {
+
+		LectorPuntos lector = new LectorPuntos(pointsJson);
+		InstanciaVoronoi unaInstancia = new InstanciaVoronoi(new Nube2D(lector.x(), lector.y(), lector.total()),
+				DEFAULT_TAM_BASE);
+		unaInstancia.setMetodoCalculo(InstanciaVoronoi.METODO_AUTOMATICO);
+		unaInstancia.calculaVoronoi();
+		return unaInstancia.getDelaunay(lector.x(), lector.y(), lector.total());
+	}
+
+	/**
+	 * 
+	 * Igual que /voronoi pero con coordenadas reales, sin cuantizar: el
+	 * diagrama se devuelve en las mismas coordenadas que los sitios
+	 * 
+	 * Input Sample:{"points":[{"x":-3.7038,"y":40.4168},{"x":-3.6883,"y":40.4531},{"x":-3.7123,"y":40.4010},{"x":-3.6754,"y":40.4297}]}
+	 * 
+	 * @param pointsJson
+	 * @return
+	 * @throws JsonMappingException
+	 * @throws JsonParseException
+	 * @throws IOException
+	 */
+	@RequestMapping(value = "/voronoi/real", method = RequestMethod.GET)
+	public RealVoronoiOutput voronoiRealCalculus(@RequestParam("pointsJson") String pointsJson)
+			throws JsonMappingException, JsonParseException, IOException {
+
+		InputRealPoints inputPoints = ConfiguracionJson.MAPEADOR.readValue(pointsJson, InputRealPoints.class);
+		InstanciaVoronoi unaInstancia = new InstanciaVoronoi(inputPoints);
+		unaInstancia.calculaVoronoi();
+		return unaInstancia.getVoronoiReal();
+	}
+
+	// el diagrama de los sitios del cuerpo, de la cache si ya se calculo. El
+	// cuerpo se resume segun lo lee LectorPuntos, sin copiarlo, y si se repite
+	// tal cual no se ordenan ni se resumen los sitios
+	private VoronoiOutput voronoiConCache(InputStream cuerpo, Marco marco) throws IOException {
+
+		MessageDigest resumen = CacheVoronoi.resumenCuerpo();
+		DigestInputStream entrada = new DigestInputStream(cuerpo, resumen);
+		LectorPuntos lector = new LectorPuntos(entrada);
+
+		// lo que venga detras del objeto tambien es parte del cuerpo
+		byte[] resto = new byte[256];
+		while (entrada.read(resto) != -1)
+			;
+
+		CacheVoronoi.Clave claveCuerpo = CacheVoronoi.claveCuerpo(resumen, marco);
+		VoronoiOutput salida = cache.buscarCuerpo(claveCuerpo);
+
+		if (salida != null)
+			return salida;
+
+		CacheVoronoi.Clave claveSitios = CacheVoronoi.claveSitios(lector.x(), lector.y(), lector.total(), marco);
+		salida = cache.buscar(claveSitios, claveCuerpo);
+
+		if (salida != null)
+			return salida;
+
+		InstanciaVoronoi unaInstancia = new InstanciaVoronoi(new Nube2D(lector.x(), lector.y(), lector.total()),
+				DEFAULT_TAM_BASE);
+		unaInstancia.setMetodoCalculo(InstanciaVoronoi.METODO_AUTOMATICO);
+		unaInstancia.calculaVoronoi();
+		salida = unaInstancia.getVoronoiJSON(new MyCoord(), marco);
+
+		cache.guardar(claveSitios, claveCuerpo, salida);
+
+		return salida;
 	}
 
 	private class MyCoord implements ICoord {
@@ -0,0 +1,77 @@
+/*
+  This file is part of com.aalburquerque.voronoi API.
+
+    com.aalburquerque.voronoi API is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    com.aalburquerque.voronoi API is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with com.aalburquerque.voronoi API.  If not, see <http://www.gnu.org/licenses/>
+*/
+
+package com.aalburquerque.voronoi.struc;
+
+import com.aalburquerque.voronoi.struc.impl.VoronoiOutput;
+import com.aalburquerque.voronoi.util.Marco;
+
+/**
+ * Interfaz que implementa todo objeto capaz de dar el diagrama de Voronoi de
+ * una instancia de problema ya calculada, sea a partir del cierre convexo de
+ * los sitios elevados (Poliedro) o de una triangulacion de Delaunay en el
+ * plano (Triangulacion)
+ * 
+ * @author Antonio Alburquerque Oliva
+ * @version 1.00
+ */
+
+public interface IDiagrama {
+
+	/**
+	 * Devuelve los segmentos del diagrama de Voronoi en coordenadas del area
+	 * de dibujo
+	 * 
+	 * @param coord
+	 *            El objeto encargado de transformar apropiadamente las
+	 *            coordenadas del diagrama a las coordenadas del area de dibujo
+	 */
+
+	public VoronoiOutput getVoronoiJSON(ICoord coord);
+
+	/**
+	 * Devuelve los segmentos del diagrama de Voronoi en coordenadas del area
+	 * de dibujo, con las aristas no acotadas recortadas al marco dado
+	 * 
+	 * @param coord
+	 *            El objeto encargado de transformar apropiadamente las
+	 *            coordenadas del diagrama a las coordenadas del area de dibujo
+	 * @param marco
+	 *            El rectangulo del area de dibujo hasta el que llegan las
+	 *            aristas no acotadas
+	 */
+
+	public VoronoiOutput getVoronoiJSON(ICoord coord, Marco marco);
+
+	/**
+	 * Igual que getVoronoiJSON(coord, marco), pero en lugar de guardar los
+	 * segmentos en una salida se pasan al receptor segun se recorre el
+	 * diagrama
+	 * 
+	 * @param coord
+	 *            El objeto encargado de transformar apropiadamente las
+	 *            coordenadas del diagrama a las coordenadas del area de dibujo
+	 * @param marco
+	 *            El rectangulo del area de dibujo hasta el que llegan las
+	 *            aristas no acotadas
+	 * @param receptor
+	 *            El que recibe los segmentos
+	 */
+
+	public void recorrerVoronoi(ICoord coord, Marco marco, IReceptorLineas receptor);
+
+}
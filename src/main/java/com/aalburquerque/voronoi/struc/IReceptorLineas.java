@@ -0,0 +1,46 @@
+/*
+  This file is part of com.aalburquerque.voronoi API.
+
+    com.aalburquerque.voronoi API is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    com.aalburquerque.voronoi API is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with com.aalburquerque.voronoi API.  If not, see <http://www.gnu.org/licenses/>
+*/
+
+package com.aalburquerque.voronoi.struc;
+
+import com.aalburquerque.voronoi.struc.impl.Line;
+
+/**
+ * Interfaz de lo que recibe las lineas del diagrama de Voronoi segun se van
+ * sacando del diagrama. VoronoiOutput las guarda en una lista; otros
+ * receptores las pueden escribir directamente, sin guardarlas
+ * 
+ * @author Antonio Alburquerque Oliva
+ * @version 1.00
+ */
+
+public interface IReceptorLineas {
+
+	/**
+	 * Recibe el segmento de extremos (x1, y1) y (x2, y2), en coordenadas del
+	 * area de dibujo
+	 */
+
+	public void addLine(int x1, int y1, int x2, int y2);
+
+	/**
+	 * Recibe la linea pasada
+	 */
+
+	public void addLine(Line line);
+
+}
@@ -19,6 +19,7 @@ package com.aalburquerque.voronoi.struc.impl;
 
 import java.io.Serializable;
 import java.util.ListIterator;
+import java.util.function.Predicate;
 
 import com.aalburquerque.voronoi.struc.ListAdaptor;
 import com.aalburquerque.voronoi.util.EstadoColor;
@@ -152,12 +153,15 @@ public class Aristas extends ListaDE implements Serializable {
 			a = una.caraIzq().nz();
 			b = una.caraDer().nz();
 
+			// se comparan los signos y no el producto, que con coordenadas
+			// grandes desborda un long
+
 			if (a == 0 && b == 0) // es una arista q une dos triangulos
 									// coplanares
 
 				continue; // no tratarla
 
-			else if (a == 0 || b == 0 || a * b < 0) {
+			else if (a == 0 || b == 0 || Long.signum(a) != Long.signum(b)) {
 				/*
 				 * if (a>0) // System.out.println(una.caraIzq().toString()+" "
 				 * +a+" "+b+una.verticesString()); if (b>0) //
@@ -167,7 +171,7 @@ public class Aristas extends ListaDE implements Serializable {
 				if (una.ori().x() == una.des().x() && una.ori().y() == una.des().y())
 					continue; // no proyectar un punto
 
-				if (a * b < 0) {
+				if (Long.signum(a) * Long.signum(b) < 0) {
 
 					una.setEstado(NodoArista.BORDESEGURO);
 
@@ -282,16 +286,11 @@ public class Aristas extends ListaDE implements Serializable {
 
 		// PASO 2: eliminar aristas
 
-		iter1 = listIterator();
-
-		while (iter1.hasNext()) {
-
-			n = (NodoArista) iter1.next();
-
-			if (n.getEstado() == NodoArista.BORRABLE)
-				iter1.remove();
-
-		}
+		compactar(new Predicate<Object>() {
+			public boolean test(Object o) {
+				return ((NodoArista) o).getEstado() == NodoArista.BORRABLE;
+			}
+		});
 	}
 
 	/**
@@ -0,0 +1,71 @@
+package com.aalburquerque.voronoi.struc.impl;
+
+public class CacheOutput {
+
+	private int entradas;
+	private long peso;
+	private long aciertos;
+	private long aciertosCuerpo;
+	private long fallos;
+	private long expulsiones;
+
+	public CacheOutput() {
+	}
+
+	public CacheOutput(int entradas, long peso, long aciertos, long aciertosCuerpo, long fallos, long expulsiones) {
+		setEntradas(entradas);
+		setPeso(peso);
+		setAciertos(aciertos);
+		setAciertosCuerpo(aciertosCuerpo);
+		setFallos(fallos);
+		setExpulsiones(expulsiones);
+	}
+
+	public int getEntradas() {
+		return entradas;
+	}
+
+	public void setEntradas(int entradas) {
+		this.entradas = entradas;
+	}
+
+	public long getPeso() {
+		return peso;
+	}
+
+	public void setPeso(long peso) {
+		this.peso = peso;
+	}
+
+	public long getAciertos() {
+		return aciertos;
+	}
+
+	public void setAciertos(long aciertos) {
+		this.aciertos = aciertos;
+	}
+
+	public long getAciertosCuerpo() {
+		return aciertosCuerpo;
+	}
+
+	public void setAciertosCuerpo(long aciertosCuerpo) {
+		this.aciertosCuerpo = aciertosCuerpo;
+	}
+
+	public long getFallos() {
+		return fallos;
+	}
+
+	public void setFallos(long fallos) {
+		this.fallos = fallos;
+	}
+
+	public long getExpulsiones() {
+		return expulsiones;
+	}
+
+	public void setExpulsiones(long expulsiones) {
+		this.expulsiones = expulsiones;
+	}
+}
@@ -19,6 +19,7 @@ package com.aalburquerque.voronoi.struc.impl;
 
 import java.io.Serializable;
 import java.util.ListIterator;
+import java.util.function.Predicate;
 
 import com.aalburquerque.voronoi.util.EstadoColor;
 import com.aalburquerque.voronoi.util.GC;
@@ -119,17 +120,11 @@ public class Caras extends ListaDE implements Serializable{
       
   public void limpiar(){
   	
-  	ListIterator l = listIterator();
-  	
-  	Triangulo3d c;
-  	
-  	while (l.hasNext() ){
-  		
-  		c = (Triangulo3d)l.next();
-  		
-  		if (c.getEstado()==Triangulo3d.VISIBLE) l.remove();
-  		
-  	}
+  	compactar(new Predicate<Object>() {
+  		public boolean test(Object o) {
+  			return ((Triangulo3d)o).getEstado()==Triangulo3d.VISIBLE;
+  		}
+  	});
   }
  		
     /**
@@ -0,0 +1,41 @@
+package com.aalburquerque.voronoi.struc.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * La celda de Voronoi de un sitio. El sitio va en las coordenadas de la
+ * entrada y los vertices de la celda, en orden y sentido positivo, en las del
+ * area de dibujo, como las lineas de VoronoiOutput
+ */
+
+public class Celda {
+
+	Punto2D sitio;
+
+	List<Punto2D> vertices = new ArrayList<Punto2D>();
+
+	public Celda() {
+	}
+
+	public Celda(Punto2D sitio, List<Punto2D> vertices) {
+		this.sitio = sitio;
+		this.vertices = vertices;
+	}
+
+	public Punto2D getSitio() {
+		return sitio;
+	}
+
+	public void setSitio(Punto2D sitio) {
+		this.sitio = sitio;
+	}
+
+	public List<Punto2D> getVertices() {
+		return vertices;
+	}
+
+	public void setVertices(List<Punto2D> vertices) {
+		this.vertices = vertices;
+	}
+}
@@ -0,0 +1,38 @@
+package com.aalburquerque.voronoi.struc.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class CeldasOutput {
+
+	List<Celda> celdas = new ArrayList<Celda>();
+
+	InformeCalculo informe;
+
+	public CeldasOutput() {
+	}
+
+	public CeldasOutput(int capacidad) {
+		celdas = new ArrayList<Celda>(capacidad);
+	}
+
+	public List<Celda> getCeldas() {
+		return celdas;
+	}
+
+	public void setCeldas(List<Celda> celdas) {
+		this.celdas = celdas;
+	}
+
+	public InformeCalculo getInforme() {
+		return informe;
+	}
+
+	public void setInforme(InformeCalculo informe) {
+		this.informe = informe;
+	}
+
+	public void addCelda(Celda celda) {
+		celdas.add(celda);
+	}
+}
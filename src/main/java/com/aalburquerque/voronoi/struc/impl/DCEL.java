@@ -21,10 +21,12 @@ package com.aalburquerque.voronoi.struc.impl;
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.Serializable;
+import java.util.ArrayDeque;
 import java.util.ListIterator;
 
 import com.aalburquerque.voronoi.algorithms.DivideYvenceras;
 import com.aalburquerque.voronoi.algorithms.Incremental;
+import com.aalburquerque.voronoi.algorithms.IncrementalAleatorio;
 import com.aalburquerque.voronoi.exception.SinGanadoraException;
 import com.aalburquerque.voronoi.struc.ListAdaptor;
 import com.aalburquerque.voronoi.util.EstadoColor;
@@ -71,10 +73,6 @@ public class DCEL implements Serializable {
 
 	protected Caras caras;
 
-	private static Incremental procesoIncremental;
-
-	private static DivideYvenceras procesoDivideyvenceras;
-
 	/**
 	 * Constante para hacer referencia al proceso incremental de construccion
 	 * del cierre convexo
@@ -89,7 +87,36 @@ public class DCEL implements Serializable {
 
 	public static final boolean DIVIDE_Y_VENVERAS = false;
 
-	private boolean esIncremental; // para saber por cual metodo se hizo
+	/**
+	 * Constante para elegir el proceso por divide y venceras en el
+	 * constructor que recibe el metodo como entero
+	 */
+
+	public static final int METODO_DIVIDE_Y_VENCERAS = 0;
+
+	/**
+	 * Constante para elegir el proceso incremental en el constructor que
+	 * recibe el metodo como entero
+	 */
+
+	public static final int METODO_INCREMENTAL = 1;
+
+	/**
+	 * Constante para elegir el proceso incremental aleatorizado con grafo de
+	 * conflictos en el constructor que recibe el metodo como entero
+	 */
+
+	public static final int METODO_ALEATORIO = 2;
+
+	/**
+	 * Constante para elegir el proceso por divide y venceras construyendo los
+	 * subproblemas en paralelo en el constructor que recibe el metodo como
+	 * entero
+	 */
+
+	public static final int METODO_PARALELO = 4;
+
+	private int metodo; // para saber por cual metodo se hizo
 
 	/**
 	 * Constructor copia
@@ -120,24 +147,49 @@ public class DCEL implements Serializable {
 
 	public DCEL(Punto3d[] puntos, boolean porincremental, int cota) {
 
+		this(puntos, porincremental ? METODO_INCREMENTAL : METODO_DIVIDE_Y_VENCERAS, cota);
+	}
+
+	/**
+	 * Para construir un poliedro a partir de un array de puntos eligiendo el
+	 * proceso de construccion: METODO_DIVIDE_Y_VENCERAS, METODO_INCREMENTAL,
+	 * METODO_ALEATORIO o METODO_PARALELO
+	 */
+
+	public DCEL(Punto3d[] puntos, int metodo, int cota) {
+
 		if (puntos.length < 4)
 			throw new RuntimeException("No se admiten menos de 4 puntos");
 
-		esIncremental = porincremental;
+		// como en el constructor sin metodo, por debajo de la cota no se divide
+
+		if (metodo == METODO_PARALELO && puntos.length < cota)
+			metodo = METODO_INCREMENTAL;
+
+		this.metodo = metodo;
 
 		aristas = new Aristas(this);
 		vertices = new Vertices();
 		caras = new Caras();
 
-		// construye la DCEL por el metodo correspondiente
+		// construye la DCEL por el metodo correspondiente. El proceso no se
+		// guarda: todo su estado es de esta construccion y queda en la DCEL
+
+		if (metodo == METODO_INCREMENTAL) {
+
+			new Incremental(this, puntos);
+
+		} else if (metodo == METODO_ALEATORIO) {
+
+			new IncrementalAleatorio(this, puntos);
 
-		if (esIncremental) {
+		} else if (metodo == METODO_PARALELO) {
 
-			procesoIncremental = new Incremental(this, puntos);
+			new DivideYvenceras(this, puntos, cota, true);
 
 		} else {
 
-			procesoDivideyvenceras = new DivideYvenceras(this, puntos, cota);
+			new DivideYvenceras(this, puntos, cota);
 		}
 
 	}
@@ -151,24 +203,32 @@ public class DCEL implements Serializable {
 
 	public DCEL(DCEL A, DCEL B) {
 
-		esIncremental = false;
+		metodo = METODO_DIVIDE_Y_VENCERAS;
 
 		aristas = new Aristas(this);
 		vertices = new Vertices();
 		caras = new Caras();
 
-		procesoDivideyvenceras = new DivideYvenceras(this, A, B);
+		new DivideYvenceras(this, A, B);
 
 	}
 
 	/**
 	 * Devuelve un cadena que informa sobre el metodo usado para la construccion
-	 * del poliedro. Las alternativas son que devuelve " Incremental " o
+	 * del poliedro. Las alternativas son que devuelve " Incremental ",
+	 * " Incremental aleatorio ", " Divide y venceras en paralelo " o
 	 * " Divide y venceras "
 	 */
 
 	public String metodoString() {
-		return esIncremental ? " Incremental " : " Divide y venceras";
+
+		if (metodo == METODO_INCREMENTAL)
+			return " Incremental ";
+		if (metodo == METODO_ALEATORIO)
+			return " Incremental aleatorio ";
+		if (metodo == METODO_PARALELO)
+			return " Divide y venceras en paralelo ";
+		return " Divide y venceras";
 	}
 
 	/**
@@ -326,7 +386,7 @@ public class DCEL implements Serializable {
 			String s;
 			ListIterator iter;
 
-			salida.write("METODO: " + (esIncremental ? " Incremental " : " Divide y venceras "));
+			salida.write("METODO: " + metodoString());
 			salida.write("\nVERTICES ---------------------------------------------------------------------- ");
 
 			salida.newLine();
@@ -1455,24 +1515,13 @@ public class DCEL implements Serializable {
 			return false;
 		}
 
-		// en la cara t se supone q sus vertices estan orientados segun un orden
-		// tal
-		// q su normal apunta hacia afuera de de C1
-
-		Triangulo3d nuevaCara = new Triangulo3d(exterior, comun, a1);
+		// en la cara (exterior, comun, a1) se supone q sus vertices estan
+		// orientados segun un orden tal q su normal apunta hacia afuera de
+		// C1. No se construye la cara: basta el volumen con cada candidato
 
 		// resultado : a0 no ve a la nueva cara ni esta alineada y a2 idem
 
-		// seguridad: boolean resultado = (!(GC.visible(nuevaCara,a0) ||
-		// GC.visible(nuevaCara,a2)));
-
-		boolean resultado = GC.volumen6(nuevaCara, a0) >= 0 && GC.volumen6(nuevaCara, a2) >= 0;
-
-		// boolean resultado = GC.volumen6(nuevaCara,a0)<=0 &&
-		// GC.volumen6(nuevaCara,a2)<=0;
-
-		// if (resultado!=resultado) throw new RuntimeException("FALLO TEST
-		// GANADORA");
+		boolean resultado = GC.volumen6(exterior, comun, a1, a0) >= 0 && GC.volumen6(exterior, comun, a1, a2) >= 0;
 
 		return resultado;
 	}
@@ -1501,20 +1550,12 @@ public class DCEL implements Serializable {
 			return false;
 		}
 
-		// en la cara t se supone q sus vertices estan orientados segun un orden
-		// tal
-		// q su normal apunta hacia afuera de C1
-
-		Triangulo3d nuevaCara = new Triangulo3d(exterior, a1, comun);
+		// en la cara (exterior, a1, comun) se supone q sus vertices estan
+		// orientados segun un orden tal q su normal apunta hacia afuera de C1
 
 		// resultado : a0 no ve a la nueva cara ni esta alineada y a2 idem
 
-		boolean resultado = GC.volumen6(nuevaCara, a0) >= 0 && GC.volumen6(nuevaCara, a2) >= 0;
-		// boolean resultado = GC.volumen6(nuevaCara,a0)<=0 &&
-		// GC.volumen6(nuevaCara,a2)<=0;
-
-		// if (resultado!=resultado) throw new RuntimeException("FALLO TEST
-		// GANADORA");
+		boolean resultado = GC.volumen6(exterior, a1, comun, a0) >= 0 && GC.volumen6(exterior, a1, comun, a2) >= 0;
 
 		return resultado;
 	}
@@ -1730,34 +1771,48 @@ public class DCEL implements Serializable {
 		aristas.marcarAristas();
 	}
 
-	private void marcarCarasRec(Triangulo3d actual) {
+	private void marcarCarasRec(Triangulo3d inicio) {
 
 		// primero recorre en profundidad (iterativamente)las caras de la parte
 		// q se va eliminar
 		// marcando en rojo las caras que correspondan
 
+		// el recorrido usa una pila explicita: en mezclas grandes la zona roja
+		// tiene miles de caras y la recursion desbordaba la pila del hilo
+
+		ArrayDeque<Triangulo3d> pendientes = new ArrayDeque<Triangulo3d>();
+
+		Triangulo3d actual;
+
 		Triangulo3d vecina;
 
 		NodoArista ladoActual;
 
 		ListAdaptor iter;
 
-		actual.setVisitado(true);
-		actual.ponColor(EstadoColor.ROJO);
+		inicio.setVisitado(true);
+		pendientes.push(inicio);
 
-		iter = caraIterator(actual);
+		while (!pendientes.isEmpty()) {
 
-		while (iter.hasNext()) {
+			actual = pendientes.pop();
+			actual.ponColor(EstadoColor.ROJO);
 
-			ladoActual = iter.next();
-			vecina = ladoActual.caraIzq() == actual ? ladoActual.caraDer() : ladoActual.caraIzq();
-			if (!vecina.esVisitado()
+			iter = caraIterator(actual);
 
-					&& (ladoActual.dameColor() != EstadoColor.PURPURA)) {
+			while (iter.hasNext()) {
 
-				marcarCarasRec(vecina);
-			}
+				ladoActual = iter.next();
+				vecina = ladoActual.caraIzq() == actual ? ladoActual.caraDer() : ladoActual.caraIzq();
+				if (!vecina.esVisitado()
+
+						&& (ladoActual.dameColor() != EstadoColor.PURPURA)) {
 
+					vecina.setVisitado(true);
+					pendientes.push(vecina);
+				}
+
+			}
 		}
 	}
 
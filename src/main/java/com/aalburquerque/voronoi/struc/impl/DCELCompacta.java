@@ -0,0 +1,507 @@
+/*
+  This file is part of com.aalburquerque.voronoi API.
+
+    com.aalburquerque.voronoi API is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    com.aalburquerque.voronoi API is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with com.aalburquerque.voronoi API.  If not, see <http://www.gnu.org/licenses/>
+*/
+
+package com.aalburquerque.voronoi.struc.impl;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.ListIterator;
+
+import com.aalburquerque.voronoi.struc.ICoord;
+import com.aalburquerque.voronoi.struc.IDiagrama;
+import com.aalburquerque.voronoi.struc.IReceptorLineas;
+import com.aalburquerque.voronoi.util.GC;
+import com.aalburquerque.voronoi.util.Marco;
+import com.aalburquerque.voronoi.util.Util;
+
+/**
+ * La clase DCELCompacta representa un poliedro convexo de caras triangulares
+ * igual que DCEL, pero guardado en arrays de tipos primitivos en lugar de
+ * listas de objetos Vertice3d, NodoArista y Triangulo3d. <br>
+ * Los vertices son columnas de coordenadas x, y, z. Cada cara f tiene tres
+ * semiaristas, 3f, 3f+1 y 3f+2, en orden CCW visto desde el exterior; la
+ * semiarista h sale del vertice origen(h), y su gemela, que recorre la misma
+ * arista en sentido contrario desde la cara vecina, es gemela(h). La cara y la
+ * siguiente semiarista de h no se guardan porque se deducen de su indice. <br>
+ * Los recorridos de DCEL tienen aqui su equivalente devolviendo indices de
+ * semiaristas en lugar de objetos NodoArista.
+ * 
+ * @author Antonio Alburquerque Oliva
+ * @version 1.00
+ * @see DCEL
+ */
+
+public class DCELCompacta implements IDiagrama, Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Recorrido sobre semiaristas de una DCELCompacta
+	 */
+
+	public interface Iterador {
+
+		/**
+		 * Devuelve cierto si hay siguiente semiarista
+		 */
+
+		public boolean hasNext();
+
+		/**
+		 * Devuelve la siguiente semiarista
+		 */
+
+		public int next();
+	}
+
+	private long[] x;
+	private long[] y;
+	private long[] z;
+	private int totalVertices;
+
+	private int[] origen;
+	private int[] gemela;
+	private int totalCaras;
+
+	private int[] aristaVertice; // una semiarista que sale de cada vertice
+
+	private boolean esDibujarNoAcotadas = true;
+
+	/**
+	 * Construir el poliedro a partir de sus arrays
+	 * 
+	 * @param x
+	 *            Abscisas de los vertices
+	 * @param y
+	 *            Ordenadas de los vertices
+	 * @param z
+	 *            Cotas de los vertices
+	 * @param origen
+	 *            Vertice de origen de cada semiarista, tres por cara en orden
+	 *            CCW visto desde el exterior
+	 * @param gemela
+	 *            Semiarista gemela de cada semiarista
+	 * @param totalCaras
+	 *            Numero de caras
+	 */
+
+	public DCELCompacta(long[] x, long[] y, long[] z, int[] origen, int[] gemela, int totalCaras) {
+
+		this.x = x;
+		this.y = y;
+		this.z = z;
+		this.totalVertices = x.length;
+		this.origen = origen;
+		this.gemela = gemela;
+		this.totalCaras = totalCaras;
+
+		aristaVertice = new int[totalVertices];
+		java.util.Arrays.fill(aristaVertice, -1);
+
+		for (int h = 0; h < 3 * totalCaras; h++)
+			aristaVertice[origen[h]] = h;
+	}
+
+	/**
+	 * Construir la version compacta de una DCEL ya construida por cualquiera
+	 * de sus procesos
+	 */
+
+	public DCELCompacta(DCEL dcel) {
+
+		totalVertices = dcel.totalVertices();
+		totalCaras = dcel.totalCaras();
+
+		x = new long[totalVertices];
+		y = new long[totalVertices];
+		z = new long[totalVertices];
+
+		IdentityHashMap<Vertice3d, Integer> indice = new IdentityHashMap<Vertice3d, Integer>();
+
+		ListIterator iter = dcel.vertices.listIterator();
+
+		for (int i = 0; i < totalVertices; i++) {
+			Vertice3d v = (Vertice3d) iter.next();
+			indice.put(v, i);
+			x[i] = v.x();
+			y[i] = v.y();
+			z[i] = v.z();
+		}
+
+		origen = new int[3 * totalCaras];
+		gemela = new int[3 * totalCaras];
+
+		// semiarista de cada arista dirigida, para casar las gemelas
+
+		HashMap<Long, Integer> dirigida = new HashMap<Long, Integer>(6 * totalCaras);
+
+		iter = dcel.caras.listIterator();
+
+		for (int f = 0; f < totalCaras; f++) {
+
+			Triangulo3d t = (Triangulo3d) iter.next();
+
+			// la arista de referencia de la cara da el sentido CCW: va de ori a
+			// des si la cara es su cara izquierda
+
+			NodoArista n = t.arista();
+
+			Vertice3d a = n.caraIzq() == t ? n.ori() : n.des();
+			Vertice3d b = n.caraIzq() == t ? n.des() : n.ori();
+			Vertice3d c = null;
+
+			for (Vertice3d v : t.toArray())
+				if (v != a && v != b)
+					c = v;
+
+			origen[3 * f] = indice.get(a);
+			origen[3 * f + 1] = indice.get(b);
+			origen[3 * f + 2] = indice.get(c);
+
+			for (int h = 3 * f; h < 3 * f + 3; h++)
+				dirigida.put((long) origen[h] * totalVertices + origen[siguiente(h)], h);
+		}
+
+		for (int h = 0; h < 3 * totalCaras; h++)
+			gemela[h] = dirigida.get((long) origen[siguiente(h)] * totalVertices + origen[h]);
+
+		aristaVertice = new int[totalVertices];
+		java.util.Arrays.fill(aristaVertice, -1);
+
+		for (int h = 0; h < 3 * totalCaras; h++)
+			aristaVertice[origen[h]] = h;
+	}
+
+	/**
+	 * Devuelve el numero total de vertices
+	 */
+
+	public int totalVertices() {
+		return totalVertices;
+	}
+
+	/**
+	 * Devuelve el numero total de caras
+	 */
+
+	public int totalCaras() {
+		return totalCaras;
+	}
+
+	/**
+	 * Devuelve el numero total de aristas
+	 */
+
+	public int totalAristas() {
+		return 3 * totalCaras / 2;
+	}
+
+	public long x(int v) {
+		return x[v];
+	}
+
+	public long y(int v) {
+		return y[v];
+	}
+
+	public long z(int v) {
+		return z[v];
+	}
+
+	public int origen(int h) {
+		return origen[h];
+	}
+
+	public int destino(int h) {
+		return origen[siguiente(h)];
+	}
+
+	public int gemela(int h) {
+		return gemela[h];
+	}
+
+	public int cara(int h) {
+		return h / 3;
+	}
+
+	public int siguiente(int h) {
+		return h % 3 == 2 ? h - 2 : h + 1;
+	}
+
+	public int anterior(int h) {
+		return h % 3 == 0 ? h + 2 : h - 1;
+	}
+
+	/**
+	 * Devuelve el valor de la coordenada z de la normal de la cara f, como
+	 * Triangulo3d.nz()
+	 */
+
+	public long nz(int f) {
+
+		int a = origen[3 * f], b = origen[3 * f + 1], c = origen[3 * f + 2];
+
+		return (x[b] - x[a]) * (y[c] - y[a]) - (y[b] - y[a]) * (x[c] - x[a]);
+	}
+
+	/**
+	 * Devuelve el circuncentro de la proyeccion en XY de la cara f, como
+	 * Triangulo3d.circuncentro()
+	 */
+
+	public long[] circuncentro(int f) {
+
+		int a = origen[3 * f], b = origen[3 * f + 1], c = origen[3 * f + 2];
+
+		return GC.circuncentro(x[a], y[a], x[b], y[b], x[c], y[c]);
+	}
+
+	/* ------------------------------------------------------------------- */
+	/* I T E R A D O R E S */
+	/* ------------------------------------------------------------------- */
+
+	/**
+	 * Iterador para recorrer las tres semiaristas de la cara f en orden CCW
+	 */
+
+	public Iterador caraIterator(final int f) {
+
+		return new Iterador() {
+
+			private int total = 0;
+
+			public boolean hasNext() {
+				return total != 3;
+			}
+
+			public int next() {
+				return 3 * f + total++;
+			}
+		};
+	}
+
+	/**
+	 * Iterador para recorrer en sentido positivo las semiaristas que salen
+	 * del vertice v
+	 */
+
+	public Iterador verticeIterator(int v) {
+
+		return new ItrVertice(aristaVertice[v], true);
+	}
+
+	/**
+	 * Iterador para recorrer en sentido negativo las semiaristas que salen
+	 * del vertice v
+	 */
+
+	public Iterador verticeIteratorCW(int v) {
+
+		return new ItrVertice(aristaVertice[v], false);
+	}
+
+	private class ItrVertice implements Iterador {
+
+		private int inicial, actual;
+		private boolean esinicio = true;
+		private boolean esCCW;
+
+		private ItrVertice(int inicial, boolean esCCW) {
+			this.inicial = this.actual = inicial;
+			this.esCCW = esCCW;
+		}
+
+		public boolean hasNext() {
+			return actual != -1 && (actual != inicial || esinicio);
+		}
+
+		public int next() {
+
+			int resultado = actual;
+
+			actual = esCCW ? gemela[anterior(actual)] : siguiente(gemela[actual]);
+
+			esinicio = false;
+
+			return resultado;
+		}
+	}
+
+	/**
+	 * Iterador para recorrer las aristas del poliedro que proyectadas
+	 * ortogonalmente en el plano XY forman el cierre convexo plano de los
+	 * puntos, en sentido positivo. Cada arista se da por la semiarista de la
+	 * cara que no es inferior, que es la que la recorre en ese sentido
+	 */
+
+	public Iterador sombraIterator() {
+
+		int inicial = -1;
+
+		for (int h = 0; h < 3 * totalCaras && inicial == -1; h++)
+			if (esBorde(h))
+				inicial = h;
+
+		return new ItrSombra(inicial);
+	}
+
+	// semiarista de una cara inferior cuya gemela no es de cara inferior
+
+	private boolean esBorde(int h) {
+		return nz(cara(h)) < 0 && nz(cara(gemela[h])) >= 0;
+	}
+
+	private class ItrSombra implements Iterador {
+
+		private int inicial, actual;
+		private boolean esinicio = true;
+
+		private ItrSombra(int inicial) {
+			this.inicial = this.actual = inicial;
+		}
+
+		public boolean hasNext() {
+			return actual != -1 && (actual != inicial || esinicio);
+		}
+
+		public int next() {
+
+			int resultado = gemela[actual];
+
+			// las caras inferiores se ven CW desde arriba: el borde en sentido
+			// positivo se recorre hacia atras, girando en torno al origen por
+			// las caras inferiores hasta dar con la siguiente del borde
+
+			int h = anterior(actual);
+			while (!esBorde(h))
+				h = anterior(gemela[h]);
+
+			actual = h;
+
+			esinicio = false;
+
+			return resultado;
+		}
+	}
+
+	/**
+	 * Devuelve la triangulacion de Delaunay, que es la proyeccion de las caras
+	 * inferiores, como las coordenadas x0, y0, x1, y1, x2, y2 de cada
+	 * triangulo en sentido positivo, uno detras de otro
+	 */
+
+	public long[] verticesDelaunay() {
+
+		int total = 0;
+
+		for (int f = 0; f < totalCaras; f++)
+			if (nz(f) < 0)
+				total++;
+
+		long[] resultado = new long[6 * total];
+
+		int j = 0;
+
+		for (int f = 0; f < totalCaras; f++)
+			if (nz(f) < 0)
+				for (int i = 0; i < 3; i++) {
+
+					// vista desde arriba la cara inferior va en sentido negativo
+
+					int v = origen[3 * f + (3 - i) % 3];
+					resultado[j++] = x[v];
+					resultado[j++] = y[v];
+				}
+
+		return resultado;
+	}
+
+	/* ------------------------------------------------------------------- */
+	/* D I A G R A M A de Voronoi */
+	/* ------------------------------------------------------------------- */
+
+	public void setDibujarNoAcotadas(boolean valor) {
+		esDibujarNoAcotadas = valor;
+	}
+
+	/**
+	 * Devuelve el diagrama de Voronoi que corresponde a las caras inferiores
+	 * del poliedro, dando cada arista una sola vez
+	 * 
+	 * @param coord
+	 *            El objeto encargado de transformar apropiadamente las
+	 *            coordenadas del diagrama a las coordenadas del area de dibujo
+	 */
+
+	public VoronoiOutput getVoronoiJSON(ICoord coord) {
+		return getVoronoiJSON(coord, Marco.PANTALLA);
+	}
+
+	public VoronoiOutput getVoronoiJSON(ICoord coord, Marco marco) {
+
+		VoronoiOutput oVoronoiOutput = new VoronoiOutput(3 * totalCaras / 2);
+
+		recorrerVoronoi(coord, marco, oVoronoiOutput);
+
+		return oVoronoiOutput;
+	}
+
+	public void recorrerVoronoi(ICoord coord, Marco marco, IReceptorLineas receptor) {
+
+		// circuncentros, uno por cara inferior
+
+		long[][] cc = new long[totalCaras][];
+
+		for (int f = 0; f < totalCaras; f++)
+			if (nz(f) < 0)
+				cc[f] = circuncentro(f);
+
+		long[] b1, b2;
+
+		for (int h = 0; h < 3 * totalCaras; h++) {
+
+			b1 = cc[cara(h)];
+
+			if (b1 == null)
+				continue;
+
+			int g = gemela[h];
+
+			b2 = cc[cara(g)];
+
+			if (b2 != null) {
+
+				if (g > h)
+					receptor.addLine(coord.x(b1[0]), coord.y(b1[1]), coord.x(b2[0]), coord.y(b2[1]));
+
+			} else if (esDibujarNoAcotadas) {
+
+				// la cara inferior se ve CW desde arriba: la semirrecta va
+				// hacia la izquierda de la semiarista
+
+				long ux = x[destino(h)] - x[origen[h]];
+				long uy = y[destino(h)] - y[origen[h]];
+
+				Line newSpecialLine = Util.segmentoNoAcotado(coord, b1, -uy, ux, marco);
+				if (newSpecialLine != null)
+					receptor.addLine(newSpecialLine);
+			}
+		}
+	}
+
+}
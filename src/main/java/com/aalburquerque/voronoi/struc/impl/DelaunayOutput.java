@@ -0,0 +1,37 @@
+package com.aalburquerque.voronoi.struc.impl;
+
+/**
+ * La triangulacion de Delaunay como ternas de indices en la lista de sitios
+ * de la entrada, una detras de otra: el triangulo t son los sitios
+ * triangulos[3t], triangulos[3t+1] y triangulos[3t+2], en sentido positivo
+ */
+
+public class DelaunayOutput {
+
+	int[] triangulos = new int[0];
+
+	InformeCalculo informe;
+
+	public DelaunayOutput() {
+	}
+
+	public DelaunayOutput(int[] triangulos) {
+		this.triangulos = triangulos;
+	}
+
+	public int[] getTriangulos() {
+		return triangulos;
+	}
+
+	public void setTriangulos(int[] triangulos) {
+		this.triangulos = triangulos;
+	}
+
+	public InformeCalculo getInforme() {
+		return informe;
+	}
+
+	public void setInforme(InformeCalculo informe) {
+		this.informe = informe;
+	}
+}
@@ -0,0 +1,91 @@
+package com.aalburquerque.voronoi.struc.impl;
+
+import java.io.Serializable;
+
+public class InformeCalculo implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private int metodoPedido;
+	private int metodoUsado;
+	private String metodo;
+	private String motivo;
+	private int repetidos;
+	private long milisegundos;
+	private boolean deCache;
+
+	public InformeCalculo() {
+
+	}
+
+	public InformeCalculo(InformeCalculo otro) {
+		this(otro.metodoPedido, otro.metodoUsado, otro.metodo, otro.motivo, otro.repetidos, otro.milisegundos);
+		setDeCache(otro.deCache);
+	}
+
+	public InformeCalculo(int metodoPedido, int metodoUsado, String metodo, String motivo, int repetidos,
+			long milisegundos) {
+		setMetodoPedido(metodoPedido);
+		setMetodoUsado(metodoUsado);
+		setMetodo(metodo);
+		setMotivo(motivo);
+		setRepetidos(repetidos);
+		setMilisegundos(milisegundos);
+	}
+
+	public int getMetodoPedido() {
+		return metodoPedido;
+	}
+
+	public void setMetodoPedido(int metodoPedido) {
+		this.metodoPedido = metodoPedido;
+	}
+
+	public int getMetodoUsado() {
+		return metodoUsado;
+	}
+
+	public void setMetodoUsado(int metodoUsado) {
+		this.metodoUsado = metodoUsado;
+	}
+
+	public String getMetodo() {
+		return metodo;
+	}
+
+	public void setMetodo(String metodo) {
+		this.metodo = metodo;
+	}
+
+	public String getMotivo() {
+		return motivo;
+	}
+
+	public void setMotivo(String motivo) {
+		this.motivo = motivo;
+	}
+
+	public int getRepetidos() {
+		return repetidos;
+	}
+
+	public void setRepetidos(int repetidos) {
+		this.repetidos = repetidos;
+	}
+
+	public long getMilisegundos() {
+		return milisegundos;
+	}
+
+	public void setMilisegundos(long milisegundos) {
+		this.milisegundos = milisegundos;
+	}
+
+	public boolean isDeCache() {
+		return deCache;
+	}
+
+	public void setDeCache(boolean deCache) {
+		this.deCache = deCache;
+	}
+}
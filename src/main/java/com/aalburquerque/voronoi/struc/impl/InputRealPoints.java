@@ -0,0 +1,23 @@
+package com.aalburquerque.voronoi.struc.impl;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+public class InputRealPoints implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	List<RealPoint> points = new ArrayList<RealPoint>();
+
+	public InputRealPoints() {
+	}
+
+	public List<RealPoint> getPoints() {
+		return points;
+	}
+
+	public void setPoints(List<RealPoint> points) {
+		this.points = points;
+	}
+}
@@ -18,9 +18,21 @@
 package com.aalburquerque.voronoi.struc.impl;
 
 import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.ListIterator;
 
+import com.aalburquerque.voronoi.algorithms.ComprobacionPrevia;
 import com.aalburquerque.voronoi.algorithms.DivideYvenceras;
+import com.aalburquerque.voronoi.algorithms.Fortune;
+import com.aalburquerque.voronoi.algorithms.IncrementalAleatorio;
+import com.aalburquerque.voronoi.algorithms.SelectorMetodo;
+import com.aalburquerque.voronoi.struc.ICoord;
+import com.aalburquerque.voronoi.struc.IDiagrama;
+import com.aalburquerque.voronoi.struc.IReceptorLineas;
 import com.aalburquerque.voronoi.util.Input;
+import com.aalburquerque.voronoi.util.Marco;
 import com.aalburquerque.voronoi.util.Util;
 
 /**
@@ -38,15 +50,53 @@ public class InstanciaVoronoi implements Serializable {
 
 	private static final long serialVersionUID = 1L;
 
+	/**
+	 * Constante para elegir en setMetodoCalculo() la triangulacion de Delaunay
+	 * calculada directamente en el plano, sin elevar los sitios ni construir
+	 * el poliedro
+	 */
+
+	public static final int METODO_PLANO = 3;
+
+	/**
+	 * Constante para elegir en setMetodoCalculo() el barrido de Fortune, que
+	 * da las aristas de Voronoi directamente, sin poliedro ni triangulacion
+	 */
+
+	public static final int METODO_FORTUNE = 5;
+
+	/**
+	 * Constante para que calculaVoronoi() elija el metodo mediante
+	 * SelectorMetodo segun el numero, la dispersion y la degeneracion de los
+	 * sitios. El tamano base pasado al constructor se sustituye entonces por
+	 * el calibrado
+	 */
+
+	public static final int METODO_AUTOMATICO = 6;
+
+	/**
+	 * Constante para elegir en setMetodoCalculo() el incremental aleatorio
+	 * guardando el cierre en una DCELCompacta, sin objetos por vertice, arista
+	 * ni cara. Es el indicado cuando importa la memoria
+	 */
+
+	public static final int METODO_COMPACTO = 7;
+
 	private Nube2D nubeSitios;
 	private Poligono cierrePlano = null;
 	private Poliedro poliedro;
+	private Triangulacion triangulacion;
+	private Fortune fortune;
+	private DCELCompacta compacta;
+	private InformeCalculo informe;
 	private long[] t = new long[2]; // tiempo de calculo en ms.
 	private Punto3d[] sitiosElevados;
+	private double[] xReal, yReal; // sitios con coordenadas reales, o null
 	private Object[] subproblemas;
 	private int totalpuntos;
 	private String metodo;
-	private static int tambase = DivideYvenceras.COTA;
+	private int metodoCalculo = DCEL.METODO_DIVIDE_Y_VENCERAS;
+	private int tambase = DivideYvenceras.COTA;
 
 	/**
 	 * Este constructor sirve para crear una instancia de problema cuyo conjunto
@@ -143,6 +193,40 @@ public class InstanciaVoronoi implements Serializable {
 
 	}
 
+	/**
+	 * Constructor para crear una instancia de problema con sitios de
+	 * coordenadas reales. Se calcula siempre en el plano, con METODO_PLANO, y
+	 * el diagrama se obtiene sin redondear con getVoronoiReal()
+	 *
+	 * @param puntos
+	 *            Los sitios del diagrama de Voronoi
+	 */
+
+	public InstanciaVoronoi(InputRealPoints puntos) {
+
+		int n = puntos.getPoints().size();
+
+		xReal = new double[n];
+		yReal = new double[n];
+
+		for (int i = 0; i < n; i++) {
+
+			RealPoint p = puntos.getPoints().get(i);
+
+			if (Double.isNaN(p.getX()) || Double.isInfinite(p.getX()) || Double.isNaN(p.getY())
+					|| Double.isInfinite(p.getY()))
+				throw new RuntimeException("Coordenada no finita en el sitio " + i);
+
+			xReal[i] = p.getX();
+			yReal[i] = p.getY();
+		}
+
+		nubeSitios = new Nube2D();
+		sitiosElevados = null;
+		this.totalpuntos = n;
+		metodoCalculo = METODO_PLANO;
+	}
+
 	/**
 	 * Constructor para crear una instancia ya calculada
 	 */
@@ -175,6 +259,21 @@ public class InstanciaVoronoi implements Serializable {
 		totalpuntos++;
 	}
 
+	/**
+	 * Metodo para elegir el proceso con el que calculaVoronoi() construye el
+	 * cierre convexo: DCEL.METODO_DIVIDE_Y_VENCERAS (por defecto),
+	 * DCEL.METODO_INCREMENTAL, DCEL.METODO_ALEATORIO o DCEL.METODO_PARALELO.
+	 * Los dos ultimos son los indicados para instancias de decenas de miles de
+	 * sitios, el paralelo cuando hay varios nucleos libres. Con METODO_PLANO
+	 * no se construye poliedro y el diagrama sale de una Triangulacion, y con
+	 * METODO_FORTUNE tampoco triangulacion. Con METODO_AUTOMATICO se elige uno
+	 * de ellos en cada calculo
+	 */
+
+	public void setMetodoCalculo(int metodoCalculo) {
+		this.metodoCalculo = metodoCalculo;
+	}
+
 	/**
 	 * Procedimiento usado para cacular localmente el diagrama de Voronoi
 	 * correspondiente a esta instancia
@@ -183,37 +282,148 @@ public class InstanciaVoronoi implements Serializable {
 
 	public void calculaVoronoi() {
 
-		nubeSitios.ordenarXY();
-		ampliarDimension(); // elevar los sitios del plano al espacio
+		int proceso = metodoCalculo;
+		int base = tambase;
+		String motivo = "Metodo pedido";
+		int repetidos = 0;
+
+		// diagrama() da el primero que encuentra: no debe quedar el de un
+		// calculo anterior de esta instancia con otro metodo
+
+		triangulacion = null;
+		fortune = null;
+		compacta = null;
+		poliedro = null;
+
+		// las coordenadas reales no se elevan al paraboloide: x^2 + y^2 no
+		// es exacto en double
+
+		if (xReal != null && proceso != METODO_PLANO) {
+			proceso = METODO_PLANO;
+			motivo = "Coordenadas reales: solo se calcula en el plano";
+		}
+
+		if (proceso == METODO_AUTOMATICO) {
 
-		t[0] = System.currentTimeMillis();
-		try {
+			long[][] c = coordenadas();
 
-			poliedro = new Poliedro(sitiosElevados, tambase);
+			SelectorMetodo selector = SelectorMetodo.calibrado();
+
+			proceso = selector.elegir(c[0], c[1]);
+			base = selector.tamBase();
+			motivo = "Metodo elegido por el modelo de coste";
+		}
+
+		if (proceso != METODO_PLANO && proceso != METODO_FORTUNE) {
+
+			if (!nubeSitios.ordenadaXY())
+				nubeSitios.ordenarXY();
+			ampliarDimension(); // elevar los sitios del plano al espacio
+
+			// llevar los sitios al proceso que los puede resolver antes de
+			// empezar, en vez de esperar a que falle y repetir el calculo
+
+			ComprobacionPrevia previa = new ComprobacionPrevia(sitiosElevados, proceso, base);
+
+			sitiosElevados = previa.sitios();
+			repetidos = previa.repetidos();
+
+			if (previa.metodo() != proceso) {
+				proceso = previa.metodo();
+				motivo = previa.motivo();
+			}
+		}
+
+		if (proceso == METODO_PLANO) {
+
+			t[0] = System.currentTimeMillis();
+
+			triangulacion = xReal != null ? new Triangulacion(xReal, yReal) : new Triangulacion(nubeSitios);
 
 			t[1] = System.currentTimeMillis();
 
-			metodo = poliedro.metodoString(); // para saber con que metodo se
-												// encontro la solucion
-												// finalmente
+			metodo = "Delaunay en el plano";
+
+		} else if (proceso == METODO_FORTUNE) {
 
-		} catch (Exception ex) {
+			// el barrido no pasa por ComprobacionPrevia: los repetidos y los
+			// sitios alineados se ven aqui, antes de construirlo
 
-			// construye el cierre de los puntos por divide y venceras
+			long[][] c = coordenadas();
+			long[][] distintos = ComprobacionPrevia.enPlanoSinRepetidos(c[0], c[1]);
 
-			Util.msgLog("LOGEXCEPTION",
-					"Excepcion en clase InstanciaVoronoi: NO SE CONSIGUIO OBTENER "
-							+ "UNA SOLUCION MEDIANTE PROCESO DIVIDEYVENCERAS Y SE PROCEDE A CALCULAR "
-							+ "LA SOLUCION MEDIANTE PROCESO INCREMENTAL\n");
+			repetidos = c[0].length - distintos[0].length;
 
-			poliedro = new Poliedro(sitiosElevados, DCEL.INCREMENTAL, tambase);
+			t[0] = System.currentTimeMillis();
 
-			metodo = "Incremental";
+			fortune = new Fortune(distintos[0], distintos[1]);
 
 			t[1] = System.currentTimeMillis();
 
+			metodo = "Fortune";
+
+		} else {
+
+			t[0] = System.currentTimeMillis();
+			try {
+
+				// el metodo con el que se encontro la solucion finalmente lo
+				// dice la rama que se ha seguido
+
+				if (proceso == METODO_COMPACTO) {
+					compacta = new IncrementalAleatorio(sitiosElevados).compacta();
+					metodo = "Incremental aleatorio compacto";
+				} else {
+					if (proceso == DCEL.METODO_DIVIDE_Y_VENCERAS)
+						poliedro = new Poliedro(sitiosElevados, base);
+					else
+						poliedro = new Poliedro(sitiosElevados, proceso, base);
+					metodo = poliedro.metodoString();
+				}
+
+				t[1] = System.currentTimeMillis();
+
+			} catch (Exception ex) {
+
+				// la comprobacion previa no ve todas las degeneraciones de la
+				// mezcla: construye el cierre de los puntos por el incremental
+				// aleatorizado, que da el mismo cierre en O(n log n) esperado
+
+				Util.msgLog("LOGEXCEPTION",
+						"Excepcion en clase InstanciaVoronoi: NO SE CONSIGUIO OBTENER "
+								+ "UNA SOLUCION MEDIANTE PROCESO DIVIDEYVENCERAS Y SE PROCEDE A CALCULAR "
+								+ "LA SOLUCION MEDIANTE PROCESO INCREMENTAL ALEATORIO\n");
+
+				poliedro = new Poliedro(sitiosElevados, DCEL.METODO_ALEATORIO, base);
+
+				proceso = DCEL.METODO_ALEATORIO;
+				motivo = "Excepcion en el metodo elegido";
+				metodo = "Incremental aleatorio";
+
+				t[1] = System.currentTimeMillis();
+
+			}
+		}
+
+		informe = new InformeCalculo(metodoCalculo, proceso, metodo, motivo, repetidos, t[1] - t[0]);
+	}
+
+	// abscisas y ordenadas de los sitios, en el orden de la nube
+
+	private long[][] coordenadas() {
+
+		int n = nubeSitios.get_total();
+		long[][] c = new long[2][n];
+
+		ListIterator iter = nubeSitios.listIterator();
+
+		for (int i = 0; i < n; i++) {
+			Punto2D p = (Punto2D) iter.next();
+			c[0][i] = p.x();
+			c[1][i] = p.y();
 		}
 
+		return c;
 	}
 
 	/**
@@ -278,6 +488,263 @@ public class InstanciaVoronoi implements Serializable {
 		return poliedro;
 	}
 
+	/**
+	 * Devuelve un objeto Triangulacion con la triangulacion de Delaunay de
+	 * esta instancia de problema si se resolvio con METODO_PLANO, o null en
+	 * otro caso
+	 */
+
+	public Triangulacion getTriangulacion() {
+		return triangulacion;
+	}
+
+	/**
+	 * Devuelve el diagrama de Voronoi de esta instancia de problema resuelta,
+	 * sea cual sea el metodo con el que se calculo
+	 * 
+	 * @param coord
+	 *            El objeto encargado de transformar apropiadamente las
+	 *            coordenadas del diagrama a las coordenadas del area de dibujo
+	 */
+
+	public VoronoiOutput getVoronoiJSON(ICoord coord) {
+		return getVoronoiJSON(coord, Marco.PANTALLA);
+	}
+
+	/**
+	 * Igual que getVoronoiJSON(coord), pero con las aristas no acotadas
+	 * recortadas al marco dado en lugar de al area de dibujo por defecto
+	 * 
+	 * @param coord
+	 *            El objeto encargado de transformar apropiadamente las
+	 *            coordenadas del diagrama a las coordenadas del area de dibujo
+	 * @param marco
+	 *            El rectangulo del area de dibujo hasta el que llegan las
+	 *            aristas no acotadas
+	 */
+
+	public VoronoiOutput getVoronoiJSON(ICoord coord, Marco marco) {
+
+		VoronoiOutput salida = diagrama().getVoronoiJSON(coord, marco);
+		salida.setInforme(informe);
+
+		return salida;
+	}
+
+	/**
+	 * Igual que getVoronoiJSON(coord, marco), pero los segmentos se pasan al
+	 * receptor segun se recorre el diagrama, sin guardarlos. Es lo indicado
+	 * para escribir diagramas grandes en la respuesta segun se sacan
+	 * 
+	 * @param coord
+	 *            El objeto encargado de transformar apropiadamente las
+	 *            coordenadas del diagrama a las coordenadas del area de dibujo
+	 * @param marco
+	 *            El rectangulo del area de dibujo hasta el que llegan las
+	 *            aristas no acotadas
+	 * @param receptor
+	 *            El que recibe los segmentos
+	 */
+
+	public void recorrerVoronoi(ICoord coord, Marco marco, IReceptorLineas receptor) {
+		diagrama().recorrerVoronoi(coord, marco, receptor);
+	}
+
+	private IDiagrama diagrama() {
+
+		if (triangulacion != null)
+			return triangulacion;
+		else if (fortune != null)
+			return fortune;
+		else if (compacta != null)
+			return compacta;
+
+		return poliedro;
+	}
+
+	/**
+	 * Devuelve la celda de Voronoi de cada sitio de esta instancia de problema
+	 * resuelta, recortada al area de dibujo por defecto
+	 * 
+	 * @param coord
+	 *            El objeto encargado de transformar apropiadamente las
+	 *            coordenadas del diagrama a las coordenadas del area de dibujo
+	 */
+
+	public CeldasOutput getCeldas(ICoord coord) {
+		return getCeldas(coord, Marco.PANTALLA);
+	}
+
+	/**
+	 * Devuelve la celda de Voronoi de cada sitio de esta instancia de problema
+	 * resuelta, recortada al marco. Las celdas se leen del poliedro o de la
+	 * triangulacion en el plano. Si se resolvio por Fortune o con la DCEL
+	 * compacta, que no guardan la estrella de cada sitio, se triangulan antes
+	 * los sitios en el plano
+	 * 
+	 * @param coord
+	 *            El objeto encargado de transformar apropiadamente las
+	 *            coordenadas del diagrama a las coordenadas del area de dibujo
+	 * @param marco
+	 *            El rectangulo del area de dibujo al que se recortan las celdas
+	 */
+
+	public CeldasOutput getCeldas(ICoord coord, Marco marco) {
+
+		CeldasOutput salida;
+
+		if (triangulacion != null)
+			salida = triangulacion.getCeldas(coord, marco);
+		else if (fortune != null || compacta != null) {
+			long[][] c = coordenadas();
+			salida = new Triangulacion(c[0], c[1]).getCeldas(coord, marco);
+		} else
+			salida = poliedro.getCeldas(coord, marco);
+
+		salida.setInforme(informe);
+
+		return salida;
+	}
+
+	/**
+	 * Devuelve la triangulacion de Delaunay de esta instancia de problema
+	 * resuelta, sea cual sea el metodo con el que se calculo, como ternas de
+	 * indices en la lista de sitios pasada, que normalmente es la de la
+	 * entrada. Un sitio repetido en la lista se da por su primera aparicion.
+	 * Si se resolvio por Fortune, que no guarda triangulos, se triangulan
+	 * antes los sitios en el plano
+	 * 
+	 * @param sitios
+	 *            Los sitios de la instancia, en el orden en que se quieren
+	 *            los indices
+	 */
+
+	public DelaunayOutput getDelaunay(List<Punto2D> sitios) {
+
+		int n = sitios.size();
+
+		long[] sx = new long[n], sy = new long[n];
+
+		for (int i = 0; i < n; i++) {
+			sx[i] = sitios.get(i).x();
+			sy[i] = sitios.get(i).y();
+		}
+
+		return getDelaunay(sx, sy, n);
+	}
+
+	/**
+	 * Igual que getDelaunay(List), con los sitios en dos arrays de
+	 * coordenadas como los que da LectorPuntos
+	 * 
+	 * @param sx
+	 *            Las abscisas de los sitios
+	 * @param sy
+	 *            Las ordenadas de los sitios
+	 * @param n
+	 *            El numero de sitios, las primeras posiciones de los arrays
+	 */
+
+	public DelaunayOutput getDelaunay(final long[] sx, final long[] sy, int n) {
+
+		if (xReal != null)
+			throw new RuntimeException("La triangulacion como indices solo se da con coordenadas enteras");
+
+		long[] vertices;
+
+		if (triangulacion != null)
+			vertices = triangulacion.verticesDelaunay();
+		else if (compacta != null)
+			vertices = compacta.verticesDelaunay();
+		else if (fortune != null) {
+			long[][] c = coordenadas();
+			vertices = new Triangulacion(c[0], c[1]).verticesDelaunay();
+		} else
+			vertices = poliedro.verticesDelaunay();
+
+		// los sitios ordenados por sus coordenadas, y entre iguales por su
+		// posicion, para buscar cada vertice por busqueda binaria
+
+		Integer[] orden = new Integer[n];
+
+		for (int i = 0; i < n; i++)
+			orden[i] = i;
+
+		Arrays.sort(orden, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				if (sx[a] != sx[b])
+					return sx[a] < sx[b] ? -1 : 1;
+				if (sy[a] != sy[b])
+					return sy[a] < sy[b] ? -1 : 1;
+				return a - b;
+			}
+		});
+
+		int[] triangulos = new int[vertices.length / 2];
+
+		for (int j = 0; j < triangulos.length; j++) {
+
+			long x = vertices[2 * j], y = vertices[2 * j + 1];
+
+			int izq = 0, der = n;
+
+			while (izq < der) {
+				int medio = (izq + der) >>> 1;
+				int k = orden[medio];
+				if (sx[k] < x || sx[k] == x && sy[k] < y)
+					izq = medio + 1;
+				else
+					der = medio;
+			}
+
+			if (izq == n || sx[orden[izq]] != x || sy[orden[izq]] != y)
+				throw new RuntimeException("El vertice (" + x + "," + y + ") no esta entre los sitios");
+
+			triangulos[j] = orden[izq];
+		}
+
+		DelaunayOutput salida = new DelaunayOutput(triangulos);
+		salida.setInforme(informe);
+
+		return salida;
+	}
+
+	/**
+	 * Devuelve el diagrama de Voronoi de esta instancia de problema en las
+	 * coordenadas de los sitios, sin redondear. Solo si se resolvio con
+	 * METODO_PLANO, que es el que se usa siempre con coordenadas reales
+	 */
+
+	public RealVoronoiOutput getVoronoiReal() {
+
+		if (triangulacion == null)
+			throw new RuntimeException("El diagrama en coordenadas reales solo se da calculado en el plano");
+
+		RealVoronoiOutput salida = triangulacion.getVoronoiReal();
+		salida.setInforme(informe);
+
+		return salida;
+	}
+
+	/**
+	 * Devuelve un objeto DCELCompacta con el cierre convexo de esta instancia
+	 * de problema si se resolvio con METODO_COMPACTO, o null en otro caso
+	 */
+
+	public DCELCompacta getCompacta() {
+		return compacta;
+	}
+
+	/**
+	 * Devuelve el informe del ultimo calculo hecho por calculaVoronoi(): el
+	 * metodo pedido, el usado y el motivo del cambio si lo hubo, los sitios
+	 * repetidos que se quitaron y el tiempo de calculo
+	 */
+
+	public InformeCalculo getInforme() {
+		return informe;
+	}
+
 	/**
 	 * Devuelve un array de objetos Punto3d que son el conjunto de los puntos de
 	 * esta instancia de problema
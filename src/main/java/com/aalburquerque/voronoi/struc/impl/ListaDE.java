@@ -19,8 +19,16 @@ package com.aalburquerque.voronoi.struc.impl;
 
 import java.io.Serializable;
 import java.util.ListIterator;
+import java.util.function.Predicate;
 
 /**
+ * Lista de objetos guardada en un array circular que crece por duplicacion.
+ * Los elementos se leen y se sustituyen por su posicion en tiempo constante,
+ * se insertan y se suprimen en los dos extremos en tiempo constante, y en
+ * medio desplazando el lado mas corto. Cuando el orden no importa
+ * suprimirIntercambiando() suprime en tiempo constante, y compactar() suprime
+ * de una pasada todos los que cumplen una condicion.
+ * 
  * @author Antonio Alburquerque Oliva
  * @version 1.00
  *
@@ -31,9 +39,15 @@ public class ListaDE implements Serializable {
 	/* A T R I B U T O S */
 	/* ------------------------------------------------------------------- */
 
-	private Nodo primero, ultimo;
+	private static final int CAPACIDAD_INICIAL = 8;
 
-	private Nodo actualNodo;
+	// el elemento i (desde 0) esta en elementos[(cabeza + i) & (capacidad - 1)]
+
+	private Object[] elementos;
+
+	private int cabeza;
+
+	private int actual; // indice de prepararIteraciones()
 
 	private String nombre;
 
@@ -47,7 +61,8 @@ public class ListaDE implements Serializable {
 
 	public ListaDE() {
 
-		primero = ultimo = null;
+		elementos = new Object[CAPACIDAD_INICIAL];
+		cabeza = 0;
 		total = 0;
 
 	}
@@ -57,7 +72,8 @@ public class ListaDE implements Serializable {
 	/* ------------------------------------------------------------------- */
 
 	public void vaciar() {
-		primero = ultimo = null;
+		elementos = new Object[CAPACIDAD_INICIAL];
+		cabeza = 0;
 		total = 0;
 	}
 
@@ -65,7 +81,7 @@ public class ListaDE implements Serializable {
 	/* ------------------------------------------------------------------- */
 
 	public boolean vacia() {
-		return (primero == null);
+		return (total == 0);
 	}
 
 	/* ------------------------------------------------------------------- */
@@ -78,31 +94,37 @@ public class ListaDE implements Serializable {
 	/* ------------------------------------------------------------------- */
 	/* ------------------------------------------------------------------- */
 
-	private Nodo get_primero() {
-		return primero;
+	private int posicion(int i) {
+		return (cabeza + i) & (elementos.length - 1);
 	}
 
-	/* ------------------------------------------------------------------- */
-	/* ------------------------------------------------------------------- */
+	private Object elemento(int i) {
+		return elementos[posicion(i)];
+	}
 
-	private Nodo get_ultimo() {
-		return ultimo;
+	private void crecer() {
+
+		Object[] nuevos = new Object[2 * elementos.length];
+
+		for (int i = 0; i < total; i++)
+			nuevos[i] = elemento(i);
+
+		elementos = nuevos;
+		cabeza = 0;
 	}
 
 	/* ------------------------------------------------------------------- */
 	/* ------------------------------------------------------------------- */
 
 	public int indexOf(Object o) {
-		int index = 0;
+
 		if (o == null) {
 			return -1;
 		}
 
-		for (Nodo e = primero; e != null; e = e.siguiente()) {
-			if (o.equals(e.info()))
-				return index;
-			index++;
-		}
+		for (int i = 0; i < total; i++)
+			if (o.equals(elemento(i)))
+				return i;
 
 		return -1;
 	}
@@ -112,19 +134,11 @@ public class ListaDE implements Serializable {
 
 	public void insertarInicio(Object o) {
 
-		if (vacia())
-
-			primero = ultimo = new Nodo(o, null, null);
-
-		else {
+		if (total == elementos.length)
+			crecer();
 
-			Nodo nuevo = new Nodo(o, primero, null);
-
-			primero.ant = nuevo;
-
-			primero = nuevo;
-
-		}
+		cabeza = (cabeza - 1) & (elementos.length - 1);
+		elementos[cabeza] = o;
 
 		total++;
 
@@ -135,19 +149,10 @@ public class ListaDE implements Serializable {
 
 	public void insertarFinal(Object o) {
 
-		if (vacia())
-
-			primero = ultimo = new Nodo(o, null, null);
-
-		else {
-
-			Nodo nuevo = new Nodo(o, null, ultimo);
+		if (total == elementos.length)
+			crecer();
 
-			ultimo.sig = nuevo;
-
-			ultimo = nuevo;
-
-		}
+		elementos[posicion(total)] = o;
 
 		total++;
 
@@ -156,181 +161,141 @@ public class ListaDE implements Serializable {
 	/* ------------------------------------------------------------------- */
 	/* ------------------------------------------------------------------- */
 
-	public void suprimirNodo(Nodo nodoBorrar) {
+	// suprime el elemento de indice i (desde 0) conservando el orden
 
-		if (total == 1) {
-			primero = ultimo = null;
-			total--;
-			return;
-		}
+	private Object suprimir(int i) {
 
-		if (nodoBorrar == primero) {
-			primero = primero.sig;
-			primero.ant = null;
-			total--;
-			return;
+		Object resultado = elemento(i);
 
-		}
+		if (i < total / 2) {
 
-		if (nodoBorrar == ultimo) {
-			ultimo = ultimo.ant;
-			ultimo.sig = null;
-			total--;
-			return;
+			for (int j = i; j > 0; j--)
+				elementos[posicion(j)] = elemento(j - 1);
+
+			elementos[cabeza] = null;
+			cabeza = posicion(1);
+
+		} else {
 
+			for (int j = i; j < total - 1; j++)
+				elementos[posicion(j)] = elemento(j + 1);
+
+			elementos[posicion(total - 1)] = null;
 		}
 
-		nodoBorrar.ant.sig = nodoBorrar.sig;
-		nodoBorrar.sig.ant = nodoBorrar.ant;
 		total--;
 
+		return resultado;
 	}
 
 	public Object suprimirNodo(int cual) {
 
+		// el primero es cual = 1; el ultimo es cual = total
+
 		if (vacia())
 			throw new ListaDEException(nombre);
 
-		if (cual > total)
+		if (cual < 1 || cual > total)
 			throw new FueraDeLimitesException(nombre);
 
-		Nodo nodoBorrar = primero;
-
-		for (int i = 1; i < cual; i++, nodoBorrar = nodoBorrar.sig)
-			;
-
-		Object resultado = nodoBorrar.info();
-
-		if (total == 1) {
-			primero = ultimo = null;
-			total--;
-			return resultado;
-		}
-
-		if (nodoBorrar == primero) {
-			primero = primero.sig;
-			primero.ant = null;
-			total--;
-			return resultado;
-
-		}
-
-		if (nodoBorrar == ultimo) {
-			ultimo = ultimo.ant;
-			ultimo.sig = null;
-			total--;
-			return resultado;
-
-		}
-
-		nodoBorrar.ant.sig = nodoBorrar.sig;
-		nodoBorrar.sig.ant = nodoBorrar.ant;
-		total--;
-		return resultado;
+		return suprimir(cual - 1);
 
 	}
 
-	/* ------------------------------------------------------------------- */
-	/* ------------------------------------------------------------------- */
-
-	public Object leerItem(int cual) {
+	/**
+	 * Suprime el elemento que ocupa la posicion pasada, con el primero en
+	 * cual = 1, poniendo en su lugar el ultimo. No conserva el orden pero
+	 * tarda un tiempo constante
+	 */
 
-		// el primero es cual = 1; el ultimo es cual = total
+	public Object suprimirIntercambiando(int cual) {
 
 		if (vacia())
 			throw new ListaDEException(nombre);
 
-		if (cual > total)
+		if (cual < 1 || cual > total)
 			throw new FueraDeLimitesException(nombre);
 
-		Nodo nodoLeer;
+		int i = posicion(cual - 1);
+		int ultimo = posicion(total - 1);
 
-		if (cual < total / 2) {
+		Object resultado = elementos[i];
 
-			nodoLeer = primero;
+		elementos[i] = elementos[ultimo];
+		elementos[ultimo] = null;
 
-			for (int i = 1; i < cual; i++, nodoLeer = nodoLeer.siguiente())
-				;
+		total--;
 
-		} else {
+		return resultado;
+	}
 
-			nodoLeer = ultimo;
+	/**
+	 * Suprime de una pasada todos los elementos que cumplen la condicion,
+	 * conservando el orden de los demas
+	 */
 
-			for (int i = 1; i <= total - cual; i++, nodoLeer = nodoLeer.anterior())
-				;
+	public void compactar(Predicate<Object> condicion) {
 
-		}
+		int quedan = 0;
 
-		return (nodoLeer.info());
+		for (int i = 0; i < total; i++) {
 
-	}
+			Object o = elemento(i);
 
-	/* ------------------------------------------------------------------- */
-	/* ------------------------------------------------------------------- */
-
-	public void prepararIteraciones() {
-
-		actualNodo = primero;
+			if (!condicion.test(o))
+				elementos[posicion(quedan++)] = o;
+		}
 
-		numIteraciones = 0;
+		for (int i = quedan; i < total; i++)
+			elementos[posicion(i)] = null;
 
+		total = quedan;
 	}
 
 	/* ------------------------------------------------------------------- */
 	/* ------------------------------------------------------------------- */
 
-	public void prepararIteraciones(Nodo nodo) {
-
-		actualNodo = nodo;
+	public Object leerItem(int cual) {
 
-		numIteraciones = 0;
+		// el primero es cual = 1; el ultimo es cual = total
 
-	}
+		if (vacia())
+			throw new ListaDEException(nombre);
 
-	/* ------------------------------------------------------------------- */
-	/* ------------------------------------------------------------------- */
+		if (cual < 1 || cual > total)
+			throw new FueraDeLimitesException(nombre);
 
-	public boolean tieneSiguienteItem() {
+		return elemento(cual - 1);
 
-		return (actualNodo != null) && (numIteraciones <= total);
 	}
 
 	/* ------------------------------------------------------------------- */
 	/* ------------------------------------------------------------------- */
 
-	public Object itera_siguienteItem() {
-
-		Object o = actualNodo.info();
+	public void prepararIteraciones() {
 
-		actualNodo = actualNodo.siguiente();
+		actual = 0;
 
-		numIteraciones++;
+		numIteraciones = 0;
 
-		return o;
 	}
 
 	/* ------------------------------------------------------------------- */
 	/* ------------------------------------------------------------------- */
 
-	public Nodo itera_nodo_siguienteItem() {
-
-		Nodo o = actualNodo;
-
-		actualNodo = nodo_siguiente();
-
-		numIteraciones++;
+	public boolean tieneSiguienteItem() {
 
-		return o;
+		return (actual < total) && (numIteraciones <= total);
 	}
 
 	/* ------------------------------------------------------------------- */
 	/* ------------------------------------------------------------------- */
 
-	public Nodo itera_nodo_anteriorItem() {
+	public Object itera_siguienteItem() {
 
-		Nodo o = actualNodo;
+		Object o = elemento(actual);
 
-		actualNodo = nodo_anterior();
+		actual++;
 
 		numIteraciones++;
 
@@ -340,33 +305,11 @@ public class ListaDE implements Serializable {
 	/* ------------------------------------------------------------------- */
 	/* ------------------------------------------------------------------- */
 
-	public Nodo nodo_actual() {
-		return actualNodo;
-	}
-
-	/* ------------------------------------------------------------------- */
-	/* ------------------------------------------------------------------- */
-
-	public Nodo nodo_siguiente() {
-		return actualNodo.siguiente() == null ? primero : actualNodo.siguiente();
-	}
-
-	/* ------------------------------------------------------------------- */
-	/* ------------------------------------------------------------------- */
-
-	public Nodo nodo_anterior() {
-		return actualNodo.anterior() == null ? ultimo : actualNodo.anterior();
-	}
-
-	/* ------------------------------------------------------------------- */
-	/* ------------------------------------------------------------------- */
-
 	public Object[] toArray() {
 
 		Object[] resultado = new Object[total];
-		int i = 0;
-		for (Nodo e = primero; e != null; e = e.siguiente())
-			resultado[i++] = e.info();
+		for (int i = 0; i < total; i++)
+			resultado[i] = elemento(i);
 		return resultado;
 	}
 
@@ -374,9 +317,9 @@ public class ListaDE implements Serializable {
 
 		StringBuffer s = new StringBuffer(nombre + ": ");
 
-		for (Nodo a = primero; a != null; a = a.siguiente())
+		for (int i = 0; i < total; i++)
 
-			s.append("< " + a.info().toString() + "> ");
+			s.append("< " + elemento(i).toString() + "> ");
 
 		return s.toString();
 
@@ -426,8 +369,8 @@ public class ListaDE implements Serializable {
 
 	private class ItrListaDE implements ListIterator, Serializable {
 
-		private Nodo actual = primero;
-		private Nodo anterior = ultimo;
+		private int actual = 0; // indice del cursor
+		private int anterior = -1; // indice del recien consultado
 		private int total_iteraciones = 0;
 		private int indice_actual = 0;
 		private int indice_anterior = 0;
@@ -463,24 +406,16 @@ public class ListaDE implements Serializable {
 		// o a continuacion una operacion de previous devuelve el anterior a
 		// este index
 
+		// el recorrido es circular: tras el ultimo sigue el primero
+
 		ItrListaDE(int index) {
 
 			if (index < 0 || index > total)
 				throw new IndexOutOfBoundsException("Index: " + index + ", Total: " + total);
 
-			if (index < total / 2) {
+			// con index = total el cursor queda en el ultimo
 
-				actual = primero;
-				for (int i = 0; i < index; i++, actual = actual.siguiente())
-					;
-
-			} else {
-
-				actual = ultimo;
-				for (int i = total - 1; i > index; i--, actual = actual.anterior())
-					;
-
-			}
+			actual = index < total ? index : Math.max(total - 1, 0);
 
 			indice_actual = index;
 
@@ -506,13 +441,13 @@ public class ListaDE implements Serializable {
 
 		public Object next() {
 
-			Object temp = actual.info();
+			Object temp = elemento(actual);
 
 			indice_anterior = indice_actual;
 
 			anterior = actual;
 
-			actual = actual.siguiente() == null ? primero : actual.siguiente();
+			actual = actual + 1 == total ? 0 : actual + 1;
 
 			++indice_actual;
 			indice_actual %= total;
@@ -531,7 +466,10 @@ public class ListaDE implements Serializable {
 
 		public void remove() {
 
-			suprimirNodo(anterior);
+			suprimir(anterior);
+
+			if (actual > anterior)
+				actual--;
 
 		}
 
@@ -556,13 +494,13 @@ public class ListaDE implements Serializable {
 
 		public Object previous() {
 
-			Object temp = actual.info();
+			Object temp = elemento(actual);
 
 			indice_anterior = indice_actual;
 
 			anterior = actual;
 
-			actual = actual.anterior() == null ? ultimo : actual.anterior();
+			actual = actual == 0 ? total - 1 : actual - 1;
 
 			--indice_actual;
 			indice_actual %= total;
@@ -596,84 +534,4 @@ public class ListaDE implements Serializable {
 
 	} // fin de clase ItrListaDE
 
-	/* ------------------------------------------------------------------- */
-	/* C L A S E S P R I V A D A S */
-	/* ------------------------------------------------------------------- */
-
-	private class Nodo implements Serializable {
-
-		public Object infoNodo;
-
-		public Nodo sig;
-
-		public Nodo ant;
-
-		/*
-		 * -------------------------------------------------------------------
-		 */
-		/*
-		 * -------------------------------------------------------------------
-		 */
-
-		public Nodo(Object o) {
-
-			infoNodo = o;
-
-			sig = null;
-
-			ant = null;
-		}
-
-		/*
-		 * -------------------------------------------------------------------
-		 */
-		/*
-		 * -------------------------------------------------------------------
-		 */
-
-		public Nodo(Object o, Nodo siguienteNodo, Nodo anteriorNodo) {
-
-			infoNodo = o;
-
-			sig = siguienteNodo;
-
-			ant = anteriorNodo;
-
-		}
-
-		/*
-		 * -------------------------------------------------------------------
-		 */
-		/*
-		 * -------------------------------------------------------------------
-		 */
-
-		public Object info() {
-			return infoNodo;
-		}
-
-		/*
-		 * -------------------------------------------------------------------
-		 */
-		/*
-		 * -------------------------------------------------------------------
-		 */
-
-		public Nodo siguiente() {
-			return sig;
-		}
-
-		/*
-		 * -------------------------------------------------------------------
-		 */
-		/*
-		 * -------------------------------------------------------------------
-		 */
-
-		public Nodo anterior() {
-			return ant;
-		}
-
-	} // fin clase Nodo
-
 } // fin clase ListaDE
@@ -0,0 +1,24 @@
+package com.aalburquerque.voronoi.struc.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class LoteOutput {
+
+	List<VoronoiOutput> diagramas = new ArrayList<VoronoiOutput>();
+
+	public LoteOutput() {
+	}
+
+	public LoteOutput(List<VoronoiOutput> diagramas) {
+		this.diagramas = diagramas;
+	}
+
+	public List<VoronoiOutput> getDiagramas() {
+		return diagramas;
+	}
+
+	public void setDiagramas(List<VoronoiOutput> diagramas) {
+		this.diagramas = diagramas;
+	}
+}
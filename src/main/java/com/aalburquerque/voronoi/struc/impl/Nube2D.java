@@ -56,6 +56,16 @@ public class Nube2D extends Pila implements Dibujable, Serializable {
 			apilar(new Punto2D(inputPoints.getPoints().get(i).x(),inputPoints.getPoints().get(i).y()));
 	}
 
+	/**
+	 * Construir la nube de los n primeros sitios cuyas coordenadas se pasan,
+	 * en el mismo orden en que queda la nube construida desde InputPoints
+	 */
+
+	public Nube2D(long[] x, long[] y, int n) {
+		for (int i = 0; i < n; i++)
+			apilar(new Punto2D(x[i], y[i]));
+	}
+
 	public void unoMas(long x, long y) {
 		apilar(new Punto2D(x, y));
 	}
@@ -131,6 +141,30 @@ public class Nube2D extends Pila implements Dibujable, Serializable {
 	/* ------------------------------------------------------------------- */
 	/* ------------------------------------------------------------------- */
 
+	public boolean ordenadaXY() {
+
+		/* cierto si los Punto2D ya estan en el orden de ordenarXY() */
+
+		ListIterator iteracion = listIterator();
+
+		Punto2D anterior = null, actual;
+
+		while (iteracion.hasNext()) {
+
+			actual = (Punto2D) iteracion.next();
+
+			if (anterior != null && anterior.ordenXY(actual) < 0)
+				return false;
+
+			anterior = actual;
+		}
+
+		return true;
+	}
+
+	/* ------------------------------------------------------------------- */
+	/* ------------------------------------------------------------------- */
+
 	public void ordenarXY() {
 
 		if (vacia())
@@ -20,12 +20,16 @@ package com.aalburquerque.voronoi.struc.impl;
 import java.awt.Color;
 import java.awt.Graphics;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.ListIterator;
 
 import com.aalburquerque.voronoi.struc.Dibujable;
 import com.aalburquerque.voronoi.struc.ICoord;
+import com.aalburquerque.voronoi.struc.IDiagrama;
+import com.aalburquerque.voronoi.struc.IReceptorLineas;
 import com.aalburquerque.voronoi.struc.ListAdaptor;
 import com.aalburquerque.voronoi.util.GC;
+import com.aalburquerque.voronoi.util.Marco;
 import com.aalburquerque.voronoi.util.Util;
 
 /**
@@ -51,7 +55,7 @@ import com.aalburquerque.voronoi.util.Util;
  * @version 1.00
  */
 
-public class Poliedro extends DCEL implements Dibujable, Serializable {
+public class Poliedro extends DCEL implements Dibujable, IDiagrama, Serializable {
 
 	/* ------------------------------------------------------------------- */
 	/* A T R I B U T O S */
@@ -98,6 +102,25 @@ public class Poliedro extends DCEL implements Dibujable, Serializable {
 		super(puntos, porincremental, cota);
 	}
 
+	/**
+	 * Construir un nuevo poliedro que sea el cierre convexo del array de puntos
+	 * pasado como parametro, especificando cual es el metodo de construccion
+	 * mediante una de las constantes DCEL.METODO_DIVIDE_Y_VENCERAS,
+	 * DCEL.METODO_INCREMENTAL, DCEL.METODO_ALEATORIO o DCEL.METODO_PARALELO.
+	 * 
+	 * @param puntos
+	 *            El array de puntos del espacio que definen un cierre convexo
+	 * @param metodo
+	 *            Metodo de construccion del cierre convexo
+	 * @param cota
+	 *            Tama�o del caso base si el metodo es divide y venceras
+	 */
+
+	public Poliedro(Punto3d[] puntos, int metodo, int cota) {
+
+		super(puntos, metodo, cota);
+	}
+
 	/**
 	 * Construir un nuevo poliedro que sea el cierre convexo de los poliedros A
 	 * y B. A y B son dos poliedros de interseccion vacia separados por un plano
@@ -135,6 +158,10 @@ public class Poliedro extends DCEL implements Dibujable, Serializable {
 
 	private boolean esDibujarNoAcotadas = true;
 
+	// recorrer las caras inferiores en lugar de la lista de aristas
+
+	private boolean esExtraerPorCaras = false;
+
 	public void setDibujarNoAcotadas(boolean valor) {
 		esDibujarNoAcotadas = valor;
 	}
@@ -158,109 +185,272 @@ public class Poliedro extends DCEL implements Dibujable, Serializable {
 
 	private transient Graphics g;
 	private transient ICoord coord;
-	
+
 	/**
+	 * Elegir como se recorre el poliedro en getVoronoiJSON. Por defecto se
+	 * recorre una sola vez la lista de aristas y cada arista del diagrama sale
+	 * una vez. Con valor cierto se recorren las aristas de cada cara inferior,
+	 * como antes, y las aristas interiores salen dos veces, una por cada cara
+	 * 
+	 * @param valor
+	 *            Cierto para recorrer el poliedro cara a cara
+	 */
+
+	public void setExtraerPorCaras(boolean valor) {
+		esExtraerPorCaras = valor;
+	}
+
+	/**
+	 * Devuelve el diagrama de Voronoi que corresponde a las caras inferiores
+	 * del poliedro
+	 * 
 	 * @param coord
-	 * @return
+	 *            El objeto encargado de transformar apropiadamente las
+	 *            coordenadas del diagrama a las coordenadas del area de dibujo
 	 */
-	public VoronoiOutput getVoronoiJSON( ICoord coord) {
 
-		VoronoiOutput oVoronoiOutput=new VoronoiOutput();
-		
+	public VoronoiOutput getVoronoiJSON(ICoord coord) {
+		return getVoronoiJSON(coord, Marco.PANTALLA);
+	}
+
+	public VoronoiOutput getVoronoiJSON(ICoord coord, Marco marco) {
+
+		// cada arista del poliedro da a lo sumo una linea, o dos por caras
+
+		VoronoiOutput oVoronoiOutput = new VoronoiOutput((esExtraerPorCaras ? 2 : 1) * aristas.get_total());
+
+		recorrerVoronoi(coord, marco, oVoronoiOutput);
+
+		return oVoronoiOutput;
+	}
+
+	public void recorrerVoronoi(ICoord coord, Marco marco, IReceptorLineas receptor) {
+
 		// para conocer el factor por el que multiplicamos el segmento
 		// que separa regiones no acotadas
 
 		this.coord = coord;
 
+		if (esExtraerPorCaras) {
+			recorrerPorCaras(coord, marco, receptor);
+			return;
+		}
+
+		ListIterator iterador = aristas.listIterator();
+
+		while (iterador.hasNext())
+			extraerArista((NodoArista) iterador.next(), coord, marco, receptor);
+	}
+
+	private void recorrerPorCaras(ICoord coord, Marco marco, IReceptorLineas receptor) {
+
 		ListIterator iterador = caras.listIterator();
 
 		Triangulo3d t;
 
-		// circuncentros
+		while (iterador.hasNext()) {
 
-		long[] cc, b1, b2;
+			t = (Triangulo3d) iterador.next();
 
-		boolean circuncentro_a_la_derecha;
+			if (t.nz() < 0) {
 
-		NodoArista arista;
+				ListAdaptor iter = caraIterator(t);
+
+				while (iter.hasNext())
+					extraerArista(iter.next(), coord, marco, receptor);
+			}
+		}
+	}
+
+	// la linea del diagrama dual de la arista, si la tiene: el segmento entre
+	// los circuncentros de sus dos caras si las dos son inferiores, o la
+	// semirrecta que sale del circuncentro de la unica cara inferior
+
+	private void extraerArista(NodoArista arista, ICoord coord, Marco marco, IReceptorLineas receptor) {
+
+		// circuncentros
+
+		long[] cc, b1, b2;
 
 		// para separar regiones no acotadas
 		long ux, uy; // vector de la arista
-		long uxorto, uyorto; // vector ortogonal a (ux,uy)
+
+		boolean izquierdaInferior = arista.caraIzq().nz() < 0;
+		boolean derechaInferior = arista.caraDer().nz() < 0;
+
+		if (izquierdaInferior && derechaInferior) {
+
+			b1 = arista.caraIzq().circuncentro();
+			b2 = arista.caraDer().circuncentro();
+
+			receptor.addLine(coord.x(b1[0]), coord.y(b1[1]), coord.x(b2[0]), coord.y(b2[1]));
+
+		} else if ((izquierdaInferior || derechaInferior) && esDibujarNoAcotadas) {
+
+			// la semirrecta va hacia el lado de la arista contrario a la cara
+			// inferior, que es la izquierda vista desde esa cara
+
+			cc = izquierdaInferior ? arista.caraIzq().circuncentro() : arista.caraDer().circuncentro();
+
+			ux = arista.des().x() - arista.ori().x();
+			uy = arista.des().y() - arista.ori().y();
+
+			Line newSpecialLine = izquierdaInferior ? Util.segmentoNoAcotado(coord, cc, -uy, ux, marco)
+					: Util.segmentoNoAcotado(coord, cc, uy, -ux, marco);
+
+			if (newSpecialLine != null)
+				receptor.addLine(newSpecialLine);
+		}
+	}
+
+	/**
+	 * Devuelve la triangulacion de Delaunay, que es la proyeccion de las caras
+	 * inferiores, como las coordenadas x0, y0, x1, y1, x2, y2 de cada
+	 * triangulo en sentido positivo, uno detras de otro
+	 */
+
+	public long[] verticesDelaunay() {
+
+		int total = 0;
+
+		ListIterator iterador = caras.listIterator();
+
+		while (iterador.hasNext())
+			if (((Triangulo3d) iterador.next()).nz() < 0)
+				total++;
+
+		long[] resultado = new long[6 * total];
+
+		int j = 0;
+
+		iterador = caras.listIterator();
 
 		while (iterador.hasNext()) {
 
-			t = (Triangulo3d) iterador.next();
+			Triangulo3d t = (Triangulo3d) iterador.next();
 
 			if (t.nz() < 0) {
 
-				ListAdaptor iter = caraIterator(t);
+				// vista desde arriba la cara inferior va en sentido negativo
 
-				while (iter.hasNext()) {
+				Vertice3d[] v = t.toArray();
 
-					arista = iter.next();
+				for (int i = 0; i < 3; i++) {
+					resultado[j++] = v[(3 - i) % 3].x();
+					resultado[j++] = v[(3 - i) % 3].y();
+				}
+			}
+		}
 
-					if (arista.caraIzq().nz() < 0 && arista.caraDer().nz() < 0) {
+		return resultado;
+	}
 
-						b1 = arista.caraIzq().circuncentro();
-						b2 = arista.caraDer().circuncentro();
+	/**
+	 * Devuelve la celda de Voronoi de cada sitio recortada al marco. La celda
+	 * de un sitio se lee de la estrella de su vertice en el poliedro: los
+	 * vertices de la celda son los circuncentros de las caras inferiores que
+	 * lo rodean, en el orden de verticeIterator, y si el sitio esta en el
+	 * cierre convexo del plano la celda se abre por las dos aristas que dan a
+	 * caras superiores
+	 * 
+	 * @param coord
+	 *            El objeto encargado de transformar apropiadamente las
+	 *            coordenadas del diagrama a las coordenadas del area de dibujo
+	 * @param marco
+	 *            El rectangulo del area de dibujo al que se recortan las celdas
+	 */
 
-						oVoronoiOutput.addLine( coord.x(b1[0]), coord.y(b1[1]) ,coord.x(b2[0]) ,coord.y(b2[1]) );
+	public CeldasOutput getCeldas(ICoord coord, Marco marco) {
 
-					} else if (arista.caraIzq().nz() < 0 && esDibujarNoAcotadas) {
+		CeldasOutput salida = new CeldasOutput(vertices.get_total());
 
-						// circuncentro
+		ListIterator iterador = vertices.listIterator();
 
-						cc = arista.caraIzq().circuncentro();
+		ArrayList<NodoArista> estrella = new ArrayList<NodoArista>();
+		ArrayList<long[]> circuncentros = new ArrayList<long[]>();
 
-						ux = arista.des().x() - arista.ori().x();
-						uy = arista.des().y() - arista.ori().y();
+		Vertice3d v;
 
-						circuncentro_a_la_derecha =
+		while (iterador.hasNext()) {
 
-								GC.area2(arista.ori().x(), arista.ori().y(), arista.des().x(), arista.des().y(), cc[0],
-										cc[1]) > 0;
+			v = (Vertice3d) iterador.next();
 
-						// uyorto = !circuncentro_a_la_derecha ? ux : -ux ;
-						// uxorto = !circuncentro_a_la_derecha ? -uy : uy ;
+			estrella.clear();
+			circuncentros.clear();
 
-						uyorto = ux;
-						uxorto = -uy;
-						Line newSpecialLine=segmentoNoAcotadoJSON(cc, uxorto, uyorto, circuncentro_a_la_derecha);
-						if (newSpecialLine!=null)
-							oVoronoiOutput.addLine(newSpecialLine);
+			ListAdaptor iter = verticeIterator(v);
 
-					} else if (arista.caraDer().nz() < 0 && esDibujarNoAcotadas) {
+			while (iter.hasNext())
+				estrella.add(iter.next());
 
-						// circuncentro
+			int k = estrella.size();
 
-						cc = arista.caraDer().circuncentro();
+			// la cara i esta entre las aristas i e i+1 de la estrella. Se
+			// empieza por una cara inferior que siga a una que no lo es
 
-						ux = arista.des().x() - arista.ori().x();
-						uy = arista.des().y() - arista.ori().y();
+			int primera = 0;
 
-						circuncentro_a_la_derecha =
+			for (int i = 0; i < k; i++)
+				if (entre(estrella, i - 1 + k).nz() >= 0 && entre(estrella, i).nz() < 0) {
+					primera = i;
+					break;
+				}
 
-								GC.area2(arista.ori().x(), arista.ori().y(), arista.des().x(), arista.des().y(), cc[0],
-										cc[1]) > 0;
+			int i = primera;
 
-						// uyorto = circuncentro_a_la_derecha ? ux : -ux ;
-						// uxorto = circuncentro_a_la_derecha ? -uy : uy ;
+			while (circuncentros.size() < k && entre(estrella, i).nz() < 0)
+				circuncentros.add(entre(estrella, i++).circuncentro());
 
-						uyorto = -ux;
-						uxorto = uy;
+			Punto2D sitio = new Punto2D(v.x(), v.y());
 
-						Line newSpecialLine=segmentoNoAcotadoJSON(cc, uxorto, uyorto, circuncentro_a_la_derecha);
-						if (newSpecialLine!=null)
-							oVoronoiOutput.addLine(newSpecialLine);
+			// un sitio sin caras inferiores, entre otros alineados con el en
+			// el cierre, no tiene celda
 
-					}
+			if (circuncentros.isEmpty()) {
+				salida.addCelda(new Celda(sitio, new ArrayList<Punto2D>()));
+				continue;
+			}
 
-				}
+			long[] entrada = null, salidaRayo = null;
+
+			if (circuncentros.size() < k) {
+
+				entrada = rayo(v, estrella.get(primera), estrella.get((primera + 1) % k));
+				salidaRayo = rayo(v, estrella.get(i % k), estrella.get((i - 1 + k) % k));
 			}
+
+			salida.addCelda(new Celda(sitio, Util.celdaRecortada(coord, circuncentros, entrada, salidaRayo, marco)));
 		}
-		return oVoronoiOutput;
 
+		return salida;
+	}
+
+	// la cara que comparten las aristas i e i+1 de la estrella de un vertice
+
+	private static Triangulo3d entre(ArrayList<NodoArista> estrella, int i) {
+
+		NodoArista e = estrella.get(i % estrella.size());
+		NodoArista f = estrella.get((i + 1) % estrella.size());
+
+		return e.caraIzq() == f.caraIzq() || e.caraIzq() == f.caraDer() ? e.caraIzq() : e.caraDer();
+	}
+
+	// direccion de la semirrecta de Voronoi de la arista del cierre que une v
+	// con el otro extremo de borde: perpendicular a ella y hacia el lado
+	// contrario al otro extremo de vecina, que cierra la cara inferior
+
+	private static long[] rayo(Vertice3d v, NodoArista borde, NodoArista vecina) {
+
+		Vertice3d w = borde.ori().igual(v) ? borde.des() : borde.ori();
+		Vertice3d tercero = vecina.ori().igual(v) ? vecina.des() : vecina.ori();
+
+		long ux = w.x() - v.x();
+		long uy = w.y() - v.y();
+
+		if (GC.area2(v.x(), v.y(), w.x(), w.y(), tercero.x(), tercero.y()) > 0)
+			return new long[] { uy, -ux };
+
+		return new long[] { -uy, ux };
 	}
 
 	private void dibujarVoronoi(Graphics g, ICoord coord) {
@@ -372,39 +562,21 @@ public class Poliedro extends DCEL implements Dibujable, Serializable {
 
 	}
 
-	private int factor;
-
 	private void segmentoNoAcotado(long p[], long ux, long uy, boolean derecha) {
 
-		if (!Util.dentroMarco(coord.x(p[0]), coord.y(p[1])))
-			return;
+		Line l = Util.segmentoNoAcotado(coord, p, ux, uy);
 
-		for (factor = 0; Util.dentroMarco(coord.x(p[0] + factor * ux), coord.y(p[1] + factor * uy)); factor++)
-			;
+		if (l == null)
+			return;
 
-		g.drawLine(coord.x(p[0]), coord.y(p[1]), coord.x(p[0] + factor * ux), coord.y(p[1] + factor * uy));
+		g.drawLine(l.getX1(), l.getY1(), l.getX2(), l.getY2());
 
-		System.out.println("[ " + coord.x(p[0]) + " " + coord.y(p[1]) + " " + coord.x(p[0] + factor * ux) + " "
-				+ coord.y(p[1] + factor * uy)
+		System.out.println("[ " + l.getX1() + " " + l.getY1() + " " + l.getX2() + " " + l.getY2()
 
 		);
 
 	}
-	
-	private Line segmentoNoAcotadoJSON(long p[], long ux, long uy, boolean derecha) {
-		
-		String result="";
 
-		if (!Util.dentroMarco(coord.x(p[0]), coord.y(p[1])))
-			return null;
-
-		for (factor = 0; Util.dentroMarco(coord.x(p[0] + factor * ux), coord.y(p[1] + factor * uy)); factor++)
-			;
-
-		return new Line( coord.x(p[0]) ,coord.y(p[1]) ,coord.x(p[0] + factor * ux) ,coord.y(p[1] + factor * uy) );		
-
-	}
-	
 
 	private void dibujarDelaunay(Graphics g, ICoord coord) {
 
@@ -0,0 +1,34 @@
+package com.aalburquerque.voronoi.struc.impl;
+
+import java.io.Serializable;
+
+public class RealPoint implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private double x, y;
+
+	public RealPoint() {
+	}
+
+	public RealPoint(double x, double y) {
+		setX(x);
+		setY(y);
+	}
+
+	public double getX() {
+		return x;
+	}
+
+	public void setX(double x) {
+		this.x = x;
+	}
+
+	public double getY() {
+		return y;
+	}
+
+	public void setY(double y) {
+		this.y = y;
+	}
+}
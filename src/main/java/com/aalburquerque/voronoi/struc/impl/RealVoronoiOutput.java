@@ -0,0 +1,31 @@
+package com.aalburquerque.voronoi.struc.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class RealVoronoiOutput {
+
+	List<RealLine> lines = new ArrayList<RealLine>();
+
+	InformeCalculo informe;
+
+	public List<RealLine> getLines() {
+		return lines;
+	}
+
+	public void setLines(List<RealLine> lines) {
+		this.lines = lines;
+	}
+
+	public InformeCalculo getInforme() {
+		return informe;
+	}
+
+	public void setInforme(InformeCalculo informe) {
+		this.informe = informe;
+	}
+
+	public void addLine(double x1, double y1, double x2, double y2) {
+		lines.add(new RealLine(x1, y1, x2, y2));
+	}
+}
@@ -0,0 +1,61 @@
+package com.aalburquerque.voronoi.struc.impl;
+
+public class TrabajoOutput {
+
+	private String id;
+	private String estado;
+	private String mensaje;
+	private long creado;
+	private long terminado;
+
+	public TrabajoOutput() {
+	}
+
+	public TrabajoOutput(String id, String estado, String mensaje, long creado, long terminado) {
+		setId(id);
+		setEstado(estado);
+		setMensaje(mensaje);
+		setCreado(creado);
+		setTerminado(terminado);
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public String getEstado() {
+		return estado;
+	}
+
+	public void setEstado(String estado) {
+		this.estado = estado;
+	}
+
+	public String getMensaje() {
+		return mensaje;
+	}
+
+	public void setMensaje(String mensaje) {
+		this.mensaje = mensaje;
+	}
+
+	public long getCreado() {
+		return creado;
+	}
+
+	public void setCreado(long creado) {
+		this.creado = creado;
+	}
+
+	public long getTerminado() {
+		return terminado;
+	}
+
+	public void setTerminado(long terminado) {
+		this.terminado = terminado;
+	}
+}
@@ -0,0 +1,469 @@
+/*
+  This file is part of com.aalburquerque.voronoi API.
+
+    com.aalburquerque.voronoi API is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    com.aalburquerque.voronoi API is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with com.aalburquerque.voronoi API.  If not, see <http://www.gnu.org/licenses/>
+*/
+
+package com.aalburquerque.voronoi.struc.impl;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.ListIterator;
+
+import com.aalburquerque.voronoi.algorithms.DelaunayPlano;
+import com.aalburquerque.voronoi.struc.Dibujable;
+import com.aalburquerque.voronoi.struc.ICoord;
+import com.aalburquerque.voronoi.struc.IDiagrama;
+import com.aalburquerque.voronoi.struc.IReceptorLineas;
+import com.aalburquerque.voronoi.util.GC;
+import com.aalburquerque.voronoi.util.Marco;
+import com.aalburquerque.voronoi.util.Util;
+
+/**
+ * La clase Triangulacion representa la triangulacion de Delaunay de un
+ * conjunto de sitios del plano calculada directamente en el plano por el
+ * proceso DelaunayPlano. Es la alternativa a Poliedro cuando no interesa el
+ * cierre convexo en el espacio: no se construye la parte superior del cierre,
+ * que Poliedro descarta al dar el diagrama, ni se elevan las coordenadas al
+ * paraboloide. <br>
+ * Cada arista interior de la triangulacion da un segmento de Voronoi entre los
+ * circuncentros de sus dos triangulos y cada arista del cierre convexo una
+ * semirrecta que parte del circuncentro de su triangulo hacia el exterior.
+ * <br>
+ * Los sitios pueden tener coordenadas reales. Entonces el diagrama se da sin
+ * redondear por getVoronoiReal(), en las mismas coordenadas que los sitios.
+ * 
+ * @author Antonio Alburquerque Oliva
+ * @version 1.00
+ * @see DelaunayPlano
+ */
+
+public class Triangulacion implements IDiagrama, Dibujable, Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private long[] x;
+	private long[] y;
+
+	// coordenadas reales, o null si son enteras
+
+	private double[] xr;
+	private double[] yr;
+
+	private int[] triangulos;
+	private int[] mitades;
+	private int totalTriangulos;
+
+	private boolean esDibujarNoAcotadas = true;
+
+	/**
+	 * Construir la triangulacion de Delaunay de la nube de sitios pasada como
+	 * parametro
+	 * 
+	 * @param nube
+	 *            La nube de sitios del plano
+	 */
+
+	public Triangulacion(Nube2D nube) {
+
+		int n = nube.get_total();
+
+		x = new long[n];
+		y = new long[n];
+
+		ListIterator iter = nube.listIterator();
+		Punto2D p;
+
+		for (int i = 0; i < n; i++) {
+			p = (Punto2D) iter.next();
+			x[i] = p.x();
+			y[i] = p.y();
+		}
+
+		construir();
+	}
+
+	/**
+	 * Construir la triangulacion de Delaunay de los sitios cuyas coordenadas
+	 * se pasan como parametro
+	 * 
+	 * @param x
+	 *            Abscisas de los sitios
+	 * @param y
+	 *            Ordenadas de los sitios
+	 */
+
+	public Triangulacion(long[] x, long[] y) {
+
+		this.x = x;
+		this.y = y;
+
+		construir();
+	}
+
+	/**
+	 * Construir la triangulacion de Delaunay de los sitios cuyas coordenadas
+	 * reales se pasan como parametro
+	 * 
+	 * @param x
+	 *            Abscisas de los sitios
+	 * @param y
+	 *            Ordenadas de los sitios
+	 */
+
+	public Triangulacion(double[] x, double[] y) {
+
+		this.xr = x;
+		this.yr = y;
+
+		construir();
+	}
+
+	private void construir() {
+
+		DelaunayPlano proceso = xr != null ? new DelaunayPlano(xr, yr) : new DelaunayPlano(x, y);
+
+		triangulos = proceso.triangulos();
+		mitades = proceso.mitades();
+		totalTriangulos = proceso.totalTriangulos();
+	}
+
+	public void setDibujarNoAcotadas(boolean valor) {
+		esDibujarNoAcotadas = valor;
+	}
+
+	/**
+	 * Devuelve el numero total de triangulos
+	 */
+
+	public int totalTriangulos() {
+		return totalTriangulos;
+	}
+
+	/**
+	 * Devuelve los indices de los sitios de cada triangulo, de a tres en orden
+	 * CCW. Solo son validas las 3*totalTriangulos() primeras posiciones
+	 */
+
+	public int[] triangulos() {
+		return triangulos;
+	}
+
+	/**
+	 * Devuelve para cada semiarista su gemela, o -1 si esta en el cierre
+	 * convexo. Solo son validas las 3*totalTriangulos() primeras posiciones
+	 */
+
+	public int[] mitades() {
+		return mitades;
+	}
+
+	/**
+	 * Devuelve los triangulos como las coordenadas x0, y0, x1, y1, x2, y2 de
+	 * cada uno en sentido positivo, uno detras de otro
+	 */
+
+	public long[] verticesDelaunay() {
+
+		if (xr != null)
+			throw new RuntimeException("Triangulacion de coordenadas reales: los vertices los da triangulos()");
+
+		long[] resultado = new long[6 * totalTriangulos];
+
+		for (int e = 0; e < 3 * totalTriangulos; e++) {
+			resultado[2 * e] = x[triangulos[e]];
+			resultado[2 * e + 1] = y[triangulos[e]];
+		}
+
+		return resultado;
+	}
+
+	/**
+	 * @param coord
+	 * @return
+	 */
+	public VoronoiOutput getVoronoiJSON(ICoord coord) {
+		return getVoronoiJSON(coord, Marco.PANTALLA);
+	}
+
+	public VoronoiOutput getVoronoiJSON(ICoord coord, Marco marco) {
+
+		VoronoiOutput oVoronoiOutput = new VoronoiOutput(3 * totalTriangulos / 2);
+
+		recorrerVoronoi(coord, marco, oVoronoiOutput);
+
+		return oVoronoiOutput;
+	}
+
+	public void recorrerVoronoi(ICoord coord, Marco marco, IReceptorLineas receptor) {
+
+		if (xr != null)
+			throw new RuntimeException("Triangulacion de coordenadas reales: el diagrama lo da getVoronoiReal()");
+
+		// circuncentros, uno por triangulo
+
+		long[][] cc = new long[totalTriangulos][];
+
+		for (int t = 0; t < totalTriangulos; t++) {
+
+			int a = triangulos[3 * t], b = triangulos[3 * t + 1], c = triangulos[3 * t + 2];
+
+			cc[t] = GC.circuncentro(x[a], y[a], x[b], y[b], x[c], y[c]);
+		}
+
+		long[] b1, b2;
+
+		for (int e = 0; e < 3 * totalTriangulos; e++) {
+
+			int gemela = mitades[e];
+
+			if (gemela > e) {
+
+				// arista interior: cada una se visita desde sus dos semiaristas
+				// y se da solo desde la primera
+
+				b1 = cc[e / 3];
+				b2 = cc[gemela / 3];
+
+				receptor.addLine(coord.x(b1[0]), coord.y(b1[1]), coord.x(b2[0]), coord.y(b2[1]));
+
+			} else if (gemela == -1 && esDibujarNoAcotadas) {
+
+				// arista del cierre: su triangulo queda a la izquierda y la
+				// semirrecta va hacia la derecha
+
+				int ori = triangulos[e];
+				int des = triangulos[e - e % 3 + (e + 1) % 3];
+
+				long ux = x[des] - x[ori];
+				long uy = y[des] - y[ori];
+
+				Line newSpecialLine = Util.segmentoNoAcotado(coord, cc[e / 3], uy, -ux, marco);
+				if (newSpecialLine != null)
+					receptor.addLine(newSpecialLine);
+			}
+		}
+	}
+
+	/**
+	 * Devuelve la celda de Voronoi de cada sitio recortada al marco. La celda
+	 * se lee girando en torno al sitio por los triangulos que lo tienen como
+	 * vertice: sus circuncentros son los vertices de la celda y, si el sitio
+	 * esta en el cierre convexo, las dos aristas del cierre que salen de el
+	 * abren la celda
+	 * 
+	 * @param coord
+	 *            El objeto encargado de transformar apropiadamente las
+	 *            coordenadas del diagrama a las coordenadas del area de dibujo
+	 * @param marco
+	 *            El rectangulo del area de dibujo al que se recortan las celdas
+	 */
+
+	public CeldasOutput getCeldas(ICoord coord, Marco marco) {
+
+		if (xr != null)
+			throw new RuntimeException("Triangulacion de coordenadas reales: las celdas solo se dan con coordenadas enteras");
+
+		int n = x.length;
+
+		CeldasOutput salida = new CeldasOutput(n);
+
+		// una semiarista que sale de cada sitio, o -1
+
+		int[] saliente = new int[n];
+		java.util.Arrays.fill(saliente, -1);
+
+		for (int e = 0; e < 3 * totalTriangulos; e++)
+			if (saliente[triangulos[e]] == -1 || mitades[e] == -1)
+				saliente[triangulos[e]] = e;
+
+		long[][] cc = new long[totalTriangulos][];
+
+		ArrayList<long[]> circuncentros = new ArrayList<long[]>();
+
+		for (int i = 0; i < n; i++) {
+
+			circuncentros.clear();
+
+			int inicio = saliente[i];
+			int e = inicio, ultima = -1;
+
+			// en sentido positivo en torno al sitio, pasando al triangulo
+			// vecino por la arista que llega al sitio. Si el sitio esta en el
+			// cierre se empieza por la arista del cierre que sale de el
+
+			while (e != -1) {
+
+				int t = e / 3;
+
+				if (cc[t] == null) {
+					int a = triangulos[3 * t], b = triangulos[3 * t + 1], c = triangulos[3 * t + 2];
+					cc[t] = GC.circuncentro(x[a], y[a], x[b], y[b], x[c], y[c]);
+				}
+
+				circuncentros.add(cc[t]);
+
+				ultima = e;
+				e = mitades[anterior(e)];
+
+				if (e == inicio)
+					break;
+			}
+
+			long[] entrada = null, salidaRayo = null;
+
+			if (inicio != -1 && mitades[inicio] == -1) {
+
+				// las dos aristas del cierre tienen su triangulo a la izquierda
+				// y su semirrecta va hacia la derecha
+
+				int des = triangulos[siguiente(inicio)];
+				entrada = new long[] { y[des] - y[i], x[i] - x[des] };
+
+				int ori = triangulos[anterior(ultima)];
+				salidaRayo = new long[] { y[i] - y[ori], x[ori] - x[i] };
+			}
+
+			salida.addCelda(new Celda(new Punto2D(x[i], y[i]), circuncentros.isEmpty() ? new ArrayList<Punto2D>()
+					: Util.celdaRecortada(coord, circuncentros, entrada, salidaRayo, marco)));
+		}
+
+		return salida;
+	}
+
+	// semiaristas siguiente y anterior a e en su triangulo
+
+	private static int siguiente(int e) {
+		return e - e % 3 + (e + 1) % 3;
+	}
+
+	private static int anterior(int e) {
+		return e - e % 3 + (e + 2) % 3;
+	}
+
+	/**
+	 * Devuelve el diagrama de Voronoi en las coordenadas de los sitios, sin
+	 * redondear los vertices. Las aristas no acotadas se cortan en una caja
+	 * que contiene a los sitios y a los vertices, ampliada en su lado mayor
+	 * por cada lado
+	 */
+
+	public RealVoronoiOutput getVoronoiReal() {
+
+		RealVoronoiOutput salida = new RealVoronoiOutput();
+
+		int n = xr != null ? xr.length : x.length;
+
+		double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+
+		for (int i = 0; i < n; i++) {
+			minX = Math.min(minX, px(i));
+			minY = Math.min(minY, py(i));
+			maxX = Math.max(maxX, px(i));
+			maxY = Math.max(maxY, py(i));
+		}
+
+		// circuncentros, uno por triangulo
+
+		double[][] cc = new double[totalTriangulos][];
+
+		for (int t = 0; t < totalTriangulos; t++) {
+
+			int a = triangulos[3 * t], b = triangulos[3 * t + 1], c = triangulos[3 * t + 2];
+
+			cc[t] = GC.circuncentro(px(a), py(a), px(b), py(b), px(c), py(c));
+
+			minX = Math.min(minX, cc[t][0]);
+			minY = Math.min(minY, cc[t][1]);
+			maxX = Math.max(maxX, cc[t][0]);
+			maxY = Math.max(maxY, cc[t][1]);
+		}
+
+		double margen = Math.max(maxX - minX, maxY - minY);
+
+		if (margen == 0)
+			margen = 1;
+
+		minX -= margen;
+		minY -= margen;
+		maxX += margen;
+		maxY += margen;
+
+		for (int e = 0; e < 3 * totalTriangulos; e++) {
+
+			int gemela = mitades[e];
+
+			if (gemela > e) {
+
+				double[] b1 = cc[e / 3];
+				double[] b2 = cc[gemela / 3];
+
+				salida.addLine(b1[0], b1[1], b2[0], b2[1]);
+
+			} else if (gemela == -1 && esDibujarNoAcotadas) {
+
+				int ori = triangulos[e];
+				int des = triangulos[e - e % 3 + (e + 1) % 3];
+
+				double ux = py(des) - py(ori);
+				double uy = px(ori) - px(des);
+
+				double[] p = cc[e / 3];
+
+				// avanzar desde el circuncentro hasta el primer lado de la
+				// caja que corta la semirrecta
+
+				double tx = ux > 0 ? (maxX - p[0]) / ux : ux < 0 ? (minX - p[0]) / ux : Double.POSITIVE_INFINITY;
+				double ty = uy > 0 ? (maxY - p[1]) / uy : uy < 0 ? (minY - p[1]) / uy : Double.POSITIVE_INFINITY;
+				double t = Math.min(tx, ty);
+
+				salida.addLine(p[0], p[1], p[0] + t * ux, p[1] + t * uy);
+			}
+		}
+
+		return salida;
+	}
+
+	// coordenadas de los sitios como double, sean enteras o reales
+
+	private double px(int i) {
+		return xr != null ? xr[i] : x[i];
+	}
+
+	private double py(int i) {
+		return yr != null ? yr[i] : y[i];
+	}
+
+	/**
+	 * Metodo para dibujar este objeto
+	 * 
+	 * @param g
+	 *            El objeto de la clase Graphics donde dibujar
+	 * @param coord
+	 *            El objeto por el que se transforma las coordenadas de este
+	 *            objeto a las coordenadas del espacio de representacion
+	 */
+
+	public void dibujar(Graphics g, ICoord coord) {
+
+		g.setColor(Color.blue);
+
+		for (Line l : getVoronoiJSON(coord).getLines())
+			g.drawLine(l.getX1(), l.getY1(), l.getX2(), l.getY2());
+	}
+
+}
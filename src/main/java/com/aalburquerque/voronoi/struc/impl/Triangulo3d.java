@@ -47,6 +47,21 @@ public class Triangulo3d implements Serializable {
 
 	private Vertice3d a, b, c;
 
+	// normal (b - a) x (c - a) y su producto escalar con a, calculados una
+	// vez al construir la cara; los vertices no cambian despues
+
+	private long nx, ny, nz, ofs;
+
+	// si los vertices estan dentro de GC.LIMITE_EXACTO, ofs - n.d es exacto
+	// en long para cualquier punto d tambien dentro
+
+	private boolean acotada;
+
+	// circuncentro de la proyeccion en XY, calculado la primera vez que se
+	// pide. Volatil para que otro hilo que lea el array lo vea completo
+
+	private transient volatile long[] circuncentro;
+
 	private NodoArista arista; // para apuntar una de las aristas de la cara
 
 	// se distigue la normal normalizada o no para reducir operaciones en
@@ -77,6 +92,17 @@ public class Triangulo3d implements Serializable {
 		this.b = b;
 		this.c = c;
 
+		long vx = b.x() - a.x(), vy = b.y() - a.y(), vz = b.z() - a.z();
+		long wx = c.x() - a.x(), wy = c.y() - a.y(), wz = c.z() - a.z();
+
+		nx = vy * wz - vz * wy;
+		ny = vz * wx - vx * wz;
+		nz = vx * wy - vy * wx;
+
+		ofs = nx * a.x() + ny * a.y() + nz * a.z();
+
+		acotada = GC.acotado(a.x(), a.y(), a.z()) && GC.acotado(b.x(), b.y(), b.z()) && GC.acotado(c.x(), c.y(), c.z());
+
 		estadoColor = new EstadoColor();
 
 		esVisitado = false;
@@ -87,39 +113,37 @@ public class Triangulo3d implements Serializable {
 	 */
 
 	public long nz() {
-
-		Punto3d normal;
-
-		Punto3d v = b.restar(a);
-		Punto3d w = c.restar(a);
-
-		normal = v.prodVect(w);
-
-		return normal.z();
+		return nz;
 	}
 
 	public long ny() {
-
-		Punto3d normal;
-
-		Punto3d v = b.restar(a);
-		Punto3d w = c.restar(a);
-
-		normal = v.prodVect(w);
-
-		return normal.y();
+		return ny;
 	}
 
 	public long nx() {
+		return nx;
+	}
 
-		Punto3d normal;
+	/**
+	 * Devuelve el sextuplo del volumen signado del tetraedro formado por esta
+	 * cara y el punto de coordenadas pasadas, igual que GC.volumen6 pero con
+	 * la normal ya calculada y sin crear objetos. Fuera de GC.LIMITE_EXACTO
+	 * se delega en GC.volumen6, que da el signo exacto
+	 * 
+	 * @param dx
+	 *            coordenada x del punto
+	 * @param dy
+	 *            coordenada y del punto
+	 * @param dz
+	 *            coordenada z del punto
+	 */
 
-		Punto3d v = b.restar(a);
-		Punto3d w = c.restar(a);
+	public double volumen6(long dx, long dy, long dz) {
 
-		normal = v.prodVect(w);
+		if (acotada && GC.acotado(dx, dy, dz))
+			return ofs - (nx * dx + ny * dy + nz * dz);
 
-		return normal.x();
+		return GC.volumen6(a.x(), a.y(), a.z(), b.x(), b.y(), b.z(), c.x(), c.y(), c.z(), dx, dy, dz);
 	}
 
 	/**
@@ -246,41 +270,20 @@ public class Triangulo3d implements Serializable {
 	}
 
 	/**
-	 * Devuelve el circuncetro de esta cara en un array de long
+	 * Devuelve el circuncetro de esta cara en un array de long. Se calcula
+	 * solo la primera vez: los vertices de la cara no cambian, y al dar el
+	 * diagrama se pide una vez por cada arista de la cara. El array devuelto
+	 * es siempre el mismo y no se debe modificar
 	 */
 
 	public long[] circuncentro() {
 
-		long b[] = new long[2];
-
-		Vertice3d[] a = toArray();
-
-		double p_0, p_1;
-
-		long a_0 = a[0].x();
-		long a_1 = a[0].y();
-		long b_0 = a[1].x();
-		long b_1 = a[1].y();
-		long c_0 = a[2].x();
-		long c_1 = a[2].y();
-
-		long D = 2 * (a_1 * c_0 + b_1 * a_0 - b_1 * c_0 - a_1 * b_0 - c_1 * a_0 + c_1 * b_0);
-
-		p_0 =
-
-				(b_1 * a_0 * a_0 - c_1 * a_0 * a_0 - b_1 * b_1 * a_1 + c_1 * c_1 * a_1 + b_0 * b_0 * c_1
-						+ a_1 * a_1 * b_1 + c_0 * c_0 * a_1 - c_1 * c_1 * b_1 - c_0 * c_0 * b_1 - b_0 * b_0 * a_1
-						+ b_1 * b_1 * c_1 - a_1 * a_1 * c_1) / D;
-
-		p_1 = (a_0 * a_0 * c_0 + a_1 * a_1 * c_0 + b_0 * b_0 * a_0 - b_0 * b_0 * c_0 + b_1 * b_1 * a_0 - b_1 * b_1 * c_0
-				- a_0 * a_0 * b_0 - a_1 * a_1 * b_0 - c_0 * c_0 * a_0 + c_0 * c_0 * b_0 - c_1 * c_1 * a_0
-				+ c_1 * c_1 * b_0) / D;
-
-		b[0] = (long) Math.round(p_0);
-		b[1] = (long) Math.round(p_1);
+		long[] resultado = circuncentro;
 
-		return b;
+		if (resultado == null)
+			circuncentro = resultado = GC.circuncentro(a.x(), a.y(), b.x(), b.y(), c.x(), c.y());
 
+		return resultado;
 	}
 
 	/**
@@ -19,6 +19,7 @@ package com.aalburquerque.voronoi.struc.impl;
 
 import java.io.Serializable;
 import java.util.ListIterator;
+import java.util.function.Predicate;
 
 import com.aalburquerque.voronoi.util.EstadoColor;
 
@@ -100,17 +101,11 @@ public class Vertices extends ListaDE implements Serializable{
       
       // borrar los vertices q no tiene el estado de no borrable
       
-      iterador = listIterator();
-      
-      Vertice3d v;
-      
-      while (iterador.hasNext() ){
-  		
-  		v = (Vertice3d)iterador.next();
-  		
-  		if (v.getEstado()!=Vertice3d.NOBORRABLE) iterador.remove();
-  		
-      }
+      compactar(new Predicate<Object>() {
+  		public boolean test(Object o) {
+  			return ((Vertice3d)o).getEstado()!=Vertice3d.NOBORRABLE;
+  		}
+      });
   	
     }
       
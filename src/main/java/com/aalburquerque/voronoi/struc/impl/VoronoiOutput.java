@@ -3,9 +3,20 @@ package com.aalburquerque.voronoi.struc.impl;
 import java.util.ArrayList;
 import java.util.List;
 
-public class VoronoiOutput {
+import com.aalburquerque.voronoi.struc.IReceptorLineas;
+
+public class VoronoiOutput implements IReceptorLineas {
 	
 	List<Line> lines=new ArrayList<Line>();
+	
+	InformeCalculo informe;
+
+	public VoronoiOutput() {
+	}
+
+	public VoronoiOutput(int capacidad) {
+		lines = new ArrayList<Line>(capacidad);
+	}
 
 	public List<Line> getLines() {
 		return lines;
@@ -15,6 +26,14 @@ public class VoronoiOutput {
 		this.lines = lines;
 	}
 	
+	public InformeCalculo getInforme() {
+		return informe;
+	}
+
+	public void setInforme(InformeCalculo informe) {
+		this.informe = informe;
+	}
+	
 	public void addLine(int x1, int y1, int x2, int y2){
 		Line oLine=new Line();
 		oLine.setX1(x1);
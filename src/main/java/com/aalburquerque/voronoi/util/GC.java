@@ -17,6 +17,9 @@
 
 package com.aalburquerque.voronoi.util;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
 import com.aalburquerque.voronoi.struc.impl.Punto2D;
 import com.aalburquerque.voronoi.struc.impl.Punto3d;
 import com.aalburquerque.voronoi.struc.impl.Triangulo3d;
@@ -26,12 +29,44 @@ import com.aalburquerque.voronoi.struc.impl.Vertice3d;
  * Este objeto contiene algunos metodos estaticos de utilidad que son
  * operaciones basicas muy usadas en geometria computacional y evitan el uso de
  * operaciones en coma flotante
+ * <p>
+ * Los predicados area2, volumen6 y enCirculo devuelven siempre el signo
+ * exacto, para cualquier coordenada cuyo punto elevado quepa en un long. Se
+ * evaluan de forma adaptativa, como propone Shewchuk: primero en coma
+ * flotante sobre las diferencias de coordenadas, y si el resultado no supera
+ * la cota de error del filtro, en long cuando el resultado no puede
+ * desbordar, o con BigInteger en otro caso. El valor devuelto tiene el signo
+ * exacto, pero su magnitud puede ser aproximada.
  * 
  * @author Antonio Alburquerque Oliva
  * @version 1.00
  */
 
 public class GC {
+
+	/**
+	 * Mayor valor absoluto de x e y, con |z| hasta 2 * LIMITE_EXACTO^2, con el
+	 * que volumen6 calculado directamente en long no puede desbordar
+	 */
+
+	public static final long LIMITE_EXACTO = 1L << 14;
+
+	// cotas de error de los filtros de Shewchuk para el redondeo al mas
+	// proximo de la doble precision (epsilon = 2^-53)
+
+	private static final double EPSILON = 1.1102230246251565E-16;
+
+	private static final double ERROR_AREA2 = (3.0 + 16.0 * EPSILON) * EPSILON;
+	private static final double ERROR_VOLUMEN6 = (7.0 + 56.0 * EPSILON) * EPSILON;
+	private static final double ERROR_EN_CIRCULO = (10.0 + 96.0 * EPSILON) * EPSILON;
+
+	// mascara de las coordenadas cuyas diferencias pueden desbordar un long
+
+	private static final long FUERA_DE_DIFERENCIA = -(1L << 62);
+
+	// resultado que cabe en long aunque los productos intermedios desborden
+
+	private static final double LIMITE_LONG = 0x1p61;
 	/**
 	 * Devuelve el doble del area signada del triangulo con las coordenadas
 	 * pasadas como parametro
@@ -52,8 +87,36 @@ public class GC {
 
 	public static double area2(long x1, long y1, long x2, long y2, long x3, long y3) {
 
-		return (x2 * y3 + x3 * y1 + x1 * y2 - y1 * x2 - y2 * x3 - x1 * y3);
+		if (((Math.abs(x1) | Math.abs(y1) | Math.abs(x2) | Math.abs(y2) | Math.abs(x3) | Math.abs(y3))
+				& FUERA_DE_DIFERENCIA) != 0)
+			return area2Exacta(x1, y1, x2, y2, x3, y3);
+
+		long ax = x1 - x3, ay = y1 - y3;
+		long bx = x2 - x3, by = y2 - y3;
+
+		double izq = (double) ax * (double) by;
+		double der = (double) ay * (double) bx;
+
+		double det = izq - der;
+		double permanente = Math.abs(izq) + Math.abs(der);
+
+		if (Math.abs(det) > ERROR_AREA2 * permanente)
+			return det;
+
+		if (permanente < LIMITE_LONG)
+			return ax * by - ay * bx;
 
+		return area2Exacta(x1, y1, x2, y2, x3, y3);
+	}
+
+	private static double area2Exacta(long x1, long y1, long x2, long y2, long x3, long y3) {
+
+		BigInteger ax = BigInteger.valueOf(x1).subtract(BigInteger.valueOf(x3));
+		BigInteger ay = BigInteger.valueOf(y1).subtract(BigInteger.valueOf(y3));
+		BigInteger bx = BigInteger.valueOf(x2).subtract(BigInteger.valueOf(x3));
+		BigInteger by = BigInteger.valueOf(y2).subtract(BigInteger.valueOf(y3));
+
+		return ax.multiply(by).subtract(ay.multiply(bx)).signum();
 	}
 
 	/**
@@ -70,15 +133,7 @@ public class GC {
 
 	public static double area2(Punto2D p, Punto2D q, Punto2D r) {
 
-		long x1 = p.x();
-		long x2 = q.x();
-		long x3 = r.x();
-
-		long y1 = p.y();
-		long y2 = q.y();
-		long y3 = r.y();
-
-		return (x2 * y3 + x3 * y1 + x1 * y2 - y1 * x2 - y2 * x3 - x1 * y3);
+		return area2(p.x(), p.y(), q.x(), q.y(), r.x(), r.y());
 
 	}
 
@@ -95,7 +150,7 @@ public class GC {
 
 	public static boolean visible(Triangulo3d t, Vertice3d d) {
 
-		return volumen6(t, d) < 0;
+		return t.volumen6(d.x(), d.y(), d.z()) < 0;
 
 	}
 
@@ -111,7 +166,7 @@ public class GC {
 
 	public static boolean visible(Triangulo3d t, Punto3d d) {
 
-		return volumen6(t, new Vertice3d(d)) < 0;
+		return t.volumen6(d.x(), d.y(), d.z()) < 0;
 
 	}
 
@@ -127,35 +182,30 @@ public class GC {
 	 *            Un punto en el espacio
 	 */
 
-	public static boolean alineados(Vertice3d v0, Vertice3d v1, Vertice3d v2) {
-
-		// tres lo estan si lo estan sus proyecciones
+	public static boolean alineados(Punto3d v0, Punto3d v1, Punto3d v2) {
 
-		Punto2D p0, p1, p2;
-		Punto2D q0, q1, q2;
-		Punto2D r0, r1, r2;
+		return alineados(v0.x(), v0.y(), v0.z(), v1.x(), v1.y(), v1.z(), v2.x(), v2.y(), v2.z());
+	}
 
-		p0 = new Punto2D(v0.x(), v0.y());
-		p1 = new Punto2D(v1.x(), v1.y());
-		p2 = new Punto2D(v2.x(), v2.y());
+	/**
+	 * Devuelve cierto si y solamente si los tres puntos en el espacio cuyas
+	 * coordenadas son pasadas como parametro estan alineados, es decir, si lo
+	 * estan sus proyecciones sobre los tres planos coordenados. Cada proyeccion
+	 * es una componente del producto vectorial (v1 - v0) x (v2 - v0)
+	 */
 
-		q0 = new Punto2D(v0.x(), v0.z());
-		q1 = new Punto2D(v1.x(), v1.z());
-		q2 = new Punto2D(v2.x(), v2.z());
+	public static boolean alineados(long x0, long y0, long z0, long x1, long y1, long z1, long x2, long y2,
+			long z2) {
 
-		r0 = new Punto2D(v0.y(), v0.z());
-		r1 = new Punto2D(v1.y(), v1.z());
-		r2 = new Punto2D(v2.y(), v2.z());
+		long ux = x1 - x0, uy = y1 - y0, uz = z1 - z0;
+		long vx = x2 - x0, vy = y2 - y0, vz = z2 - z0;
 
-		return (area2(p0, p1, p2) == 0) && (area2(q0, q1, q2) == 0) && (area2(r0, r1, r2) == 0);
+		return uy * vz - uz * vy == 0 && uz * vx - ux * vz == 0 && ux * vy - uy * vx == 0;
 	}
 
 	public static double volumen6(Triangulo3d t, Vertice3d d) {
 
-		Punto3d[] p = t.toArray();
-
-		return volumen6(p[0].x(), p[0].y(), p[0].z(), p[1].x(), p[1].y(), p[1].z(), p[2].x(), p[2].y(), p[2].z(), d.x(),
-				d.y(), d.z());
+		return t.volumen6(d.x(), d.y(), d.z());
 	}
 
 	/**
@@ -209,13 +259,266 @@ public class GC {
 	public static double volumen6(long ax, long ay, long az, long bx, long by, long bz, long cx, long cy, long cz,
 			long dx, long dy, long dz) {
 
-		return (-az * by * cx + ay * bz * cx + az * bx * cy - ax * bz * cy - ay * bx * cz + ax * by * cz + az * by * dx
-				- ay * bz * dx - az * cy * dx + bz * cy * dx + ay * cz * dx - by * cz * dx - az * bx * dy + ax * bz * dy
-				+ az * cx * dy - bz * cx * dy - ax * cz * dy + bx * cz * dy + ay * bx * dz - ax * by * dz - ay * cx * dz
-				+ by * cx * dz + ax * cy * dz - bx * cy * dz
+		if (((Math.abs(ax) | Math.abs(ay) | Math.abs(az) | Math.abs(bx) | Math.abs(by) | Math.abs(bz) | Math.abs(cx)
+				| Math.abs(cy) | Math.abs(cz) | Math.abs(dx) | Math.abs(dy) | Math.abs(dz)) & FUERA_DE_DIFERENCIA) != 0)
+			return volumen6Exacto(ax, ay, az, bx, by, bz, cx, cy, cz, dx, dy, dz);
+
+		long adx = ax - dx, ady = ay - dy, adz = az - dz;
+		long bdx = bx - dx, bdy = by - dy, bdz = bz - dz;
+		long cdx = cx - dx, cdy = cy - dy, cdz = cz - dz;
+
+		double bdxcdy = (double) bdx * (double) cdy, cdxbdy = (double) cdx * (double) bdy;
+		double cdxady = (double) cdx * (double) ady, adxcdy = (double) adx * (double) cdy;
+		double adxbdy = (double) adx * (double) bdy, bdxady = (double) bdx * (double) ady;
+
+		double det = adz * (bdxcdy - cdxbdy) + bdz * (cdxady - adxcdy) + cdz * (adxbdy - bdxady);
+
+		double permanente = (Math.abs(bdxcdy) + Math.abs(cdxbdy)) * Math.abs((double) adz)
+				+ (Math.abs(cdxady) + Math.abs(adxcdy)) * Math.abs((double) bdz)
+				+ (Math.abs(adxbdy) + Math.abs(bdxady)) * Math.abs((double) cdz);
+
+		if (Math.abs(det) > ERROR_VOLUMEN6 * permanente)
+			return det;
+
+		if (permanente < LIMITE_LONG)
+			return adz * (bdx * cdy - cdx * bdy) + bdz * (cdx * ady - adx * cdy) + cdz * (adx * bdy - bdx * ady);
+
+		return volumen6Exacto(ax, ay, az, bx, by, bz, cx, cy, cz, dx, dy, dz);
+	}
+
+	private static double volumen6Exacto(long ax, long ay, long az, long bx, long by, long bz, long cx, long cy,
+			long cz, long dx, long dy, long dz) {
+
+		BigInteger adx = diferencia(ax, dx), ady = diferencia(ay, dy), adz = diferencia(az, dz);
+		BigInteger bdx = diferencia(bx, dx), bdy = diferencia(by, dy), bdz = diferencia(bz, dz);
+		BigInteger cdx = diferencia(cx, dx), cdy = diferencia(cy, dy), cdz = diferencia(cz, dz);
+
+		return adz.multiply(bdx.multiply(cdy).subtract(cdx.multiply(bdy)))
+				.add(bdz.multiply(cdx.multiply(ady).subtract(adx.multiply(cdy))))
+				.add(cdz.multiply(adx.multiply(bdy).subtract(bdx.multiply(ady)))).signum();
+	}
+
+	private static BigInteger diferencia(long a, long b) {
+		return BigInteger.valueOf(a).subtract(BigInteger.valueOf(b));
+	}
+
+	/**
+	 * Devuelve cierto si las coordenadas no pasan de LIMITE_EXACTO en x e y ni
+	 * de 2 * LIMITE_EXACTO^2 en z
+	 */
+
+	public static boolean acotado(long x, long y, long z) {
+
+		return Math.abs(x) <= LIMITE_EXACTO && Math.abs(y) <= LIMITE_EXACTO
+				&& Math.abs(z) <= 2 * LIMITE_EXACTO * LIMITE_EXACTO;
+	}
+
+	/**
+	 * Devuelve un valor positivo si y solamente si el punto d esta en el
+	 * interior de la circunferencia que pasa por a, b y c, supuesto que a, b y
+	 * c estan en orden CCW. Equivale a volumen6 de los puntos elevados sobre el
+	 * paraboloide, pero trasladando d al origen para que los productos no
+	 * crezcan con la magnitud absoluta de las coordenadas
+	 * 
+	 * @param ax
+	 *            coordenada x de un punto del triangulo
+	 * @param ay
+	 *            coordenada y de un punto del triangulo
+	 * @param bx
+	 *            coordenada x de un punto del triangulo
+	 * @param by
+	 *            coordenada y de un punto del triangulo
+	 * @param cx
+	 *            coordenada x de un punto del triangulo
+	 * @param cy
+	 *            coordenada y de un punto del triangulo
+	 * @param dx
+	 *            coordenada x del punto que se prueba
+	 * @param dy
+	 *            coordenada y del punto que se prueba
+	 */
+
+	public static double enCirculo(long ax, long ay, long bx, long by, long cx, long cy, long dx, long dy) {
+
+		if (((Math.abs(ax) | Math.abs(ay) | Math.abs(bx) | Math.abs(by) | Math.abs(cx) | Math.abs(cy) | Math.abs(dx)
+				| Math.abs(dy)) & FUERA_DE_DIFERENCIA) != 0)
+			return enCirculoExacto(ax, ay, bx, by, cx, cy, dx, dy);
+
+		long adx = ax - dx, ady = ay - dy;
+		long bdx = bx - dx, bdy = by - dy;
+		long cdx = cx - dx, cdy = cy - dy;
+
+		double bdxcdy = (double) bdx * (double) cdy, cdxbdy = (double) cdx * (double) bdy;
+		double cdxady = (double) cdx * (double) ady, adxcdy = (double) adx * (double) cdy;
+		double adxbdy = (double) adx * (double) bdy, bdxady = (double) bdx * (double) ady;
+
+		double alift = (double) adx * (double) adx + (double) ady * (double) ady;
+		double blift = (double) bdx * (double) bdx + (double) bdy * (double) bdy;
+		double clift = (double) cdx * (double) cdx + (double) cdy * (double) cdy;
+
+		double det = alift * (bdxcdy - cdxbdy) + blift * (cdxady - adxcdy) + clift * (adxbdy - bdxady);
+
+		double permanente = (Math.abs(bdxcdy) + Math.abs(cdxbdy)) * alift
+				+ (Math.abs(cdxady) + Math.abs(adxcdy)) * blift + (Math.abs(adxbdy) + Math.abs(bdxady)) * clift;
+
+		if (Math.abs(det) > ERROR_EN_CIRCULO * permanente)
+			return det;
+
+		if (permanente < LIMITE_LONG) {
+
+			long a2 = adx * adx + ady * ady;
+			long b2 = bdx * bdx + bdy * bdy;
+			long c2 = cdx * cdx + cdy * cdy;
+
+			return a2 * (bdx * cdy - cdx * bdy) - b2 * (adx * cdy - cdx * ady) + c2 * (adx * bdy - bdx * ady);
+		}
+
+		return enCirculoExacto(ax, ay, bx, by, cx, cy, dx, dy);
+	}
+
+	private static double enCirculoExacto(long ax, long ay, long bx, long by, long cx, long cy, long dx, long dy) {
+
+		BigInteger adx = diferencia(ax, dx), ady = diferencia(ay, dy);
+		BigInteger bdx = diferencia(bx, dx), bdy = diferencia(by, dy);
+		BigInteger cdx = diferencia(cx, dx), cdy = diferencia(cy, dy);
+
+		BigInteger a2 = adx.multiply(adx).add(ady.multiply(ady));
+		BigInteger b2 = bdx.multiply(bdx).add(bdy.multiply(bdy));
+		BigInteger c2 = cdx.multiply(cdx).add(cdy.multiply(cdy));
+
+		return a2.multiply(bdx.multiply(cdy).subtract(cdx.multiply(bdy)))
+				.subtract(b2.multiply(adx.multiply(cdy).subtract(cdx.multiply(ady))))
+				.add(c2.multiply(adx.multiply(bdy).subtract(bdx.multiply(ady)))).signum();
+	}
+
+	/**
+	 * Devuelve el doble del area signada del triangulo con las coordenadas
+	 * reales pasadas como parametro, con el signo exacto. Como en la version
+	 * entera, primero se filtra en coma flotante y solo si no basta se calcula
+	 * con BigDecimal, que representa cada double sin error
+	 */
+
+	public static double area2(double x1, double y1, double x2, double y2, double x3, double y3) {
+
+		double izq = (x1 - x3) * (y2 - y3);
+		double der = (y1 - y3) * (x2 - x3);
+
+		double det = izq - der;
+
+		if (Math.abs(det) > ERROR_AREA2 * (Math.abs(izq) + Math.abs(der)))
+			return det;
+
+		BigDecimal ax = diferencia(x1, x3), ay = diferencia(y1, y3);
+		BigDecimal bx = diferencia(x2, x3), by = diferencia(y2, y3);
+
+		return ax.multiply(by).subtract(ay.multiply(bx)).signum();
+	}
+
+	/**
+	 * Version de enCirculo para coordenadas reales, con el signo exacto. Es el
+	 * volumen6 de los puntos elevados al paraboloide sin llegar a elevarlos,
+	 * porque x^2 + y^2 de un double no es en general un double
+	 */
+
+	public static double enCirculo(double ax, double ay, double bx, double by, double cx, double cy, double dx,
+			double dy) {
+
+		double adx = ax - dx, ady = ay - dy;
+		double bdx = bx - dx, bdy = by - dy;
+		double cdx = cx - dx, cdy = cy - dy;
+
+		double bdxcdy = bdx * cdy, cdxbdy = cdx * bdy;
+		double cdxady = cdx * ady, adxcdy = adx * cdy;
+		double adxbdy = adx * bdy, bdxady = bdx * ady;
+
+		double alift = adx * adx + ady * ady;
+		double blift = bdx * bdx + bdy * bdy;
+		double clift = cdx * cdx + cdy * cdy;
+
+		double det = alift * (bdxcdy - cdxbdy) + blift * (cdxady - adxcdy) + clift * (adxbdy - bdxady);
+
+		double permanente = (Math.abs(bdxcdy) + Math.abs(cdxbdy)) * alift
+				+ (Math.abs(cdxady) + Math.abs(adxcdy)) * blift + (Math.abs(adxbdy) + Math.abs(bdxady)) * clift;
+
+		if (Math.abs(det) > ERROR_EN_CIRCULO * permanente)
+			return det;
+
+		BigDecimal adxe = diferencia(ax, dx), adye = diferencia(ay, dy);
+		BigDecimal bdxe = diferencia(bx, dx), bdye = diferencia(by, dy);
+		BigDecimal cdxe = diferencia(cx, dx), cdye = diferencia(cy, dy);
+
+		BigDecimal a2 = adxe.multiply(adxe).add(adye.multiply(adye));
+		BigDecimal b2 = bdxe.multiply(bdxe).add(bdye.multiply(bdye));
+		BigDecimal c2 = cdxe.multiply(cdxe).add(cdye.multiply(cdye));
+
+		return a2.multiply(bdxe.multiply(cdye).subtract(cdxe.multiply(bdye)))
+				.subtract(b2.multiply(adxe.multiply(cdye).subtract(cdxe.multiply(adye))))
+				.add(c2.multiply(adxe.multiply(bdye).subtract(bdxe.multiply(adye)))).signum();
+	}
+
+	private static BigDecimal diferencia(double a, double b) {
+		return new BigDecimal(a).subtract(new BigDecimal(b));
+	}
+
+	/**
+	 * Devuelve en un array de double el circuncentro del triangulo del plano
+	 * cuyas coordenadas reales son pasadas como parametro, sin redondear.
+	 * Se calcula trasladando a al origen para no perder precision con
+	 * coordenadas grandes y proximas entre si
+	 */
+
+	public static double[] circuncentro(double ax, double ay, double bx, double by, double cx, double cy) {
+
+		double dx = bx - ax, dy = by - ay;
+		double ex = cx - ax, ey = cy - ay;
+
+		double bl = dx * dx + dy * dy;
+		double cl = ex * ex + ey * ey;
+		double d = 0.5 / (dx * ey - dy * ex);
+
+		return new double[] { ax + (ey * bl - dy * cl) * d, ay + (dx * cl - ex * bl) * d };
+	}
+
+	/**
+	 * Devuelve en un array de long el circuncentro del triangulo del plano
+	 * cuyas coordenadas son pasadas como parametro
+	 * 
+	 * @param a_0
+	 *            coordenada x de un punto del triangulo
+	 * @param a_1
+	 *            coordenada y de un punto del triangulo
+	 * @param b_0
+	 *            coordenada x de un punto del triangulo
+	 * @param b_1
+	 *            coordenada y de un punto del triangulo
+	 * @param c_0
+	 *            coordenada x de un punto del triangulo
+	 * @param c_1
+	 *            coordenada y de un punto del triangulo
+	 */
+
+	public static long[] circuncentro(long a_0, long a_1, long b_0, long b_1, long c_0, long c_1) {
+
+		long b[] = new long[2];
+
+		double p_0, p_1;
+
+		long D = 2 * (a_1 * c_0 + b_1 * a_0 - b_1 * c_0 - a_1 * b_0 - c_1 * a_0 + c_1 * b_0);
+
+		p_0 =
+
+				(b_1 * a_0 * a_0 - c_1 * a_0 * a_0 - b_1 * b_1 * a_1 + c_1 * c_1 * a_1 + b_0 * b_0 * c_1
+						+ a_1 * a_1 * b_1 + c_0 * c_0 * a_1 - c_1 * c_1 * b_1 - c_0 * c_0 * b_1 - b_0 * b_0 * a_1
+						+ b_1 * b_1 * c_1 - a_1 * a_1 * c_1) / D;
+
+		p_1 = (a_0 * a_0 * c_0 + a_1 * a_1 * c_0 + b_0 * b_0 * a_0 - b_0 * b_0 * c_0 + b_1 * b_1 * a_0 - b_1 * b_1 * c_0
+				- a_0 * a_0 * b_0 - a_1 * a_1 * b_0 - c_0 * c_0 * a_0 + c_0 * c_0 * b_0 - c_1 * c_1 * a_0
+				+ c_1 * c_1 * b_0) / D;
 
-		);
+		b[0] = Math.round(p_0);
+		b[1] = Math.round(p_1);
 
+		return b;
 	}
 
 }
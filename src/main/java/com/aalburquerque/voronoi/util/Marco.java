@@ -0,0 +1,87 @@
+/*
+  This file is part of com.aalburquerque.voronoi API.
+
+    com.aalburquerque.voronoi API is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    com.aalburquerque.voronoi API is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with com.aalburquerque.voronoi API.  If not, see <http://www.gnu.org/licenses/>
+*/
+
+package com.aalburquerque.voronoi.util;
+
+import java.io.Serializable;
+
+/**
+ * Un marco es el rectangulo del area de dibujo, en coordenadas del area de
+ * dibujo, hasta el que se prolongan las aristas no acotadas del diagrama de
+ * Voronoi. Por defecto es la pantalla, de Util.LIMX por Util.LIMY, pero cada
+ * peticion puede pedir el suyo
+ * 
+ * @author Antonio Alburquerque Oliva
+ * @version 1.00
+ */
+
+public class Marco implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * El area de dibujo por defecto
+	 */
+
+	public static final Marco PANTALLA = new Marco(0, 0, Util.LIMX, Util.LIMY);
+
+	private final int xmin, ymin, xmax, ymax;
+
+	/**
+	 * Construir el marco de esquinas (xmin,ymin) y (xmax,ymax)
+	 */
+
+	public Marco(int xmin, int ymin, int xmax, int ymax) {
+
+		if (xmin >= xmax || ymin >= ymax)
+			throw new RuntimeException("Marco vacio: [" + xmin + "," + xmax + "] x [" + ymin + "," + ymax + "]");
+
+		this.xmin = xmin;
+		this.ymin = ymin;
+		this.xmax = xmax;
+		this.ymax = ymax;
+	}
+
+	public int xmin() {
+		return xmin;
+	}
+
+	public int ymin() {
+		return ymin;
+	}
+
+	public int xmax() {
+		return xmax;
+	}
+
+	public int ymax() {
+		return ymax;
+	}
+
+	/**
+	 * Para saber si un punto esta estrictamente dentro del marco
+	 */
+
+	public boolean dentro(long x, long y) {
+		return x > xmin && x < xmax && y > ymin && y < ymax;
+	}
+
+	public String toString() {
+		return "[" + xmin + "," + xmax + "] x [" + ymin + "," + ymax + "]";
+	}
+
+}
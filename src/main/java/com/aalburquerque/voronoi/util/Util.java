@@ -19,9 +19,15 @@ package com.aalburquerque.voronoi.util;
 
 import java.io.BufferedWriter;
 import java.io.FileWriter;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 
+import com.aalburquerque.voronoi.struc.ICoord;
 import com.aalburquerque.voronoi.struc.impl.Coord2d;
+import com.aalburquerque.voronoi.struc.impl.Line;
+import com.aalburquerque.voronoi.struc.impl.Punto2D;
 import com.aalburquerque.voronoi.struc.impl.Punto3d;
 
 /**
@@ -46,12 +52,327 @@ public class Util {
 
 	public static final int LIMY = 768;
 
+	// para medir la direccion de una semirrecta en el area de dibujo se
+	// avanza unas 2^20 unidades, de modo que el redondeo de ICoord no la tuerza
+
+	private static final long PASO_DIRECCION = 1L << 20;
+
 	/**
 	 * Metodo para saber si una coordenada esta dentro del area de dibujo
 	 */
 
 	public static boolean dentroMarco(long x, long y) {
-		return x > 0 && x < LIMX && y > 0 && y < LIMY;
+		return Marco.PANTALLA.dentro(x, y);
+	}
+
+	/**
+	 * Metodo que devuelve, en coordenadas del area de dibujo, el segmento que
+	 * representa una arista no acotada del diagrama de Voronoi, recortada al
+	 * area de dibujo por defecto
+	 * 
+	 * @see #segmentoNoAcotado(ICoord, long[], long, long, Marco)
+	 */
+
+	public static Line segmentoNoAcotado(ICoord coord, long p[], long ux, long uy) {
+		return segmentoNoAcotado(coord, p, ux, uy, Marco.PANTALLA);
+	}
+
+	/**
+	 * Metodo que devuelve, en coordenadas del area de dibujo, el segmento que
+	 * representa una arista no acotada del diagrama de Voronoi: la parte de la
+	 * semirrecta que parte del punto p en la direccion (ux,uy) que cae dentro
+	 * del marco. Se recorta de una vez por el metodo de Liang y Barsky, asi
+	 * que el coste no depende del tamano del marco. Devuelve null si la
+	 * semirrecta no pasa por el marco
+	 */
+
+	public static Line segmentoNoAcotado(ICoord coord, long p[], long ux, long uy, Marco marco) {
+
+		return recortar(coord, p, ux, uy, 0, marco);
+	}
+
+	/**
+	 * Igual que segmentoNoAcotado, pero para la recta entera que pasa por p
+	 * con direccion (ux,uy), no acotada por ninguno de los dos lados. Es la
+	 * mediatriz de dos sitios cuando todas las aristas del diagrama son
+	 * paralelas
+	 */
+
+	public static Line rectaNoAcotada(ICoord coord, long p[], long ux, long uy, Marco marco) {
+		return recortar(coord, p, ux, uy, Double.NEGATIVE_INFINITY, marco);
+	}
+
+	// la parte dentro del marco de (x0,y0) + t (dx,dy), t >= tmin, en el area
+	// de dibujo
+
+	private static Line recortar(ICoord coord, long p[], long ux, long uy, double tmin, Marco marco) {
+
+		double[] u = direccion(coord, p, ux, uy);
+
+		if (u == null)
+			return null;
+
+		double x0 = coord.x(p[0]), y0 = coord.y(p[1]);
+		double dx = u[0], dy = u[1];
+
+		// cada lado del marco impone d t <= q: si d < 0 acota t por abajo y
+		// si d > 0 por arriba
+
+		double t0 = tmin, t1 = Double.POSITIVE_INFINITY;
+		double d, q;
+
+		for (int lado = 0; lado < 4; lado++) {
+
+			switch (lado) {
+			case 0:
+				d = -dx;
+				q = x0 - marco.xmin();
+				break;
+			case 1:
+				d = dx;
+				q = marco.xmax() - x0;
+				break;
+			case 2:
+				d = -dy;
+				q = y0 - marco.ymin();
+				break;
+			default:
+				d = dy;
+				q = marco.ymax() - y0;
+			}
+
+			if (d == 0) {
+				if (q < 0)
+					return null;
+			} else if (d < 0)
+				t0 = Math.max(t0, q / d);
+			else
+				t1 = Math.min(t1, q / d);
+		}
+
+		if (t0 >= t1)
+			return null;
+
+		return new Line((int) Math.round(x0 + t0 * dx), (int) Math.round(y0 + t0 * dy), (int) Math.round(x0 + t1 * dx),
+				(int) Math.round(y0 + t1 * dy));
+	}
+
+	/**
+	 * Metodo que devuelve, en coordenadas del area de dibujo, la celda de
+	 * Voronoi de un sitio recortada al marco, como poligono convexo en sentido
+	 * positivo. Devuelve una lista vacia si la celda no pasa por el marco
+	 * 
+	 * @param coord
+	 *            El objeto encargado de transformar apropiadamente las
+	 *            coordenadas del diagrama a las coordenadas del area de dibujo
+	 * @param vertices
+	 *            Los vertices de Voronoi de la celda en orden, como arrays
+	 *            long[] {x, y}
+	 * @param entrada
+	 *            Si la celda no esta acotada, la direccion {ux, uy} de la
+	 *            semirrecta que llega al primer vertice desde el infinito,
+	 *            orientada hacia el infinito. Null si la celda esta acotada
+	 * @param salida
+	 *            La direccion de la semirrecta que sale del ultimo vertice,
+	 *            o null si la celda esta acotada
+	 * @param marco
+	 *            El rectangulo del area de dibujo al que se recorta la celda
+	 */
+
+	public static List<Punto2D> celdaRecortada(ICoord coord, List<long[]> vertices, long[] entrada, long[] salida,
+			Marco marco) {
+
+		int m = vertices.size();
+		int n = entrada != null ? m + 2 : m;
+
+		double[] px = new double[n], py = new double[n];
+
+		int j = entrada != null ? 1 : 0;
+
+		for (long[] v : vertices) {
+			px[j] = coord.x(v[0]);
+			py[j] = coord.y(v[1]);
+			j++;
+		}
+
+		if (entrada != null) {
+
+			// la parte no acotada se cierra con una cuerda entre dos puntos
+			// lejanos de las semirrectas, tan lejos que deje fuera el marco
+
+			double[] de = direccion(coord, vertices.get(0), entrada[0], entrada[1]);
+			double[] ds = direccion(coord, vertices.get(m - 1), salida[0], salida[1]);
+
+			if (de == null || ds == null)
+				return new ArrayList<Punto2D>();
+
+			double le = Math.hypot(de[0], de[1]), ls = Math.hypot(ds[0], ds[1]);
+
+			double cx = (marco.xmin() + marco.xmax()) / 2.0, cy = (marco.ymin() + marco.ymax()) / 2.0;
+			double lejos = Math.hypot(marco.xmax() - marco.xmin(), marco.ymax() - marco.ymin());
+
+			for (int i = 1; i <= m; i++)
+				lejos = Math.max(lejos, Math.hypot(px[i] - cx, py[i] - cy));
+
+			for (int vuelta = 0; vuelta < 64; vuelta++, lejos *= 2) {
+
+				px[0] = px[1] + lejos * de[0] / le;
+				py[0] = py[1] + lejos * de[1] / le;
+				px[m + 1] = px[m] + lejos * ds[0] / ls;
+				py[m + 1] = py[m] + lejos * ds[1] / ls;
+
+				if (cuerdaFuera(px[m + 1], py[m + 1], px[0], py[0], px[1], py[1], marco))
+					break;
+			}
+		}
+
+		// la mayoria de las celdas caen enteras dentro del marco y no hay que
+		// recortarlas
+
+		boolean dentro = true;
+
+		for (int i = 0; i < n && dentro; i++)
+			dentro = px[i] >= marco.xmin() && px[i] <= marco.xmax() && py[i] >= marco.ymin() && py[i] <= marco.ymax();
+
+		if (!dentro) {
+
+			double[][] poligono = { px, py };
+
+			for (int lado = 0; lado < 4 && n > 0; lado++)
+				n = recortarLado(poligono, n, lado, marco);
+
+			px = poligono[0];
+			py = poligono[1];
+		}
+
+		// a coordenadas enteras, sin puntos repetidos y en sentido positivo
+
+		List<Punto2D> resultado = new ArrayList<Punto2D>(n);
+
+		long area = 0;
+
+		for (int i = 0; i < n; i++) {
+
+			long x = Math.round(px[i]), y = Math.round(py[i]);
+
+			if (!resultado.isEmpty()) {
+				Punto2D ultimo = resultado.get(resultado.size() - 1);
+				if (ultimo.x() == x && ultimo.y() == y)
+					continue;
+			}
+			resultado.add(new Punto2D(x, y));
+		}
+
+		int total = resultado.size();
+
+		if (total > 1 && resultado.get(0).x() == resultado.get(total - 1).x()
+				&& resultado.get(0).y() == resultado.get(total - 1).y())
+			resultado.remove(--total);
+
+		if (total < 3)
+			return new ArrayList<Punto2D>();
+
+		for (int i = 0; i < total; i++) {
+			Punto2D a = resultado.get(i), b = resultado.get((i + 1) % total);
+			area += a.x() * b.y() - b.x() * a.y();
+		}
+
+		if (area < 0)
+			Collections.reverse(resultado);
+
+		return resultado;
+	}
+
+	// direccion en el area de dibujo de la semirrecta que parte de p en la
+	// direccion (ux,uy), o null si no tiene. Se mide con un paso largo para
+	// que el redondeo de coord no la tuerza
+
+	private static double[] direccion(ICoord coord, long[] p, long ux, long uy) {
+
+		long mayor = Math.max(Math.abs(ux), Math.abs(uy));
+
+		if (mayor == 0)
+			return null;
+
+		long k = Math.max(1, PASO_DIRECCION / mayor);
+
+		double dx = coord.x(p[0] + k * ux) - coord.x(p[0]);
+		double dy = coord.y(p[1] + k * uy) - coord.y(p[1]);
+
+		if (dx == 0 && dy == 0)
+			return null;
+
+		return new double[] { dx, dy };
+	}
+
+	// cierto si las cuatro esquinas del marco quedan del mismo lado de la
+	// cuerda (x0,y0)-(x1,y1) que el punto de referencia (rx,ry)
+
+	private static boolean cuerdaFuera(double x0, double y0, double x1, double y1, double rx, double ry, Marco marco) {
+
+		double lado = (x1 - x0) * (ry - y0) - (y1 - y0) * (rx - x0);
+
+		for (int esquina = 0; esquina < 4; esquina++) {
+
+			double ex = esquina < 2 ? marco.xmin() : marco.xmax();
+			double ey = esquina % 2 == 0 ? marco.ymin() : marco.ymax();
+
+			if (lado * ((x1 - x0) * (ey - y0) - (y1 - y0) * (ex - x0)) < 0)
+				return false;
+		}
+
+		return lado != 0;
+	}
+
+	// un paso de Sutherland y Hodgman: recorta el poligono de n puntos contra
+	// un lado del marco, lo deja en poligono y devuelve los puntos que quedan
+
+	private static int recortarLado(double[][] poligono, int n, int lado, Marco marco) {
+
+		double[] ox = poligono[0], oy = poligono[1];
+		double[] px = new double[2 * n], py = new double[2 * n];
+
+		int total = 0;
+
+		for (int i = 0; i < n; i++) {
+
+			int k = (i + 1) % n;
+
+			double fa = dentroLado(ox[i], oy[i], lado, marco);
+			double fb = dentroLado(ox[k], oy[k], lado, marco);
+
+			if (fa >= 0) {
+				px[total] = ox[i];
+				py[total++] = oy[i];
+			}
+
+			if ((fa < 0) != (fb < 0)) {
+				double t = fa / (fa - fb);
+				px[total] = ox[i] + t * (ox[k] - ox[i]);
+				py[total++] = oy[i] + t * (oy[k] - oy[i]);
+			}
+		}
+
+		poligono[0] = px;
+		poligono[1] = py;
+
+		return total;
+	}
+
+	// distancia con signo de (x,y) a un lado del marco, positiva por dentro
+
+	private static double dentroLado(double x, double y, int lado, Marco marco) {
+
+		switch (lado) {
+		case 0:
+			return x - marco.xmin();
+		case 1:
+			return marco.xmax() - x;
+		case 2:
+			return y - marco.ymin();
+		default:
+			return marco.ymax() - y;
+		}
 	}
 
 	public static void msgLog(String fichName, String cad) {
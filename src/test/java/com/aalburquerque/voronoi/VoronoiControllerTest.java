@@ -0,0 +1,56 @@
+package com.aalburquerque.voronoi;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import com.aalburquerque.voronoi.service.ConfiguracionJson;
+import com.aalburquerque.voronoi.service.ConfiguracionMvc;
+import com.aalburquerque.voronoi.service.FormatoBinario;
+import com.aalburquerque.voronoi.service.VoronoiController;
+
+public class VoronoiControllerTest {
+
+	private static final String SITIOS = "{\"points\":[{\"x\":123,\"y\":53},{\"x\":343,\"y\":33},{\"x\":563,\"y\":93},{\"x\":233,\"y\":83}]}";
+
+	// el controlador con Jackson y detras lo que anade ConfiguracionMvc, en
+	// el mismo orden que en el servicio
+	private MockMvc servicio() {
+		List<HttpMessageConverter<?>> conversores = new ArrayList<HttpMessageConverter<?>>();
+		conversores.add(new MappingJackson2HttpMessageConverter(ConfiguracionJson.MAPEADOR));
+		new ConfiguracionMvc().extendMessageConverters(conversores);
+
+		return MockMvcBuilders.standaloneSetup(new VoronoiController())
+				.setMessageConverters(conversores.toArray(new HttpMessageConverter<?>[conversores.size()])).build();
+	}
+
+	@Test
+	public void testAcceptCualquieraDaJson() throws Exception {
+		MockMvc mvc = servicio();
+
+		mvc.perform(get("/voronoi").param("pointsJson", SITIOS).accept(MediaType.ALL)).andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+
+		// sin Accept tambien
+		mvc.perform(get("/voronoi").param("pointsJson", SITIOS)).andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+	}
+
+	@Test
+	public void testAcceptBinario() throws Exception {
+		servicio().perform(get("/voronoi").param("pointsJson", SITIOS).accept(MediaType.valueOf(FormatoBinario.TIPO)))
+				.andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith(MediaType.valueOf(FormatoBinario.TIPO)));
+	}
+
+}
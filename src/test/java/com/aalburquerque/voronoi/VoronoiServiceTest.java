@@ -1,15 +1,63 @@
 package com.aalburquerque.voronoi;
 
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
 import org.junit.Test;
 
+import com.aalburquerque.voronoi.algorithms.DelaunayPlano;
+import com.aalburquerque.voronoi.algorithms.SelectorMetodo;
+import com.aalburquerque.voronoi.service.CacheVoronoi;
+import com.aalburquerque.voronoi.service.ConfiguracionJson;
+import com.aalburquerque.voronoi.service.EscritorNDJSON;
+import com.aalburquerque.voronoi.service.FormatoBinario;
+import com.aalburquerque.voronoi.service.GestorTrabajos;
+import com.aalburquerque.voronoi.service.LectorLotes;
+import com.aalburquerque.voronoi.service.LectorPuntos;
 import com.aalburquerque.voronoi.struc.ICoord;
+import com.aalburquerque.voronoi.struc.impl.CacheOutput;
+import com.aalburquerque.voronoi.struc.impl.Celda;
+import com.aalburquerque.voronoi.struc.impl.DCEL;
+import com.aalburquerque.voronoi.struc.impl.DCELCompacta;
+import com.aalburquerque.voronoi.struc.impl.InputPoints;
+import com.aalburquerque.voronoi.struc.impl.InputRealPoints;
 import com.aalburquerque.voronoi.struc.impl.InstanciaVoronoi;
+import com.aalburquerque.voronoi.struc.impl.Line;
+import com.aalburquerque.voronoi.struc.impl.ListaDE;
+import com.aalburquerque.voronoi.struc.impl.Nube2D;
+import com.aalburquerque.voronoi.struc.impl.Punto2D;
+import com.aalburquerque.voronoi.struc.impl.Punto3d;
+import com.aalburquerque.voronoi.struc.impl.RealLine;
+import com.aalburquerque.voronoi.struc.impl.RealPoint;
+import com.aalburquerque.voronoi.struc.impl.RealVoronoiOutput;
+import com.aalburquerque.voronoi.struc.impl.Triangulo3d;
+import com.aalburquerque.voronoi.struc.impl.Vertice3d;
 import com.aalburquerque.voronoi.struc.impl.VoronoiOutput;
+import com.aalburquerque.voronoi.util.Coord;
+import com.aalburquerque.voronoi.util.GC;
+import com.aalburquerque.voronoi.util.Input;
+import com.aalburquerque.voronoi.util.Marco;
+import com.aalburquerque.voronoi.util.Util;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import org.junit.Assert;
 
 public class VoronoiServiceTest {
 
+	// milisegundos que se espera, como mucho, a los hilos de los trabajos
+	private static final long ESPERA_MAXIMA = 10000L;
+
 	@Test
 	public void test() {
 		int totalpuntos = 125;
@@ -26,7 +74,1027 @@ public class VoronoiServiceTest {
 		Assert.assertNotNull(result.getLines());
 		Assert.assertFalse(result.getLines().isEmpty());
 	}
+
+	@Test
+	public void testIncrementalAleatorio() {
+		int totalpuntos = 125;
+		int tambase = 30;
+		int xmax = 620, ymax = 480;
+		InstanciaVoronoi unaInstancia = new InstanciaVoronoi(totalpuntos, xmax, ymax, false, tambase);
+		unaInstancia.setMetodoCalculo(DCEL.METODO_ALEATORIO);
+		unaInstancia.calculaVoronoi();
+
+		Assert.assertEquals("CHECK_OK", unaInstancia.getPoliedro().check());
+
+		VoronoiOutput result = unaInstancia.getPoliedro().getVoronoiJSON(new MyCoord());
+
+		Assert.assertFalse(result.getLines().isEmpty());
+	}
 	
+	@Test
+	public void testDivideYvencerasParalelo() {
+		int totalpuntos = 125;
+		int tambase = 30;
+		int xmax = 620, ymax = 480;
+		InstanciaVoronoi unaInstancia = new InstanciaVoronoi(totalpuntos, xmax, ymax, false, tambase);
+		unaInstancia.setMetodoCalculo(DCEL.METODO_PARALELO);
+		unaInstancia.calculaVoronoi();
+
+		Assert.assertEquals("CHECK_OK", unaInstancia.getPoliedro().check());
+
+		VoronoiOutput result = unaInstancia.getVoronoiJSON(new MyCoord());
+
+		Assert.assertFalse(result.getLines().isEmpty());
+	}
+
+	@Test
+	public void testDelaunayPlano() {
+		int totalpuntos = 125;
+		int tambase = 30;
+		int xmax = 620, ymax = 480;
+		InstanciaVoronoi unaInstancia = new InstanciaVoronoi(totalpuntos, xmax, ymax, false, tambase);
+		unaInstancia.setMetodoCalculo(InstanciaVoronoi.METODO_PLANO);
+		unaInstancia.calculaVoronoi();
+
+		Assert.assertNull(unaInstancia.getPoliedro());
+		Assert.assertTrue(unaInstancia.getTriangulacion().totalTriangulos() > 0);
+
+		VoronoiOutput result = unaInstancia.getVoronoiJSON(new MyCoord());
+
+		Assert.assertFalse(result.getLines().isEmpty());
+	}
+
+	@Test
+	public void testFortune() {
+		int totalpuntos = 125;
+		int tambase = 30;
+		int xmax = 620, ymax = 480;
+		InstanciaVoronoi plano = new InstanciaVoronoi(totalpuntos, xmax, ymax, false, tambase);
+		plano.setMetodoCalculo(InstanciaVoronoi.METODO_PLANO);
+		plano.calculaVoronoi();
+
+		InstanciaVoronoi unaInstancia = new InstanciaVoronoi(plano.nube(), tambase);
+		unaInstancia.setMetodoCalculo(InstanciaVoronoi.METODO_FORTUNE);
+		unaInstancia.calculaVoronoi();
+
+		Assert.assertNull(unaInstancia.getPoliedro());
+		Assert.assertNull(unaInstancia.getTriangulacion());
+
+		VoronoiOutput result = unaInstancia.getVoronoiJSON(new MyCoord());
+
+		Assert.assertEquals(plano.getVoronoiJSON(new MyCoord()).getLines().size(), result.getLines().size());
+	}
+
+	@Test
+	public void testFortuneDegenerado() {
+		Marco marco = new Marco(0, 0, 400, 400);
+
+		// dos sitios y un repetido: una sola arista, la mediatriz completa
+		long[][] pares = { { 100, 200, 300, 200 }, { 200, 100, 200, 300 }, { 100, 100, 300, 300 } };
+		for (long[] p : pares) {
+			InstanciaVoronoi dos = new InstanciaVoronoi(
+					new Nube2D(new long[] { p[0], p[2], p[0] }, new long[] { p[1], p[3], p[1] }, 3), 30);
+			dos.setMetodoCalculo(InstanciaVoronoi.METODO_FORTUNE);
+			dos.calculaVoronoi();
+			Assert.assertEquals(1, dos.getInforme().getRepetidos());
+
+			List<Line> lineas = dos.getVoronoiJSON(new MyCoord(), marco).getLines();
+			Assert.assertEquals(1, lineas.size());
+			Line l = lineas.get(0);
+			long ux = p[2] - p[0], uy = p[3] - p[1];
+			long mx = (p[0] + p[2]) / 2 + 20, my = (p[1] + p[3]) / 2 + 20;
+			// los dos extremos sobre la mediatriz y en el borde del marco
+			Assert.assertTrue(Math.abs((l.getX1() - mx) * ux + (l.getY1() - my) * uy) <= Math.abs(ux) + Math.abs(uy));
+			Assert.assertTrue(Math.abs((l.getX2() - mx) * ux + (l.getY2() - my) * uy) <= Math.abs(ux) + Math.abs(uy));
+			Assert.assertTrue(Math.abs(l.getX1() - l.getX2()) + Math.abs(l.getY1() - l.getY2()) >= 399);
+		}
+
+		// n sitios alineados: se rechazan igual que en el resto de metodos
+		int n = 20;
+		long[] ax = new long[n], ay = new long[n];
+		for (int i = 0; i < n; i++) {
+			ax[i] = 10 + 15 * i;
+			ay[i] = 30 + 10 * i;
+		}
+		InstanciaVoronoi alineados = new InstanciaVoronoi(new Nube2D(ax, ay, n), 30);
+		alineados.setMetodoCalculo(InstanciaVoronoi.METODO_FORTUNE);
+		try {
+			alineados.calculaVoronoi();
+			Assert.fail("Se esperaba el rechazo de los sitios alineados");
+		} catch (RuntimeException e) {
+			Assert.assertTrue(e.getMessage().contains("alineados"));
+		}
+	}
+
+	@Test
+	public void testRecalcularConOtroMetodo() {
+		InstanciaVoronoi plano = new InstanciaVoronoi(125, 620, 480, false, 30);
+		plano.setMetodoCalculo(InstanciaVoronoi.METODO_PLANO);
+		plano.calculaVoronoi();
+		int lineas = plano.getVoronoiJSON(new MyCoord()).getLines().size();
+
+		// la misma instancia con otro metodo no conserva el diagrama anterior
+		InstanciaVoronoi unaInstancia = new InstanciaVoronoi(plano.nube(), 30);
+		unaInstancia.setMetodoCalculo(InstanciaVoronoi.METODO_PLANO);
+		unaInstancia.calculaVoronoi();
+		Assert.assertNotNull(unaInstancia.getTriangulacion());
+
+		unaInstancia.setMetodoCalculo(DCEL.METODO_DIVIDE_Y_VENCERAS);
+		unaInstancia.calculaVoronoi();
+		Assert.assertNull(unaInstancia.getTriangulacion());
+		Assert.assertNotNull(unaInstancia.getPoliedro());
+		Assert.assertEquals(lineas, unaInstancia.getVoronoiJSON(new MyCoord()).getLines().size());
+
+		unaInstancia.setMetodoCalculo(InstanciaVoronoi.METODO_FORTUNE);
+		unaInstancia.calculaVoronoi();
+		Assert.assertNull(unaInstancia.getPoliedro());
+		Assert.assertEquals(lineas, unaInstancia.getVoronoiJSON(new MyCoord()).getLines().size());
+
+		unaInstancia.setMetodoCalculo(InstanciaVoronoi.METODO_PLANO);
+		unaInstancia.calculaVoronoi();
+		Assert.assertNotNull(unaInstancia.getTriangulacion());
+		Assert.assertEquals("Delaunay en el plano", unaInstancia.getInforme().getMetodo());
+
+		// el informe dice el metodo que se ha usado en este calculo
+		unaInstancia.setMetodoCalculo(InstanciaVoronoi.METODO_COMPACTO);
+		unaInstancia.calculaVoronoi();
+		Assert.assertNotNull(unaInstancia.getCompacta());
+		Assert.assertEquals("Incremental aleatorio compacto", unaInstancia.getInforme().getMetodo());
+
+		unaInstancia.setMetodoCalculo(DCEL.METODO_ALEATORIO);
+		unaInstancia.calculaVoronoi();
+		Assert.assertNull(unaInstancia.getCompacta());
+		Assert.assertEquals(unaInstancia.getPoliedro().metodoString(), unaInstancia.getInforme().getMetodo());
+		Assert.assertFalse("Incremental aleatorio compacto".equals(unaInstancia.getInforme().getMetodo()));
+		Assert.assertEquals(lineas, unaInstancia.getVoronoiJSON(new MyCoord()).getLines().size());
+	}
+
+	@Test
+	public void testMetodoAutomatico() {
+		int totalpuntos = 125;
+		int tambase = 30;
+		int xmax = 620, ymax = 480;
+		InstanciaVoronoi unaInstancia = new InstanciaVoronoi(totalpuntos, xmax, ymax, false, tambase);
+		unaInstancia.setMetodoCalculo(InstanciaVoronoi.METODO_AUTOMATICO);
+		unaInstancia.calculaVoronoi();
+
+		Assert.assertFalse(unaInstancia.getVoronoiJSON(new MyCoord()).getLines().isEmpty());
+
+		// incremental barato y plano caro: el incremental para pocos sitios y
+		// divide y venceras para muchos, salvo que no quepan en el espacio o
+		// esten en una rejilla
+		SelectorMetodo selector = new SelectorMetodo(1, 10, 1000);
+
+		long[] x = new long[2000], y = new long[2000];
+		for (int i = 0; i < x.length; i++) {
+			x[i] = (i * 7919) % 10007;
+			y[i] = (i * 104729) % 10009;
+		}
+		long[] rx = new long[2000], ry = new long[2000];
+		for (int i = 0; i < rx.length; i++) {
+			rx[i] = i % 40;
+			ry[i] = i / 40;
+		}
+
+		Assert.assertEquals(DCEL.METODO_INCREMENTAL,
+				selector.elegir(new long[] { 0, 5, 9, 3, 7 }, new long[] { 0, 8, 2, 6, 4 }));
+		Assert.assertEquals(DCEL.METODO_DIVIDE_Y_VENCERAS, selector.elegir(x, y));
+		Assert.assertEquals(DCEL.METODO_INCREMENTAL, selector.elegir(rx, ry));
+
+		// sin calibrar: divide y venceras con el tamano base fijo
+		SelectorMetodo fijo = SelectorMetodo.porDefecto();
+		Assert.assertEquals(30, fijo.tamBase());
+		Assert.assertEquals(DCEL.METODO_DIVIDE_Y_VENCERAS,
+				fijo.elegir(new long[] { 0, 5, 9, 3, 7 }, new long[] { 0, 8, 2, 6, 4 }));
+		Assert.assertEquals(DCEL.METODO_DIVIDE_Y_VENCERAS, fijo.elegir(x, y));
+
+		x[0] = SelectorMetodo.LIMITE_ESPACIO + 1;
+		Assert.assertEquals(InstanciaVoronoi.METODO_PLANO, selector.elegir(x, y));
+	}
+
+	@Test
+	public void testComprobacionPrevia() {
+		// una columna de 40 sitios deja algun caso base de divide y venceras
+		// con todos sus puntos alineados, y hay un sitio repetido
+		Nube2D nube = new Nube2D();
+		for (int i = 0; i < 300; i++)
+			nube.unoMas((i * 7919) % 1009, (i * 104729) % 1013);
+		for (int i = 0; i < 40; i++)
+			nube.unoMas(500, 1100 + 7 * i);
+		nube.unoMas(500, 1100);
+
+		InstanciaVoronoi unaInstancia = new InstanciaVoronoi(nube, 30);
+		unaInstancia.calculaVoronoi();
+
+		Assert.assertEquals(DCEL.METODO_DIVIDE_Y_VENCERAS, unaInstancia.getInforme().getMetodoPedido());
+		Assert.assertEquals(DCEL.METODO_ALEATORIO, unaInstancia.getInforme().getMetodoUsado());
+		Assert.assertEquals(1, unaInstancia.getInforme().getRepetidos());
+		Assert.assertEquals("CHECK_OK", unaInstancia.getPoliedro().check());
+
+		VoronoiOutput result = unaInstancia.getVoronoiJSON(new MyCoord());
+
+		Assert.assertFalse(result.getLines().isEmpty());
+		Assert.assertNotNull(result.getInforme());
+	}
+
+	@Test
+	public void testDCELCompacta() {
+		int totalpuntos = 125;
+		int tambase = 30;
+		int xmax = 620, ymax = 480;
+		InstanciaVoronoi unaInstancia = new InstanciaVoronoi(totalpuntos, xmax, ymax, false, tambase);
+		unaInstancia.setMetodoCalculo(InstanciaVoronoi.METODO_COMPACTO);
+		unaInstancia.calculaVoronoi();
+
+		Assert.assertNull(unaInstancia.getPoliedro());
+
+		DCELCompacta compacta = unaInstancia.getCompacta();
+
+		// poliedro de caras triangulares: C = 2V - 4
+		Assert.assertEquals(2 * compacta.totalVertices() - 4, compacta.totalCaras());
+
+		// la sombra es un poligono cerrado
+		DCELCompacta.Iterador sombra = compacta.sombraIterator();
+		int anterior = -1, lados = 0;
+		while (sombra.hasNext()) {
+			int h = sombra.next();
+			if (anterior != -1)
+				Assert.assertEquals(compacta.destino(anterior), compacta.origen(h));
+			anterior = h;
+			lados++;
+		}
+		Assert.assertTrue(lados >= 3);
+
+		VoronoiOutput result = unaInstancia.getVoronoiJSON(new MyCoord());
+
+		Assert.assertFalse(result.getLines().isEmpty());
+	}
+
+	@Test
+	public void testListaDE() {
+		ListaDE lista = new ListaDE();
+		for (int i = 1; i <= 20; i++)
+			lista.insertarFinal(Integer.valueOf(i));
+		lista.insertarInicio(Integer.valueOf(0));
+
+		Assert.assertEquals(21, lista.get_total());
+		Assert.assertEquals(Integer.valueOf(7), lista.leerItem(8));
+		Assert.assertEquals(Integer.valueOf(20), lista.suprimirNodo(lista.get_total()));
+
+		// el ultimo ocupa el hueco del suprimido
+		Assert.assertEquals(Integer.valueOf(3), lista.suprimirIntercambiando(4));
+		Assert.assertEquals(Integer.valueOf(19), lista.leerItem(4));
+
+		lista.compactar(new java.util.function.Predicate() {
+			public boolean test(Object o) {
+				return ((Integer) o).intValue() % 2 == 1;
+			}
+		});
+		Assert.assertEquals("[0, 2, 4, 6, 8, 10, 12, 14, 16, 18]", java.util.Arrays.toString(lista.toArray()));
+
+		// el recorrido es circular y remove() no pierde la posicion
+		ListIterator iter = lista.listIterator(lista.indexOf(Integer.valueOf(16)));
+		Assert.assertEquals(Integer.valueOf(16), iter.next());
+		iter.remove();
+		Assert.assertEquals(Integer.valueOf(18), iter.next());
+		Assert.assertEquals(Integer.valueOf(0), iter.next());
+		Assert.assertEquals(Integer.valueOf(2), iter.previous());
+		Assert.assertEquals(Integer.valueOf(18), lista.listIterator(lista.get_total()).previous());
+	}
+
+	@Test
+	public void testPredicados() {
+		java.util.Random azar = new java.util.Random(11);
+		for (int i = 0; i < 2000; i++) {
+			Vertice3d a = new Vertice3d(new Punto3d(azar.nextInt(4000), azar.nextInt(4000)));
+			Vertice3d b = new Vertice3d(new Punto3d(azar.nextInt(4000), azar.nextInt(4000)));
+			Vertice3d c = new Vertice3d(new Punto3d(azar.nextInt(4000), azar.nextInt(4000)));
+			Punto3d d = new Punto3d(azar.nextInt(4000), azar.nextInt(4000));
+
+			// la normal guardada en la cara da el mismo volumen que el desarrollo completo
+			Triangulo3d t = new Triangulo3d(a, b, c);
+			Assert.assertEquals(GC.volumen6(a, b, c, d), t.volumen6(d.x(), d.y(), d.z()), 0);
+			Assert.assertEquals(GC.volumen6(a, b, c, d) < 0, GC.visible(t, d));
+
+			// el circuncentro se calcula una vez y se reutiliza
+			if (GC.area2(a.x(), a.y(), b.x(), b.y(), c.x(), c.y()) != 0) {
+				Assert.assertArrayEquals(GC.circuncentro(a.x(), a.y(), b.x(), b.y(), c.x(), c.y()), t.circuncentro());
+				Assert.assertSame(t.circuncentro(), t.circuncentro());
+			}
+		}
+
+		Assert.assertTrue(GC.alineados(new Punto3d(1, 2, 3), new Punto3d(3, 6, 9), new Punto3d(-1, -2, -3)));
+		Assert.assertFalse(GC.alineados(new Punto3d(1, 2, 3), new Punto3d(3, 6, 9), new Punto3d(-1, -2, -2)));
+	}
+
+	@Test
+	public void testPredicadosExactos() {
+		// cuatro sitios cocirculares con coordenadas que desbordan los
+		// productos en long: el signo tiene que ser exacto
+		long r = 1L << 28;
+		Assert.assertEquals(0, GC.enCirculo(r, 0, 0, r, -r, 0, 0, -r), 0);
+		Assert.assertTrue(GC.enCirculo(r, 0, 0, r, -r, 0, 0, -r + 1) > 0);
+		Assert.assertTrue(GC.enCirculo(r, 0, 0, r, -r, 0, 0, -r - 1) < 0);
+		Assert.assertEquals(0, GC.volumen6(new Punto3d(r, 0), new Punto3d(0, r), new Punto3d(-r, 0), new Punto3d(0, -r)), 0);
+		Assert.assertTrue(GC.volumen6(new Punto3d(r, 0), new Punto3d(0, r), new Punto3d(-r, 0), new Punto3d(0, -r + 1)) > 0);
+		Assert.assertTrue(GC.area2(r, r, 3 * r, 3 * r, 5 * r, 5 * r) == 0);
+		Assert.assertTrue(GC.area2(r, r, 3 * r, 3 * r, 5 * r, 5 * r + 1) > 0);
+
+		// divide y venceras con sitios lejos de GC.LIMITE_EXACTO
+		java.util.Random azar = new java.util.Random(5);
+		java.util.Set<Long> vistos = new java.util.HashSet<Long>();
+		List<Punto3d> sitios = new ArrayList<Punto3d>();
+		while (sitios.size() < 300) {
+			long x = azar.nextInt(1 << 24), y = azar.nextInt(1 << 24);
+			if (vistos.add(x << 32 | y))
+				sitios.add(new Punto3d(x, y));
+		}
+		InstanciaVoronoi unaInstancia = new InstanciaVoronoi(new Nube2D(sitios.toArray(new Punto3d[0])), 30);
+		unaInstancia.setMetodoCalculo(DCEL.METODO_DIVIDE_Y_VENCERAS);
+		unaInstancia.calculaVoronoi();
+
+		Assert.assertEquals(DCEL.METODO_DIVIDE_Y_VENCERAS, unaInstancia.getInforme().getMetodoUsado());
+		Assert.assertEquals("CHECK_OK", unaInstancia.getPoliedro().check());
+	}
+
+	@Test
+	public void testCoordenadasReales() {
+		// puntos casi alineados a pocos ulp de distancia: el area2 exacta es
+		// 12 * (py - px), cuyo signo la evaluacion directa en double falla
+		for (int i = 0; i < 16; i++)
+			for (int j = 0; j < 16; j++) {
+				double px = 0.5 + i * Math.ulp(0.5), py = 0.5 + j * Math.ulp(0.5);
+				Assert.assertEquals(Integer.signum(j - i), (int) Math.signum(GC.area2(px, py, 12, 12, 24, 24)));
+			}
+
+		// los mismos sitios en enteros y divididos por 2^20 dan el mismo
+		// diagrama, porque la escala es exacta en double
+		java.util.Random azar = new java.util.Random(3);
+		Nube2D nube = new Nube2D();
+		InputRealPoints reales = new InputRealPoints();
+		java.util.Set<Long> vistos = new java.util.HashSet<Long>();
+		while (vistos.size() < 400) {
+			long x = azar.nextInt(600), y = azar.nextInt(400);
+			if (vistos.add(x << 32 | y)) {
+				nube.unoMas(x, y);
+				reales.getPoints().add(new RealPoint(x / 1048576.0, y / 1048576.0));
+			}
+		}
+
+		InstanciaVoronoi enteros = new InstanciaVoronoi(nube, 30);
+		enteros.setMetodoCalculo(InstanciaVoronoi.METODO_PLANO);
+		enteros.calculaVoronoi();
+
+		InstanciaVoronoi unaInstancia = new InstanciaVoronoi(reales);
+		unaInstancia.setMetodoCalculo(InstanciaVoronoi.METODO_AUTOMATICO);
+		unaInstancia.calculaVoronoi();
+
+		Assert.assertEquals(InstanciaVoronoi.METODO_PLANO, unaInstancia.getInforme().getMetodoUsado());
+		Assert.assertEquals(enteros.getTriangulacion().totalTriangulos(),
+				unaInstancia.getTriangulacion().totalTriangulos());
+
+		RealVoronoiOutput result = unaInstancia.getVoronoiReal();
+		RealVoronoiOutput esperado = enteros.getVoronoiReal();
+
+		Assert.assertNotNull(result.getInforme());
+		Assert.assertEquals(esperado.getLines().size(), result.getLines().size());
+		for (int i = 0; i < result.getLines().size(); i++) {
+			RealLine a = esperado.getLines().get(i), b = result.getLines().get(i);
+			Assert.assertEquals(a.getX1(), b.getX1() * 1048576.0, 1e-6);
+			Assert.assertEquals(a.getY1(), b.getY1() * 1048576.0, 1e-6);
+		}
+	}
+
+	@Test
+	public void testExtraccionUnaVez() {
+		int totalpuntos = 125;
+		int tambase = 30;
+		int xmax = 620, ymax = 480;
+		InstanciaVoronoi unaInstancia = new InstanciaVoronoi(totalpuntos, xmax, ymax, false, tambase);
+		unaInstancia.setMetodoCalculo(DCEL.METODO_ALEATORIO);
+		unaInstancia.calculaVoronoi();
+
+		List<Line> unaVez = unaInstancia.getPoliedro().getVoronoiJSON(new MyCoord()).getLines();
+		unaInstancia.getPoliedro().setExtraerPorCaras(true);
+		List<Line> porCaras = unaInstancia.getPoliedro().getVoronoiJSON(new MyCoord()).getLines();
+
+		// las mismas lineas, pero las interiores ya no salen repetidas
+		java.util.Set<String> vistas = new java.util.HashSet<String>();
+		for (Line l : unaVez)
+			Assert.assertTrue(vistas.add(l.getX1() + "," + l.getY1() + "," + l.getX2() + "," + l.getY2()));
+		for (Line l : porCaras)
+			Assert.assertTrue(vistas.contains(l.getX1() + "," + l.getY1() + "," + l.getX2() + "," + l.getY2()));
+		Assert.assertTrue(2 * unaVez.size() > porCaras.size());
+		Assert.assertTrue(unaVez.size() < porCaras.size());
+	}
+
+	@Test
+	public void testRecorteNoAcotadas() {
+		ICoord coord = new MyCoord();
+
+		// la semirrecta acaba justo en el borde del marco
+		Line l = Util.segmentoNoAcotado(coord, new long[] { 80, 80 }, 1, 0);
+		Assert.assertEquals(100, l.getX1());
+		Assert.assertEquals(Util.LIMX, l.getX2());
+		Assert.assertEquals(100, l.getY2());
+
+		Marco marco = new Marco(0, 0, 200, 300);
+		l = Util.segmentoNoAcotado(coord, new long[] { 80, 80 }, 3, 7, marco);
+		Assert.assertEquals(300, l.getY2());
+		Assert.assertEquals(100 + 200 * 3 / 7, l.getX2(), 1);
+
+		// si empieza fuera se da solo el tramo que cruza el marco
+		l = Util.segmentoNoAcotado(coord, new long[] { -500, 80 }, 1, 0, marco);
+		Assert.assertEquals(0, l.getX1());
+		Assert.assertEquals(200, l.getX2());
+		Assert.assertNull(Util.segmentoNoAcotado(coord, new long[] { -500, 80 }, -1, 0, marco));
+		Assert.assertNull(Util.segmentoNoAcotado(coord, new long[] { -500, 500 }, 1, 0, marco));
+
+		// con zoom y el eje y invertido
+		Coord zoom = new Coord(1);
+		zoom.zoomOut();
+		l = Util.segmentoNoAcotado(zoom, new long[] { 0, 0 }, 0, 1);
+		Assert.assertEquals(zoom.x(0), l.getX2());
+		Assert.assertEquals(0, l.getY2());
+	}
+
+	@Test
+	public void testCeldas() {
+		int totalpuntos = 125;
+		int tambase = 30;
+		int xmax = 620, ymax = 480;
+		InstanciaVoronoi unaInstancia = new InstanciaVoronoi(totalpuntos, xmax, ymax, false, tambase);
+		unaInstancia.calculaVoronoi();
+
+		InstanciaVoronoi plano = new InstanciaVoronoi(unaInstancia.nube(), tambase);
+		plano.setMetodoCalculo(InstanciaVoronoi.METODO_PLANO);
+		plano.calculaVoronoi();
+
+		// las celdas recortadas cubren el marco sin solaparse
+		Marco marco = new Marco(0, 0, xmax + 40, ymax + 40);
+		List<Celda> celdas = unaInstancia.getCeldas(new MyCoord(), marco).getCeldas();
+		List<Celda> celdasPlano = plano.getCeldas(new MyCoord(), marco).getCeldas();
+
+		Assert.assertEquals(totalpuntos, celdas.size());
+		Assert.assertEquals(totalpuntos, celdasPlano.size());
+
+		long area = 0, areaPlano = 0;
+		for (int i = 0; i < totalpuntos; i++) {
+			area += area2(celdas.get(i).getVertices());
+			areaPlano += area2(celdasPlano.get(i).getVertices());
+			Assert.assertTrue(area2(celdas.get(i).getVertices()) > 0);
+		}
+		Assert.assertEquals(2L * (xmax + 40) * (ymax + 40), area);
+		Assert.assertEquals(area, areaPlano);
+	}
+
+	@Test
+	public void testDelaunay() {
+		java.util.Random azar = new java.util.Random(17);
+		java.util.Set<Long> vistos = new java.util.HashSet<Long>();
+		List<Punto2D> sitios = new ArrayList<Punto2D>();
+		while (sitios.size() < 80) {
+			long x = azar.nextInt(600), y = azar.nextInt(400);
+			if (vistos.add(x << 32 | y))
+				sitios.add(new Punto2D(x, y));
+		}
+		// un sitio repetido se da por su primera aparicion
+		sitios.add(new Punto2D(sitios.get(5).x(), sitios.get(5).y()));
+
+		int[] metodos = { DCEL.METODO_DIVIDE_Y_VENCERAS, InstanciaVoronoi.METODO_PLANO, InstanciaVoronoi.METODO_FORTUNE,
+				InstanciaVoronoi.METODO_COMPACTO };
+		int total = -1;
+
+		for (int metodo : metodos) {
+			InstanciaVoronoi unaInstancia = new InstanciaVoronoi(new Nube2D(sitios.toArray(new Punto2D[0])), 30);
+			unaInstancia.setMetodoCalculo(metodo);
+			unaInstancia.calculaVoronoi();
+
+			int[] t = unaInstancia.getDelaunay(sitios).getTriangulos();
+			Assert.assertEquals(0, t.length % 3);
+			if (total >= 0)
+				Assert.assertEquals(total, t.length);
+			total = t.length;
+
+			for (int i = 0; i < t.length; i += 3) {
+				Punto2D a = sitios.get(t[i]), b = sitios.get(t[i + 1]), c = sitios.get(t[i + 2]);
+				Assert.assertTrue(GC.area2(a.x(), a.y(), b.x(), b.y(), c.x(), c.y()) > 0);
+				Assert.assertTrue(t[i] < 80 && t[i + 1] < 80 && t[i + 2] < 80);
+				for (Punto2D d : sitios)
+					Assert.assertTrue(GC.enCirculo(a.x(), a.y(), b.x(), b.y(), c.x(), c.y(), d.x(), d.y()) <= 0);
+			}
+		}
+	}
+
+	@Test
+	public void testLectorPuntos() throws Exception {
+		java.util.Random azar = new java.util.Random(19);
+		StringBuilder json = new StringBuilder("{\"points\":[");
+		for (int i = 0; i < 300; i++)
+			json.append(i > 0 ? "," : "").append("{\"x\":" + azar.nextInt(600) + ",\"y\":" + azar.nextInt(400) + "}");
+		json.append("]}");
+
+		// los mismos sitios y en el mismo orden que leyendo InputPoints
+		LectorPuntos lector = new LectorPuntos(new java.io.ByteArrayInputStream(json.toString().getBytes("UTF-8")));
+		InputPoints puntos = new ObjectMapper().readValue(json.toString(), InputPoints.class);
+		Assert.assertEquals(puntos.getPoints().size(), lector.total());
+
+		InstanciaVoronoi streaming = new InstanciaVoronoi(new Nube2D(lector.x(), lector.y(), lector.total()), 30);
+		InstanciaVoronoi mapper = new InstanciaVoronoi(new Nube2D(puntos), 30);
+		streaming.calculaVoronoi();
+		mapper.calculaVoronoi();
+		List<Line> a = streaming.getVoronoiJSON(new MyCoord()).getLines();
+		List<Line> b = mapper.getVoronoiJSON(new MyCoord()).getLines();
+		Assert.assertEquals(b.size(), a.size());
+		for (int i = 0; i < a.size(); i++) {
+			Assert.assertEquals(b.get(i).getX1(), a.get(i).getX1());
+			Assert.assertEquals(b.get(i).getY2(), a.get(i).getY2());
+		}
+
+		// campos desconocidos y coordenadas en otro orden
+		lector = new LectorPuntos(new java.io.ByteArrayInputStream(
+				"{\"id\":{\"a\":[1,2]},\"points\":[{\"y\":33,\"z\":[7],\"x\":343},{\"x\":5.0}]}".getBytes("UTF-8")));
+		Assert.assertEquals(2, lector.total());
+		Assert.assertEquals(343, lector.x()[0]);
+		Assert.assertEquals(33, lector.y()[0]);
+		Assert.assertEquals(5, lector.x()[1]);
+		Assert.assertEquals(0, lector.y()[1]);
+
+		try {
+			new LectorPuntos(new java.io.ByteArrayInputStream("{\"points\":[{\"x\":\"a\"}]}".getBytes("UTF-8")));
+			Assert.fail("se esperaba un error de lectura");
+		} catch (JsonParseException ex) {
+		}
+
+		// cuerpos cortados, tambien despues del ultimo sitio completo
+		String[] cortados = { "{\"points\":[{\"x\":1,\"y\":2}]", "{\"points\":[{\"x\":1,\"y\":2}",
+				"{\"points\":[{\"x\":1,\"y\":2" };
+		for (String cortado : cortados) {
+			try {
+				new LectorPuntos(new java.io.ByteArrayInputStream(cortado.getBytes("UTF-8")));
+				Assert.fail("se esperaba un error de lectura: " + cortado);
+			} catch (JsonParseException ex) {
+			}
+		}
+		try {
+			new LectorLotes(new java.io.ByteArrayInputStream("{\"sets\":[{\"points\":[]}]".getBytes("UTF-8")));
+			Assert.fail("se esperaba un error de lectura");
+		} catch (JsonParseException ex) {
+		}
+
+		// el flujo queda abierto para quien lo paso
+		final boolean[] cerrado = { false };
+		new LectorPuntos(new java.io.ByteArrayInputStream("{\"points\":[]}".getBytes("UTF-8")) {
+			public void close() {
+				cerrado[0] = true;
+			}
+		});
+		Assert.assertFalse(cerrado[0]);
+	}
+
+	@Test
+	public void testConfiguracionJson() throws Exception {
+		String json = "{\"points\":[{\"x\":123,\"y\":53},{\"x\":343,\"y\":33},{\"x\":563,\"y\":93},{\"x\":233,\"y\":83},{\"x\":213,\"y\":63},{\"x\":23,\"y\":34},{\"x\":83,\"y\":123},{\"x\":343,\"y\":33}]}";
+
+		InputPoints puntos = ConfiguracionJson.MAPEADOR.readValue(json, InputPoints.class);
+		InstanciaVoronoi instancia = new InstanciaVoronoi(new Nube2D(puntos), 30);
+		instancia.setMetodoCalculo(InstanciaVoronoi.METODO_AUTOMATICO);
+		instancia.calculaVoronoi();
+
+		// los serializadores propios dan lo mismo que los de por defecto
+		VoronoiOutput salida = instancia.getVoronoiJSON(new MyCoord());
+		Assert.assertTrue(salida.getLines().size() > 0);
+		Assert.assertEquals(new ObjectMapper().writeValueAsString(salida),
+				ConfiguracionJson.MAPEADOR.writeValueAsString(salida));
+		VoronoiOutput vacia = new VoronoiOutput();
+		vacia.setLines(null);
+		Assert.assertEquals(new ObjectMapper().writeValueAsString(vacia),
+				ConfiguracionJson.MAPEADOR.writeValueAsString(vacia));
+
+		// los indices de Delaunay por columnas, como los da LectorPuntos
+		LectorPuntos lector = new LectorPuntos(json);
+		Assert.assertArrayEquals(instancia.getDelaunay(puntos.getPoints()).getTriangulos(),
+				instancia.getDelaunay(lector.x(), lector.y(), lector.total()).getTriangulos());
+
+		// campos desconocidos, como en LectorPuntos
+		Assert.assertEquals(1, ConfiguracionJson.MAPEADOR
+				.readValue("{\"points\":[{\"x\":1,\"y\":2}],\"id\":7}", InputPoints.class).getPoints().size());
+	}
+
+	@Test
+	public void testFormatoBinario() throws Exception {
+		java.util.Random azar = new java.util.Random(21);
+		int n = 2000;
+		long[] x = new long[n], y = new long[n];
+		for (int i = 0; i < n; i++) {
+			x[i] = azar.nextInt(Util.LIMX);
+			y[i] = azar.nextInt(Util.LIMY);
+		}
+
+		InstanciaVoronoi instancia = new InstanciaVoronoi(new Nube2D(x, y, n), 30);
+		instancia.calculaVoronoi();
+		VoronoiOutput salida = instancia.getVoronoiJSON(new MyCoord());
+		salida.addLine(-5, Integer.MIN_VALUE, Integer.MAX_VALUE, 0);
+		int json = ConfiguracionJson.MAPEADOR.writeValueAsBytes(salida).length;
+
+		for (int codificacion : new int[] { FormatoBinario.COLUMNAS, FormatoBinario.VARINT }) {
+			java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+			FormatoBinario.escribirLineas(salida, bytes, codificacion);
+			Assert.assertTrue(bytes.size() < json / 2);
+
+			List<Line> leidas = FormatoBinario.leerLineas(new java.io.ByteArrayInputStream(bytes.toByteArray()))
+					.getLines();
+			Assert.assertEquals(salida.getLines().size(), leidas.size());
+			for (int i = 0; i < leidas.size(); i++) {
+				Line a = salida.getLines().get(i), b = leidas.get(i);
+				Assert.assertTrue(a.getX1() == b.getX1() && a.getY1() == b.getY1() && a.getX2() == b.getX2()
+						&& a.getY2() == b.getY2());
+			}
+
+			bytes = new java.io.ByteArrayOutputStream();
+			FormatoBinario.escribirPuntos(x, y, n, bytes, codificacion);
+			long[][] sitios = FormatoBinario.leerPuntos(new java.io.ByteArrayInputStream(bytes.toByteArray()));
+			Assert.assertArrayEquals(x, sitios[0]);
+			Assert.assertArrayEquals(y, sitios[1]);
+
+			// un mensaje cortado no se da por bueno
+			byte[] cortado = java.util.Arrays.copyOf(bytes.toByteArray(), bytes.size() - 1);
+			try {
+				FormatoBinario.leerPuntos(new java.io.ByteArrayInputStream(cortado));
+				Assert.fail("se esperaba un mensaje incompleto");
+			} catch (java.io.EOFException ex) {
+			}
+		}
+	}
+
+	@Test
+	public void testEscritorNDJSON() throws Exception {
+		java.util.Random azar = new java.util.Random(22);
+		int n = 1500;
+		long[] x = new long[n], y = new long[n];
+		for (int i = 0; i < n; i++) {
+			x[i] = azar.nextInt(600);
+			y[i] = azar.nextInt(400);
+		}
+
+		int[] metodos = { DCEL.METODO_DIVIDE_Y_VENCERAS, InstanciaVoronoi.METODO_PLANO, InstanciaVoronoi.METODO_FORTUNE,
+				InstanciaVoronoi.METODO_COMPACTO };
+
+		for (int metodo : metodos) {
+			InstanciaVoronoi unaInstancia = new InstanciaVoronoi(new Nube2D(x, y, n), 30);
+			unaInstancia.setMetodoCalculo(metodo);
+			unaInstancia.calculaVoronoi();
+
+			// las mismas lineas y en el mismo orden que en VoronoiOutput
+			java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+			EscritorNDJSON escritor = new EscritorNDJSON(bytes);
+			unaInstancia.recorrerVoronoi(new MyCoord(), Marco.PANTALLA, escritor);
+			escritor.cerrar();
+
+			List<Line> lineas = unaInstancia.getVoronoiJSON(new MyCoord()).getLines();
+			String[] texto = bytes.toString("UTF-8").split("\n");
+			Assert.assertEquals(lineas.size(), escritor.total());
+			Assert.assertEquals(lineas.size(), texto.length);
+
+			for (int i = 0; i < texto.length; i++) {
+				Line a = lineas.get(i), b = ConfiguracionJson.MAPEADOR.readValue(texto[i], Line.class);
+				Assert.assertTrue(a.getX1() == b.getX1() && a.getY1() == b.getY1() && a.getX2() == b.getX2()
+						&& a.getY2() == b.getY2());
+			}
+		}
+	}
+
+	@Test
+	public void testGestorTrabajos() throws Exception {
+		final CountDownLatch espera = new CountDownLatch(1);
+		final VoronoiOutput salida = new VoronoiOutput();
+
+		Callable<VoronoiOutput> lento = new Callable<VoronoiOutput>() {
+			public VoronoiOutput call() throws Exception {
+				espera.await(ESPERA_MAXIMA, TimeUnit.MILLISECONDS);
+				return salida;
+			}
+		};
+
+		// un hilo y uno en cola: el tercero no cabe
+		GestorTrabajos gestor = new GestorTrabajos(1, 1, 60000L, 4);
+		String primero = gestor.enviar(lento);
+		String segundo = gestor.enviar(new Callable<VoronoiOutput>() {
+			public VoronoiOutput call() {
+				throw new RuntimeException("fallo");
+			}
+		});
+		try {
+			gestor.enviar(lento);
+			Assert.fail("se esperaba la cola llena");
+		} catch (RejectedExecutionException ex) {
+		}
+		Assert.assertEquals(2, gestor.total());
+		Assert.assertEquals(GestorTrabajos.PENDIENTE, gestor.estado(segundo).getEstado());
+		Assert.assertNull(gestor.resultado(primero));
+		Assert.assertNull(gestor.estado("no existe"));
+
+		espera.countDown();
+		esperarEstado(gestor, segundo, GestorTrabajos.ERROR);
+
+		Assert.assertEquals(GestorTrabajos.TERMINADO, gestor.estado(primero).getEstado());
+		Assert.assertSame(salida, gestor.resultado(primero));
+		Assert.assertEquals(GestorTrabajos.ERROR, gestor.estado(segundo).getEstado());
+		Assert.assertNull(gestor.resultado(segundo));
+
+		Assert.assertEquals(GestorTrabajos.ERROR, gestor.eliminar(segundo).getEstado());
+		Assert.assertNull(gestor.eliminar(segundo));
+
+		// el pendiente se cancela y no llega a calcularse; el que se esta
+		// calculando no se elimina
+		final CountDownLatch otra = new CountDownLatch(1);
+		final boolean[] calculado = { false };
+		primero = gestor.enviar(new Callable<VoronoiOutput>() {
+			public VoronoiOutput call() throws Exception {
+				otra.await(ESPERA_MAXIMA, TimeUnit.MILLISECONDS);
+				return salida;
+			}
+		});
+		esperarEstado(gestor, primero, GestorTrabajos.CALCULANDO);
+		segundo = gestor.enviar(new Callable<VoronoiOutput>() {
+			public VoronoiOutput call() {
+				calculado[0] = true;
+				return salida;
+			}
+		});
+		Assert.assertEquals(GestorTrabajos.PENDIENTE, gestor.eliminar(segundo).getEstado());
+		Assert.assertNull(gestor.estado(segundo));
+		Assert.assertEquals(GestorTrabajos.CALCULANDO, gestor.eliminar(primero).getEstado());
+		Assert.assertEquals(GestorTrabajos.CALCULANDO, gestor.estado(primero).getEstado());
+		otra.countDown();
+		esperarEstado(gestor, primero, GestorTrabajos.TERMINADO);
+		Assert.assertFalse(calculado[0]);
+		Assert.assertEquals(GestorTrabajos.TERMINADO, gestor.eliminar(primero).getEstado());
+
+		// caben hilos + cola trabajos aunque se envien sin esperar a que los
+		// hilos recojan los primeros, y el cancelado deja su plaza
+		final CountDownLatch llena = new CountDownLatch(1);
+		Callable<VoronoiOutput> bloqueado = new Callable<VoronoiOutput>() {
+			public VoronoiOutput call() throws Exception {
+				llena.await(ESPERA_MAXIMA, TimeUnit.MILLISECONDS);
+				return salida;
+			}
+		};
+		gestor = new GestorTrabajos(2, 3, 60000L, 8);
+		String[] enviados = new String[5];
+		for (int i = 0; i < enviados.length; i++)
+			enviados[i] = gestor.enviar(bloqueado);
+		try {
+			gestor.enviar(bloqueado);
+			Assert.fail("se esperaba la cola llena");
+		} catch (RejectedExecutionException ex) {
+		}
+		esperarEstado(gestor, enviados[0], GestorTrabajos.CALCULANDO);
+		esperarEstado(gestor, enviados[1], GestorTrabajos.CALCULANDO);
+		Assert.assertEquals(GestorTrabajos.PENDIENTE, gestor.eliminar(enviados[4]).getEstado());
+		enviados[4] = gestor.enviar(bloqueado);
+		llena.countDown();
+		for (String id : enviados)
+			esperarEstado(gestor, id, GestorTrabajos.TERMINADO);
+		gestor.enviar(bloqueado);
+
+		// sin retencion los terminados se eliminan al enviar otro
+		gestor = new GestorTrabajos(1, 1, 0L, 4);
+		primero = gestor.enviar(lento);
+		esperarEstado(gestor, primero, GestorTrabajos.TERMINADO);
+		gestor.enviar(lento);
+		Assert.assertNull(gestor.estado(primero));
+		Assert.assertEquals(1, gestor.total());
+	}
+
+	// espera a que el trabajo llegue al estado pasado, como mucho ESPERA_MAXIMA
+	private static void esperarEstado(GestorTrabajos gestor, String id, String estado) throws InterruptedException {
+		long limite = System.currentTimeMillis() + ESPERA_MAXIMA;
+		while (!estado.equals(gestor.estado(id).getEstado())) {
+			if (System.currentTimeMillis() > limite)
+				Assert.fail("el trabajo no llego a " + estado);
+			Thread.sleep(5);
+		}
+	}
+
+	@Test
+	public void testLotes() throws Exception {
+		String json = "{\"id\":3,\"sets\":[{\"points\":[{\"x\":1,\"y\":2},{\"x\":5,\"y\":1},{\"x\":3,\"y\":7}]},"
+				+ "{\"points\":[]},{\"otro\":[1],\"points\":[{\"x\":9,\"y\":8}]}]}";
+		List<LectorPuntos> conjuntos = new LectorLotes(new java.io.ByteArrayInputStream(json.getBytes("UTF-8")))
+				.conjuntos();
+		Assert.assertEquals(3, conjuntos.size());
+		Assert.assertEquals(3, conjuntos.get(0).total());
+		Assert.assertEquals(3, conjuntos.get(0).x()[2]);
+		Assert.assertEquals(7, conjuntos.get(0).y()[2]);
+		Assert.assertEquals(0, conjuntos.get(1).total());
+		Assert.assertEquals(9, conjuntos.get(2).x()[0]);
+
+		// los arrays de trabajo que deja una triangulacion mayor en el hilo no
+		// cambian las siguientes
+		java.util.Random azar = new java.util.Random(24);
+		final long[][] pequenos = new long[50][];
+		for (int k = 0; k < pequenos.length; k++) {
+			pequenos[k] = new long[2 * (20 + azar.nextInt(180))];
+			for (int i = 0; i < pequenos[k].length; i++)
+				pequenos[k][i] = azar.nextInt(i % 2 == 0 ? 600 : 400);
+		}
+		final int[][] nuevos = new int[pequenos.length][];
+		Thread limpio = new Thread() {
+			public void run() {
+				for (int k = 0; k < pequenos.length; k++)
+					nuevos[k] = triangulos(pequenos[k]);
+			}
+		};
+		limpio.start();
+		limpio.join();
+
+		long[] grande = new long[2 * 5000];
+		for (int i = 0; i < grande.length; i++)
+			grande[i] = azar.nextInt(4000);
+		triangulos(grande);
+		for (int k = 0; k < pequenos.length; k++)
+			Assert.assertArrayEquals(nuevos[k], triangulos(pequenos[k]));
+	}
+
+	// triangulos de los puntos x0, y0, x1, y1, ...
+	private static int[] triangulos(long[] xy) {
+		long[] x = new long[xy.length / 2], y = new long[xy.length / 2];
+		for (int i = 0; i < x.length; i++) {
+			x[i] = xy[2 * i];
+			y[i] = xy[2 * i + 1];
+		}
+		DelaunayPlano proceso = new DelaunayPlano(x, y);
+		return java.util.Arrays.copyOf(proceso.triangulos(), 3 * proceso.totalTriangulos());
+	}
+
+	@Test
+	public void testCacheVoronoi() throws Exception {
+		Marco marco = new Marco(0, 0, 600, 400);
+		long[] x = { 5, -3, 8, 5 }, y = { 1, 2, -7, 0 };
+		long[] px = { 8, 5, 5, -3 }, py = { -7, 0, 1, 2 };
+
+		// la clave de los sitios no depende de su orden, si de sus valores y
+		// del marco
+		CacheVoronoi.Clave a = CacheVoronoi.claveSitios(x, y, 4, marco);
+		Assert.assertEquals(a, CacheVoronoi.claveSitios(px, py, 4, marco));
+		Assert.assertFalse(a.equals(CacheVoronoi.claveSitios(x, y, 3, marco)));
+		Assert.assertFalse(a.equals(CacheVoronoi.claveSitios(x, y, 4, new Marco(0, 0, 601, 400))));
+		long[] lejos = { 5, -3, 8, 1L << 40 }, lejosP = { 1L << 40, 8, 5, -3 };
+		Assert.assertEquals(CacheVoronoi.claveSitios(lejos, y, 4, marco),
+				CacheVoronoi.claveSitios(lejosP, new long[] { 0, -7, 1, 2 }, 4, marco));
+
+		CacheVoronoi.Clave cuerpo = CacheVoronoi.claveCuerpo("uno".getBytes("UTF-8"), marco);
+		CacheVoronoi.Clave otroCuerpo = CacheVoronoi.claveCuerpo("dos".getBytes("UTF-8"), marco);
+
+		// el cuerpo resumido segun se lee da la misma clave
+		MessageDigest resumen = CacheVoronoi.resumenCuerpo();
+		DigestInputStream leido = new DigestInputStream(new java.io.ByteArrayInputStream("uno".getBytes("UTF-8")),
+				resumen);
+		while (leido.read() != -1)
+			;
+		Assert.assertEquals(cuerpo, CacheVoronoi.claveCuerpo(resumen, marco));
+
+		CacheVoronoi.Clave b = CacheVoronoi.claveSitios(px, py, 3, marco);
+		CacheVoronoi.Clave c = CacheVoronoi.claveSitios(px, py, 2, marco);
+
+		VoronoiOutput d1 = new VoronoiOutput(), d2 = new VoronoiOutput(), d3 = new VoronoiOutput();
+		d1.addLine(0, 0, 1, 1);
+		d2.addLine(2, 2, 3, 3);
+		d3.addLine(4, 4, 5, 5);
+
+		CacheVoronoi cache = new CacheVoronoi(2, 1000);
+		Assert.assertNull(cache.buscarCuerpo(cuerpo));
+		Assert.assertNull(cache.buscar(a, cuerpo));
+		cache.guardar(a, cuerpo, d1);
+		Assert.assertEquals(d1.getLines(), cache.buscarCuerpo(cuerpo).getLines());
+
+		// los mismos sitios con otro texto: se encuentran por los sitios y
+		// despues tambien por el cuerpo
+		Assert.assertNull(cache.buscarCuerpo(otroCuerpo));
+		Assert.assertEquals(d1.getLines(), cache.buscar(a, otroCuerpo).getLines());
+		Assert.assertEquals(d1.getLines(), cache.buscarCuerpo(otroCuerpo).getLines());
+
+		// se expulsa el usado hace mas tiempo
+		cache.guardar(b, cuerpo, d2);
+		Assert.assertEquals(d1.getLines(), cache.buscar(a, cuerpo).getLines());
+		cache.guardar(c, cuerpo, d3);
+		Assert.assertNull(cache.buscar(b, cuerpo));
+		Assert.assertEquals(d3.getLines(), cache.buscar(c, cuerpo).getLines());
+
+		CacheOutput estadisticas = cache.estadisticas();
+		Assert.assertEquals(2, estadisticas.getEntradas());
+		Assert.assertEquals(3, estadisticas.getAciertos());
+		Assert.assertEquals(2, estadisticas.getAciertosCuerpo());
+		Assert.assertEquals(2, estadisticas.getFallos());
+		Assert.assertEquals(1, estadisticas.getExpulsiones());
+
+		// cada acierto es una copia marcada como de la cache, con las lineas
+		// de solo lectura, y el diagrama guardado no cambia
+		InstanciaVoronoi calculada = new InstanciaVoronoi(new Nube2D(x, y, 4), 30);
+		calculada.calculaVoronoi();
+		VoronoiOutput conInforme = calculada.getVoronoiJSON(new MyCoord(), marco);
+		cache.guardar(a, cuerpo, conInforme);
+		VoronoiOutput acierto = cache.buscarCuerpo(cuerpo);
+		Assert.assertNotSame(conInforme, acierto);
+		Assert.assertFalse(conInforme.getInforme().isDeCache());
+		Assert.assertTrue(acierto.getInforme().isDeCache());
+		Assert.assertEquals(conInforme.getInforme().getMetodo(), acierto.getInforme().getMetodo());
+		acierto.getInforme().setRepetidos(99);
+		Assert.assertEquals(conInforme.getInforme().getRepetidos(), cache.buscar(a, cuerpo).getInforme().getRepetidos());
+		try {
+			acierto.getLines().clear();
+			Assert.fail("las lineas de la cache deben ser de solo lectura");
+		} catch (UnsupportedOperationException ex) {
+		}
+		Assert.assertEquals(conInforme.getLines(), cache.buscarCuerpo(cuerpo).getLines());
+
+		// y por peso: un diagrama que pesa mas que el maximo no se guarda
+		VoronoiOutput grande = new VoronoiOutput();
+		for (int i = 0; i < 100; i++)
+			grande.addLine(i, i, i + 1, i + 1);
+		cache.guardar(b, cuerpo, grande);
+		Assert.assertNull(cache.buscar(b, cuerpo));
+		Assert.assertEquals(2, cache.estadisticas().getEntradas());
+		Assert.assertTrue(cache.estadisticas().getPeso() <= 1000);
+
+		// cada diagrama recuerda sus cuatro ultimos cuerpos, y los olvida al
+		// expulsarse
+		CacheVoronoi porCuerpos = new CacheVoronoi(2, 1000);
+		CacheVoronoi.Clave[] textos = new CacheVoronoi.Clave[5];
+		for (int i = 0; i < textos.length; i++)
+			textos[i] = CacheVoronoi.claveCuerpo(("texto" + i).getBytes("UTF-8"), marco);
+		porCuerpos.guardar(a, textos[0], d1);
+		for (int i = 1; i < textos.length; i++)
+			Assert.assertEquals(d1.getLines(), porCuerpos.buscar(a, textos[i]).getLines());
+		Assert.assertNull(porCuerpos.buscarCuerpo(textos[0]));
+		for (int i = 1; i < textos.length; i++)
+			Assert.assertEquals(d1.getLines(), porCuerpos.buscarCuerpo(textos[i]).getLines());
+		porCuerpos.guardar(b, cuerpo, d2);
+		porCuerpos.guardar(c, otroCuerpo, d3);
+		for (int i = 1; i < textos.length; i++)
+			Assert.assertNull(porCuerpos.buscarCuerpo(textos[i]));
+		Assert.assertEquals(d2.getLines(), porCuerpos.buscarCuerpo(cuerpo).getLines());
+	}
+
+	private static long area2(List<Punto2D> poligono) {
+		long area = 0;
+		for (int i = 0; i < poligono.size(); i++) {
+			Punto2D a = poligono.get(i), b = poligono.get((i + 1) % poligono.size());
+			area += a.x() * b.y() - b.x() * a.y();
+		}
+		return area;
+	}
+
+	@Test
+	public void testConcurrencia() throws Exception {
+		final Punto3d[] sitios = Input.libreVoronoi(300, 620, 480);
+
+		// cada calculo con su metodo y su tamaño base, para que una
+		// instancia no pueda heredar el de otra
+
+		final int[][] casos = { { DCEL.METODO_DIVIDE_Y_VENCERAS, 8 }, { DCEL.METODO_DIVIDE_Y_VENCERAS, 30 },
+				{ DCEL.METODO_DIVIDE_Y_VENCERAS, 100 }, { DCEL.METODO_ALEATORIO, 30 }, { DCEL.METODO_PARALELO, 20 },
+				{ InstanciaVoronoi.METODO_PLANO, 30 }, { InstanciaVoronoi.METODO_FORTUNE, 30 },
+				{ InstanciaVoronoi.METODO_COMPACTO, 30 } };
+
+		String[] esperado = new String[casos.length];
+		for (int i = 0; i < casos.length; i++)
+			esperado[i] = calcula(sitios, casos[i][0], casos[i][1]);
+
+		ExecutorService hilos = Executors.newFixedThreadPool(8);
+		List<Future<String>> resultados = new ArrayList<Future<String>>();
+
+		try {
+			for (int r = 0; r < 6; r++)
+				for (int i = 0; i < casos.length; i++) {
+					final int[] caso = casos[i];
+					resultados.add(hilos.submit(new Callable<String>() {
+						public String call() {
+							return calcula(sitios, caso[0], caso[1]);
+						}
+					}));
+				}
+
+			for (int k = 0; k < resultados.size(); k++)
+				Assert.assertEquals(esperado[k % casos.length], resultados.get(k).get());
+		} finally {
+			hilos.shutdown();
+		}
+	}
+
+	private String calcula(Punto3d[] sitios, int metodo, int tambase) {
+		InstanciaVoronoi unaInstancia = new InstanciaVoronoi(new Nube2D(sitios), tambase);
+		unaInstancia.setMetodoCalculo(metodo);
+		unaInstancia.calculaVoronoi();
+
+		StringBuilder dibujo = new StringBuilder();
+		for (Line l : unaInstancia.getVoronoiJSON(new MyCoord()).getLines())
+			dibujo.append(l.getX1()).append(',').append(l.getY1()).append(' ').append(l.getX2()).append(',')
+					.append(l.getY2()).append(';');
+		return dibujo.toString();
+	}
+
 	private class MyCoord implements ICoord {
 		public int x(long wx) {
 			return (int) wx + 20;